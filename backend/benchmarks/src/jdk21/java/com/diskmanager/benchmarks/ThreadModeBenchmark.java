@@ -0,0 +1,101 @@
+package com.diskmanager.benchmarks;
+
+import com.diskmanager.scanner.IoGate;
+import com.diskmanager.scanner.ParallelDirectoryWalker;
+import com.diskmanager.scanner.ScanFilter;
+import com.diskmanager.scanner.ScanStatistics;
+import com.diskmanager.scanner.ThreadMode;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The parallel walker on platform threads against virtual threads over the same generated tree,
+ * with the number of threads each mode needs as secondary results. Only compiled by the jdk21
+ * profile, since VIRTUAL falls back to PLATFORM on older runtimes.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Fork(value = 1, jvmArgsAppend = {"-Xms1g", "-Xmx1g"})
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class ThreadModeBenchmark {
+    
+    /** 3 levels of 8 directories with 20 files each make 585 directories, 11700 files */
+    @Param({"3"})
+    private int depth;
+    
+    @Param({"8"})
+    private int width;
+    
+    @Param({"20"})
+    private int filesPerDirectory;
+    
+    @Param({"4"})
+    private int parallelism;
+    
+    @Param({"PLATFORM", "VIRTUAL"})
+    private ThreadMode threadMode;
+    
+    private Path root;
+    private ParallelDirectoryWalker walker;
+    private final ScanFilter filter = new ScanFilter(Integer.MAX_VALUE, true, null);
+    private final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+    
+    @Setup(Level.Trial)
+    public void createTree() throws IOException {
+        root = Files.createTempDirectory("thread-mode-benchmark");
+        Fixtures.tree(root, depth, width, filesPerDirectory, Fixtures.SEED);
+        walker = new ParallelDirectoryWalker(parallelism, threadMode, IoGate.UNLIMITED);
+    }
+    
+    @TearDown(Level.Trial)
+    public void deleteTree() throws IOException {
+        Fixtures.deleteRecursively(root);
+    }
+    
+    /**
+     * Threads of the last walk of an iteration
+     */
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    @State(Scope.Thread)
+    public static class ThreadCounts {
+        /** Platform threads started, virtual threads are not counted */
+        public long startedThreads;
+        /** Distinct threads that visited a directory */
+        public long usedThreads;
+    }
+    
+    @Benchmark
+    public ScanStatistics walk(ThreadCounts counts) {
+        Set<Thread> used = ConcurrentHashMap.newKeySet();
+        long startedBefore = threads.getTotalStartedThreadCount();
+        ScanStatistics statistics = new ScanStatistics();
+        walker.walk(root, filter, (file, attrs) -> null,
+                (directory, attrs, depth, totals) -> used.add(Thread.currentThread()), statistics);
+        counts.startedThreads = threads.getTotalStartedThreadCount() - startedBefore;
+        counts.usedThreads = used.size();
+        return statistics;
+    }
+}
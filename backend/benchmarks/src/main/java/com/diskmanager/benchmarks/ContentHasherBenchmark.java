@@ -0,0 +1,94 @@
+package com.diskmanager.benchmarks;
+
+import com.diskmanager.hash.ContentDigest;
+import com.diskmanager.hash.ContentHasher;
+import com.diskmanager.hash.FileDigester;
+import com.diskmanager.hash.Md5ContentHasher;
+import com.diskmanager.hash.Sha256ContentHasher;
+import com.diskmanager.hash.XxHash64ContentHasher;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of the content hashers on an array in memory and on a file through
+ * {@link FileDigester}. The file is read from the page cache after the first iteration, so the
+ * difference between the two is the cost of reading and copying, not of the disk.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Fork(value = 1, jvmArgsAppend = {"-Xms1g", "-Xmx1g"})
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class ContentHasherBenchmark {
+    
+    private static final int CHUNK = 64 * 1024;
+    
+    @Param({"MD5", "SHA-256", "XXH64"})
+    private String algorithm;
+    
+    /** 1 MB and 64 MB */
+    @Param({"1048576", "67108864"})
+    private int size;
+    
+    private ContentHasher hasher;
+    private byte[] data;
+    private Path file;
+    
+    @Setup(Level.Trial)
+    public void createData() throws IOException {
+        hasher = hasher(algorithm);
+        data = new byte[size];
+        new Random(Fixtures.SEED).nextBytes(data);
+        file = Files.write(Files.createTempFile("hash-benchmark", ".bin"), data);
+    }
+    
+    @TearDown(Level.Trial)
+    public void deleteFile() throws IOException {
+        Files.deleteIfExists(file);
+    }
+    
+    @Benchmark
+    public String hashMemory() {
+        ContentDigest digest = hasher.newDigest();
+        for (int offset = 0; offset < data.length; offset += CHUNK) {
+            digest.update(data, offset, Math.min(CHUNK, data.length - offset));
+        }
+        return digest.finish();
+    }
+    
+    @Benchmark
+    public String hashFile() throws IOException {
+        return FileDigester.digest(file, hasher);
+    }
+    
+    private static ContentHasher hasher(String algorithm) {
+        switch (algorithm) {
+            case Md5ContentHasher.ALGORITHM:
+                return new Md5ContentHasher();
+            case Sha256ContentHasher.ALGORITHM:
+                return new Sha256ContentHasher();
+            case XxHash64ContentHasher.ALGORITHM:
+                return new XxHash64ContentHasher();
+            default:
+                throw new IllegalArgumentException("Unknown algorithm: " + algorithm);
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package com.diskmanager.benchmarks;
+
+import com.diskmanager.model.FileInfo;
+import com.diskmanager.service.DiskScannerService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Entity to DTO conversion, done for every file returned by the scan, stream and query endpoints
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Benchmark)
+@Fork(value = 1, jvmArgsAppend = {"-Xms1g", "-Xmx1g"})
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class ConvertToDtoBenchmark {
+    
+    private static final int FILES = 1024;
+    
+    private FileInfo[] files;
+    
+    @Setup
+    public void createFiles() {
+        files = Fixtures.fileInfos(FILES, Fixtures.SEED);
+    }
+    
+    @Benchmark
+    @OperationsPerInvocation(FILES)
+    public void convertToDTO(Blackhole blackhole) {
+        for (FileInfo file : files) {
+            blackhole.consume(DiskScannerService.convertToDTO(file));
+        }
+    }
+}
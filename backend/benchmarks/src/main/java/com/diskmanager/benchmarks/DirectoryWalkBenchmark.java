@@ -0,0 +1,91 @@
+package com.diskmanager.benchmarks;
+
+import com.diskmanager.scanner.IoGate;
+import com.diskmanager.scanner.ParallelDirectoryWalker;
+import com.diskmanager.scanner.ScanFilter;
+import com.diskmanager.scanner.ScanStatistics;
+import com.diskmanager.scanner.ThreadMode;
+import com.diskmanager.util.FileTypeDetector;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Recursive directory scan over a generated tree: the parallel walker listing every directory
+ * and reading the attributes of every file, which is what a scan does before it stores anything.
+ * The tree is written once per trial, so after the warm-up iterations it is served from the
+ * page cache and the benchmark measures the CPU and system call cost of the walk, not the disk.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Fork(value = 1, jvmArgsAppend = {"-Xms1g", "-Xmx1g"})
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class DirectoryWalkBenchmark {
+    
+    /** Levels below the root; 3 levels of 8 directories with 20 files each make 585 directories, 11700 files */
+    @Param({"3"})
+    private int depth;
+    
+    @Param({"8"})
+    private int width;
+    
+    @Param({"20"})
+    private int filesPerDirectory;
+    
+    @Param({"1", "4"})
+    private int parallelism;
+    
+    private Path root;
+    private ParallelDirectoryWalker walker;
+    private final ScanFilter filter = new ScanFilter(Integer.MAX_VALUE, true, null);
+    
+    @Setup(Level.Trial)
+    public void createTree() throws IOException {
+        root = Files.createTempDirectory("walk-benchmark");
+        Fixtures.tree(root, depth, width, filesPerDirectory, Fixtures.SEED);
+        walker = new ParallelDirectoryWalker(parallelism, ThreadMode.PLATFORM, IoGate.UNLIMITED);
+    }
+    
+    @TearDown(Level.Trial)
+    public void deleteTree() throws IOException {
+        Fixtures.deleteRecursively(root);
+    }
+    
+    /**
+     * List and stat everything, keeping nothing
+     */
+    @Benchmark
+    public ScanStatistics walk() {
+        ScanStatistics statistics = new ScanStatistics();
+        walker.walk(root, filter, (file, attrs) -> null, statistics);
+        return statistics;
+    }
+    
+    /**
+     * Walk and classify every file by extension, as the scan does for each file it stores
+     */
+    @Benchmark
+    public List<String> walkAndDetectTypes() {
+        return walker.walk(root, filter, (file, attrs) ->
+                FileTypeDetector.detectFileType(FileTypeDetector.getExtension(file.getFileName().toString())),
+                new ScanStatistics());
+    }
+}
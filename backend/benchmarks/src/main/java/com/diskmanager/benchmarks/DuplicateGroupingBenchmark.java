@@ -0,0 +1,132 @@
+package com.diskmanager.benchmarks;
+
+import com.diskmanager.dedup.DuplicateGroupingEngine;
+import com.diskmanager.model.DuplicateGroup;
+import com.diskmanager.model.FileInfo;
+import org.hibernate.boot.MetadataSources;
+import org.hibernate.boot.model.naming.CamelCaseToUnderscoresNamingStrategy;
+import org.hibernate.boot.registry.StandardServiceRegistry;
+import org.hibernate.boot.registry.StandardServiceRegistryBuilder;
+import org.hibernate.cfg.AvailableSettings;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.orm.jpa.hibernate.SpringImplicitNamingStrategy;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Set-based duplicate grouping of {@link DuplicateGroupingEngine} on synthetic rows. Every trial
+ * gets its own in-memory database whose tables are generated from the entities the way the
+ * backend creates them, so the measured queries run against the real columns and indexes.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+public class DuplicateGroupingBenchmark {
+    
+    private static final int BATCH_SIZE = 10000;
+    private static final int COPIES = 2; // files per duplicate group
+    private static final String ALGORITHM = "MD5";
+    
+    @Param({"100000", "1000000"})
+    private int rows;
+    
+    /** Share of the rows that have a copy */
+    @Param({"10"})
+    private int duplicatePercent;
+    
+    private SingleConnectionDataSource dataSource;
+    private DuplicateGroupingEngine engine;
+    
+    @Setup(Level.Trial)
+    public void createDatabase() {
+        String url = "jdbc:h2:mem:grouping-" + UUID.randomUUID();
+        // Holds the database open until the trial ends
+        dataSource = new SingleConnectionDataSource(url, "sa", "", true);
+        createSchema(dataSource);
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        load(jdbcTemplate, rows, rows / 100 * duplicatePercent / COPIES);
+        engine = new DuplicateGroupingEngine(jdbcTemplate);
+    }
+    
+    @TearDown(Level.Trial)
+    public void dropDatabase() {
+        dataSource.destroy();
+    }
+    
+    @Benchmark
+    public int regroup() {
+        return engine.regroup(ALGORITHM);
+    }
+    
+    /**
+     * Tables and indexes of the entities, named as Spring Boot names them
+     */
+    private static void createSchema(DataSource dataSource) {
+        StandardServiceRegistry registry = new StandardServiceRegistryBuilder()
+                .applySetting(AvailableSettings.DATASOURCE, dataSource)
+                .applySetting(AvailableSettings.PHYSICAL_NAMING_STRATEGY, new CamelCaseToUnderscoresNamingStrategy())
+                .applySetting(AvailableSettings.IMPLICIT_NAMING_STRATEGY, new SpringImplicitNamingStrategy())
+                .applySetting(AvailableSettings.HBM2DDL_AUTO, "create")
+                .build();
+        try {
+            // Starting a session factory runs the schema creation, closing it leaves the tables in place
+            new MetadataSources(registry)
+                    .addAnnotatedClass(FileInfo.class)
+                    .addAnnotatedClass(DuplicateGroup.class)
+                    .buildMetadata()
+                    .buildSessionFactory()
+                    .close();
+        } finally {
+            StandardServiceRegistryBuilder.destroy(registry);
+        }
+    }
+    
+    /**
+     * The first groups * COPIES rows form the duplicate groups, the rest have unique hashes
+     */
+    private static void load(JdbcTemplate jdbcTemplate, int rows, int groups) {
+        Random random = new Random(Fixtures.SEED);
+        int duplicateRows = groups * COPIES;
+        List<Object[]> batch = new ArrayList<>(BATCH_SIZE);
+        for (int row = 0; row < rows; row++) {
+            long key;
+            long size;
+            if (row < duplicateRows) {
+                key = row / COPIES;
+                size = 4096 + key;
+            } else {
+                key = groups + (long) (row - duplicateRows);
+                size = 1 + random.nextInt(1 << 24);
+            }
+            batch.add(new Object[]{(long) row, (long) row / 1000, "file-" + row, size,
+                    String.format("%032x", key), ALGORITHM, false});
+            if (batch.size() == BATCH_SIZE || row == rows - 1) {
+                jdbcTemplate.batchUpdate("INSERT INTO files (id, directory_id, file_name, file_size, " +
+                        "content_hash, hash_algorithm, is_duplicate) VALUES (?, ?, ?, ?, ?, ?, ?)", batch);
+                batch.clear();
+            }
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package com.diskmanager.benchmarks;
+
+import com.diskmanager.util.FileSizeFormatter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Human-readable sizes, formatted once for every file in a response
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Benchmark)
+@Fork(value = 1, jvmArgsAppend = {"-Xms1g", "-Xmx1g"})
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class FileSizeFormatterBenchmark {
+    
+    private static final int SIZES = 1024;
+    
+    private long[] sizes;
+    
+    @Setup
+    public void createSizes() {
+        sizes = Fixtures.sizes(SIZES, Fixtures.SEED);
+    }
+    
+    @Benchmark
+    @OperationsPerInvocation(SIZES)
+    public void formatSize(Blackhole blackhole) {
+        for (long size : sizes) {
+            blackhole.consume(FileSizeFormatter.formatSize(size));
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package com.diskmanager.benchmarks;
+
+import com.diskmanager.util.FileTypeDetector;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Extension parsing and type lookup, called for every file a scan visits. Each invocation
+ * runs over a fixed set of names so branch prediction sees the mix of a real directory.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Benchmark)
+@Fork(value = 1, jvmArgsAppend = {"-Xms1g", "-Xmx1g"})
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class FileTypeDetectorBenchmark {
+    
+    private static final int NAMES = 1024;
+    
+    private String[] names;
+    private String[] extensions;
+    
+    @Setup
+    public void createNames() {
+        names = Fixtures.fileNames(NAMES, Fixtures.SEED);
+        extensions = new String[NAMES];
+        for (int i = 0; i < NAMES; i++) {
+            extensions[i] = FileTypeDetector.getExtension(names[i]);
+        }
+    }
+    
+    @Benchmark
+    @OperationsPerInvocation(NAMES)
+    public void getExtension(Blackhole blackhole) {
+        for (String name : names) {
+            blackhole.consume(FileTypeDetector.getExtension(name));
+        }
+    }
+    
+    @Benchmark
+    @OperationsPerInvocation(NAMES)
+    public void detectFileType(Blackhole blackhole) {
+        for (String extension : extensions) {
+            blackhole.consume(FileTypeDetector.detectFileType(extension));
+        }
+    }
+}
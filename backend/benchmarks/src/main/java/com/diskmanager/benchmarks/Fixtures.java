@@ -0,0 +1,153 @@
+package com.diskmanager.benchmarks;
+
+import com.diskmanager.model.FileInfo;
+import com.diskmanager.util.FileTypeDetector;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.LocalDateTime;
+import java.util.Random;
+
+/**
+ * Inputs of the benchmarks, generated from a seed so every run measures the same data
+ */
+public final class Fixtures {
+    
+    public static final long SEED = 20240901L;
+    
+    private static final String[] EXTENSIONS = {
+            "jpg", "png", "mp4", "mp3", "pdf", "docx", "txt", "java", "js", "json", "zip", "tar", "gz",
+            "exe", "log", "csv", "xml", "html", "iso", "class", "JPG", "Mp4", "weird", ""
+    };
+    
+    private Fixtures() {
+    }
+    
+    /**
+     * Build a tree of the given depth in which every directory has width subdirectories and
+     * filesPerDirectory files of up to 4 KB; directories at the bottom only have files
+     * @return number of files created
+     */
+    public static long tree(Path root, int depth, int width, int filesPerDirectory, long seed) throws IOException {
+        return tree(root, depth, width, filesPerDirectory, new Random(seed));
+    }
+    
+    private static long tree(Path directory, int depth, int width, int filesPerDirectory, Random random)
+            throws IOException {
+        Files.createDirectories(directory);
+        long files = 0;
+        for (int i = 0; i < filesPerDirectory; i++) {
+            byte[] content = new byte[random.nextInt(4096)];
+            random.nextBytes(content);
+            Files.write(directory.resolve(fileName(i, random)), content);
+            files++;
+        }
+        if (depth > 0) {
+            for (int i = 0; i < width; i++) {
+                files += tree(directory.resolve("dir" + i), depth - 1, width, filesPerDirectory, random);
+            }
+        }
+        return files;
+    }
+    
+    /**
+     * Write a file of random content
+     */
+    public static Path file(Path file, long size, long seed) throws IOException {
+        Random random = new Random(seed);
+        byte[] buffer = new byte[64 * 1024];
+        try (OutputStream out = Files.newOutputStream(file)) {
+            for (long written = 0; written < size; written += buffer.length) {
+                random.nextBytes(buffer);
+                out.write(buffer, 0, (int) Math.min(buffer.length, size - written));
+            }
+        }
+        return file;
+    }
+    
+    /**
+     * File names with a mix of common, unknown, upper case and missing extensions
+     */
+    public static String[] fileNames(int count, long seed) {
+        Random random = new Random(seed);
+        String[] names = new String[count];
+        for (int i = 0; i < count; i++) {
+            names[i] = fileName(i, random);
+        }
+        return names;
+    }
+    
+    /**
+     * Sizes spread evenly over the orders of magnitude from bytes to terabytes
+     */
+    public static long[] sizes(int count, long seed) {
+        Random random = new Random(seed);
+        long[] sizes = new long[count];
+        for (int i = 0; i < count; i++) {
+            sizes[i] = (long) Math.pow(2, random.nextDouble() * 42);
+        }
+        return sizes;
+    }
+    
+    /**
+     * File entities as a scan creates them, some with a content hash and a duplicate group
+     */
+    public static FileInfo[] fileInfos(int count, long seed) {
+        Random random = new Random(seed);
+        String[] names = fileNames(count, seed);
+        long[] sizes = sizes(count, seed);
+        LocalDateTime base = LocalDateTime.of(2024, 1, 1, 0, 0);
+        FileInfo[] files = new FileInfo[count];
+        for (int i = 0; i < count; i++) {
+            FileInfo file = new FileInfo();
+            file.setId((long) i);
+            file.setDirectoryId((long) random.nextInt(1000));
+            file.setFileName(names[i]);
+            file.setFilePath("/data/dir" + random.nextInt(1000) + "/" + names[i]);
+            file.setFileSize(sizes[i]);
+            file.setFileExtension(FileTypeDetector.getExtension(names[i]));
+            file.setFileType(FileTypeDetector.detectFileType(file.getFileExtension()));
+            file.setLastModified(base.plusSeconds(random.nextInt(365 * 24 * 3600)));
+            if (random.nextInt(4) == 0) {
+                file.setContentHash(Long.toHexString(random.nextLong()));
+                file.setHashAlgorithm("MD5");
+                file.setIsDuplicate(random.nextBoolean());
+                file.setDuplicateGroupId(file.getIsDuplicate() ? (long) random.nextInt(100) : null);
+            }
+            files[i] = file;
+        }
+        return files;
+    }
+    
+    /**
+     * Remove a generated tree
+     */
+    public static void deleteRecursively(Path root) throws IOException {
+        if (root == null || !Files.exists(root)) {
+            return;
+        }
+        Files.walkFileTree(root, new SimpleFileVisitor<>() {
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                Files.delete(file);
+                return FileVisitResult.CONTINUE;
+            }
+            
+            @Override
+            public FileVisitResult postVisitDirectory(Path dir, IOException exc) throws IOException {
+                Files.delete(dir);
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+    
+    private static String fileName(int index, Random random) {
+        String extension = EXTENSIONS[random.nextInt(EXTENSIONS.length)];
+        return extension.isEmpty() ? "file" + index : "file" + index + "." + extension;
+    }
+}
@@ -0,0 +1,63 @@
+package com.diskmanager.benchmarks;
+
+import com.diskmanager.util.MD5Util;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * MD5 of whole files against the quick hash of their first and last megabyte, across file
+ * sizes. Files are read from the page cache after the first iteration, so the numbers are
+ * digest and copy throughput; divide the size by the score for bytes per microsecond.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Fork(value = 1, jvmArgsAppend = {"-Xms1g", "-Xmx1g"})
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class Md5Benchmark {
+    
+    /** 4 KB, 1 MB and 16 MB */
+    @Param({"4096", "1048576", "16777216"})
+    private long size;
+    
+    private Path file;
+    private String path;
+    
+    @Setup(Level.Trial)
+    public void createFile() throws IOException {
+        file = Fixtures.file(Files.createTempFile("md5-benchmark", ".bin"), size, Fixtures.SEED);
+        path = file.toString();
+    }
+    
+    @TearDown(Level.Trial)
+    public void deleteFile() throws IOException {
+        Files.deleteIfExists(file);
+    }
+    
+    @Benchmark
+    public String calculateMD5() throws IOException {
+        return MD5Util.calculateMD5(path);
+    }
+    
+    @Benchmark
+    public String calculateQuickHash() throws IOException {
+        return MD5Util.calculateQuickHash(path, size);
+    }
+}
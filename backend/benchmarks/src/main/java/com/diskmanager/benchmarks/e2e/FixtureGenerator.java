@@ -0,0 +1,318 @@
+package com.diskmanager.benchmarks.e2e;
+
+import com.diskmanager.util.FileSizeFormatter;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.IntStream;
+
+/**
+ * Builds a file tree for end-to-end scan benchmarks from a seed. The same options and seed
+ * always give the same tree, byte for byte, however many threads write it.
+ * <ul>
+ *   <li>tree/: a balanced tree of the given depth and fan-out holding most files</li>
+ *   <li>wide/: one directory with many files</li>
+ *   <li>deep/: a chain of nested directories with one file per level</li>
+ *   <li>sparse/: large files with two written blocks and a hole in between</li>
+ *   <li>links/: hardlinks to generated files</li>
+ *   <li>loops/: directory symlinks pointing back at their own directory and its parent</li>
+ * </ul>
+ * File sizes are log-normal around a median. A share of the files are copies of earlier files,
+ * which the duplicate search has to find. A manifest with the expected counts is written next
+ * to the root.
+ * <p>
+ * Usage: FixtureGenerator --root=/tmp/fixture [--seed=42] [--files=100000] [--depth=6]
+ * [--fan-out=4] [--wide-files=10000] [--deep-levels=64] [--median-size=4KB] [--size-sigma=1.8]
+ * [--max-size=64MB] [--duplicate-ratio=0.1] [--sparse-files=10] [--sparse-size=256MB]
+ * [--hardlinks=100] [--symlink-loops=10] [--threads=N] [--manifest=path]
+ */
+public class FixtureGenerator {
+    
+    private static final long SIZE_SALT = 0x5157_A11D_0000_0001L;
+    private static final long CONTENT_SALT = 0x5157_A11D_0000_0002L;
+    private static final long LINK_SALT = 0x5157_A11D_0000_0003L;
+    private static final int BLOCK = 64 * 1024;
+    private static final int SPARSE_BLOCK = 4096;
+    
+    private final Path root;
+    private final long seed;
+    private final int files;
+    private final int depth;
+    private final int fanOut;
+    private final int wideFiles;
+    private final int deepLevels;
+    private final long medianSize;
+    private final double sizeSigma;
+    private final long maxSize;
+    private final double duplicateRatio;
+    private final int sparseFiles;
+    private final long sparseSize;
+    private final int hardlinks;
+    private final int symlinkLoops;
+    private final int threads;
+    
+    private final List<Path> treeDirectories = new ArrayList<>();
+    private final List<Path> deepDirectories = new ArrayList<>();
+    
+    FixtureGenerator(Arguments arguments) {
+        this.root = Paths.get(arguments.require("root")).toAbsolutePath().normalize();
+        this.seed = arguments.getLong("seed", 42);
+        this.files = arguments.getInt("files", 100_000);
+        this.depth = arguments.getInt("depth", 6);
+        this.fanOut = arguments.getInt("fan-out", 4);
+        this.wideFiles = Math.min(files, arguments.getInt("wide-files", 10_000));
+        this.deepLevels = arguments.getInt("deep-levels", 64);
+        this.medianSize = FileSizeFormatter.parseSize(arguments.get("median-size", "4KB"));
+        this.sizeSigma = arguments.getDouble("size-sigma", 1.8);
+        this.maxSize = FileSizeFormatter.parseSize(arguments.get("max-size", "64MB"));
+        this.duplicateRatio = arguments.getDouble("duplicate-ratio", 0.1);
+        this.sparseFiles = arguments.getInt("sparse-files", 10);
+        this.sparseSize = FileSizeFormatter.parseSize(arguments.get("sparse-size", "256MB"));
+        this.hardlinks = arguments.getInt("hardlinks", 100);
+        this.symlinkLoops = arguments.getInt("symlink-loops", 10);
+        this.threads = arguments.getInt("threads", Runtime.getRuntime().availableProcessors());
+    }
+    
+    public static void main(String[] args) throws Exception {
+        Arguments arguments = new Arguments(args);
+        FixtureGenerator generator = new FixtureGenerator(arguments);
+        Map<String, Object> manifest = generator.generate();
+        Path manifestFile = Paths.get(arguments.get("manifest", manifestOf(generator.root).toString()));
+        writeManifest(manifest, manifestFile);
+        System.out.println("Generated " + manifest.get("expectedFiles") + " files in " + generator.root
+                + ", manifest " + manifestFile);
+    }
+    
+    /**
+     * Default manifest location: next to the root, so it is not part of the scanned tree
+     */
+    static Path manifestOf(Path root) {
+        return root.resolveSibling(root.getFileName() + ".manifest.json");
+    }
+    
+    static void writeManifest(Map<String, Object> manifest, Path file) throws IOException {
+        new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT).writeValue(file.toFile(), manifest);
+    }
+    
+    /**
+     * Write the tree
+     * @return manifest with the options and the expected counts
+     */
+    Map<String, Object> generate() throws IOException, InterruptedException {
+        if (Files.exists(root)) {
+            try (var entries = Files.list(root)) {
+                if (entries.findAny().isPresent()) {
+                    throw new IllegalStateException(root + " is not empty, refusing to generate into it");
+                }
+            }
+        }
+        long start = System.nanoTime();
+        createDirectories();
+        
+        AtomicIntegerArray copies = new AtomicIntegerArray(files); // files per content
+        AtomicLong bytes = new AtomicLong();
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        try {
+            pool.submit(() -> IntStream.range(0, files).parallel().forEach(index -> {
+                int content = contentOf(index);
+                copies.incrementAndGet(content);
+                bytes.addAndGet(writeFile(pathOf(index), content));
+            })).get();
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof UncheckedIOException ?
+                    ((UncheckedIOException) e.getCause()).getCause() : new IOException(e.getCause());
+        } finally {
+            pool.shutdown();
+        }
+        
+        SplittableRandom links = new SplittableRandom(seed ^ LINK_SALT);
+        Path linkDirectory = Files.createDirectories(root.resolve("links"));
+        for (int i = 0; i < hardlinks && files > 0; i++) {
+            int target = links.nextInt(files);
+            Files.createLink(linkDirectory.resolve("link" + i), pathOf(target));
+            copies.incrementAndGet(contentOf(target));
+            bytes.addAndGet(sizeOf(contentOf(target)));
+        }
+        long sparseBytes = writeSparseFiles(links);
+        Path loopDirectory = Files.createDirectories(root.resolve("loops"));
+        for (int i = 0; i < symlinkLoops; i++) {
+            Path loop = Files.createDirectories(loopDirectory.resolve("loop" + i));
+            Files.createSymbolicLink(loop.resolve("up"), Paths.get(".."));
+            Files.createSymbolicLink(loop.resolve("self"), Paths.get("."));
+        }
+        
+        long groups = 0;
+        long duplicateFiles = 0;
+        for (int i = 0; i < files; i++) {
+            if (copies.get(i) > 1) {
+                groups++;
+                duplicateFiles += copies.get(i);
+            }
+        }
+        
+        Map<String, Object> options = new LinkedHashMap<>();
+        options.put("seed", seed);
+        options.put("files", files);
+        options.put("depth", depth);
+        options.put("fanOut", fanOut);
+        options.put("wideFiles", wideFiles);
+        options.put("deepLevels", deepLevels);
+        options.put("medianSize", medianSize);
+        options.put("sizeSigma", sizeSigma);
+        options.put("maxSize", maxSize);
+        options.put("duplicateRatio", duplicateRatio);
+        options.put("sparseFiles", sparseFiles);
+        options.put("sparseSize", sparseSize);
+        options.put("hardlinks", hardlinks);
+        options.put("symlinkLoops", symlinkLoops);
+        
+        Map<String, Object> manifest = new LinkedHashMap<>();
+        manifest.put("root", root.toString());
+        manifest.put("options", options);
+        manifest.put("expectedFiles", (long) files + hardlinks + sparseFiles);
+        manifest.put("directories", 1 + 5 + treeDirectories.size() + deepDirectories.size() + symlinkLoops);
+        manifest.put("bytes", bytes.get() + sparseBytes);
+        manifest.put("duplicateGroups", groups);
+        manifest.put("duplicateFiles", duplicateFiles);
+        manifest.put("generationMillis", (System.nanoTime() - start) / 1_000_000);
+        return manifest;
+    }
+    
+    private void createDirectories() throws IOException {
+        Files.createDirectories(root.resolve("wide"));
+        Files.createDirectories(root.resolve("sparse"));
+        List<Path> level = List.of(root.resolve("tree"));
+        for (int d = 0; d < depth; d++) {
+            List<Path> next = new ArrayList<>();
+            for (Path parent : level) {
+                for (int i = 0; i < fanOut; i++) {
+                    Path child = Files.createDirectories(parent.resolve("d" + d + "_" + i));
+                    treeDirectories.add(child);
+                    next.add(child);
+                }
+            }
+            level = next;
+        }
+        Files.createDirectories(root.resolve("tree"));
+        treeDirectories.add(0, root.resolve("tree"));
+        Path deep = root.resolve("deep");
+        for (int d = 0; d < deepLevels; d++) {
+            deep = deep.resolve("level" + d);
+            deepDirectories.add(deep);
+        }
+        Files.createDirectories(deep);
+    }
+    
+    /**
+     * Wide directory first, then one file per level of the deep chain, the rest spread over the tree
+     */
+    private Path pathOf(int index) {
+        if (index < wideFiles) {
+            return root.resolve("wide").resolve(name(index));
+        }
+        int deepIndex = index - wideFiles;
+        if (deepIndex < deepDirectories.size()) {
+            return deepDirectories.get(deepIndex).resolve(name(index));
+        }
+        SplittableRandom random = random(index);
+        random.nextDouble(); // duplicate decision, see contentOf
+        random.nextInt(Math.max(1, index));
+        return treeDirectories.get(random.nextInt(treeDirectories.size())).resolve(name(index));
+    }
+    
+    /**
+     * Content a file has: its own index, or that of the earlier file it is a copy of
+     */
+    private int contentOf(int index) {
+        while (index > 0) {
+            SplittableRandom random = random(index);
+            boolean duplicate = random.nextDouble() < duplicateRatio;
+            int source = random.nextInt(index);
+            if (!duplicate) {
+                break;
+            }
+            index = source;
+        }
+        return index;
+    }
+    
+    /**
+     * Log-normal size around the median, at least one byte so empty files do not all collide
+     */
+    private long sizeOf(int content) {
+        SplittableRandom random = new SplittableRandom(mix(seed, content) ^ SIZE_SALT);
+        double size = medianSize * Math.exp(sizeSigma * random.nextGaussian());
+        return Math.max(1, Math.min(maxSize, (long) size));
+    }
+    
+    private long writeFile(Path path, int content) {
+        long size = sizeOf(content);
+        SplittableRandom random = new SplittableRandom(mix(seed, content) ^ CONTENT_SALT);
+        byte[] block = new byte[(int) Math.min(BLOCK, size)];
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+            for (long written = 0; written < size; written += block.length) {
+                random.nextBytes(block);
+                channel.write(ByteBuffer.wrap(block, 0, (int) Math.min(block.length, size - written)));
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return size;
+    }
+    
+    /**
+     * Sparse files of distinct sizes between half and all of sparse-size, data only in the first and last block
+     */
+    private long writeSparseFiles(SplittableRandom random) throws IOException {
+        long bytes = 0;
+        byte[] block = new byte[SPARSE_BLOCK];
+        for (int i = 0; i < sparseFiles; i++) {
+            long size = Math.max(2L * SPARSE_BLOCK, sparseSize / 2 + random.nextLong(Math.max(1, sparseSize / 2)));
+            Path path = root.resolve("sparse").resolve("sparse" + i + ".img");
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE_NEW,
+                    StandardOpenOption.WRITE, StandardOpenOption.SPARSE)) {
+                random.nextBytes(block);
+                channel.write(ByteBuffer.wrap(block), 0);
+                random.nextBytes(block);
+                channel.write(ByteBuffer.wrap(block), size - SPARSE_BLOCK);
+            }
+            bytes += size;
+        }
+        return bytes;
+    }
+    
+    private SplittableRandom random(int index) {
+        return new SplittableRandom(mix(seed, index));
+    }
+    
+    private static String name(int index) {
+        return "file" + index + ".dat";
+    }
+    
+    /**
+     * SplitMix64 finalizer over seed and index, so neighbouring indexes get unrelated streams
+     */
+    private static long mix(long seed, long index) {
+        long z = seed + 0x9E37_79B9_7F4A_7C15L * (index + 1);
+        z = (z ^ (z >>> 30)) * 0xBF58_476D_1CE4_E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D0_49BB_1331_11EBL;
+        return z ^ (z >>> 31);
+    }
+}
@@ -0,0 +1,334 @@
+package com.diskmanager.benchmarks.e2e;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.sun.tools.attach.VirtualMachine;
+
+import javax.management.MBeanServerConnection;
+import javax.management.remote.JMXConnector;
+import javax.management.remote.JMXConnectorFactory;
+import javax.management.remote.JMXServiceURL;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * End-to-end benchmark of the scan flow: starts the backend jar against a fresh file database,
+ * then times POST /api/disk/scan, GET /api/disk/duplicates and GET /api/disk/statistics on a
+ * fixture tree. Each run records wall times, files per second, the peak heap of the backend
+ * (read over JMX through the attach API) and the size of its database after shutdown. The
+ * medians of all runs are checked against the thresholds and, if given, an earlier result;
+ * the process exits with 1 when a limit is exceeded.
+ * <p>
+ * Usage: ScanFlowBenchmark --tree=/tmp/fixture [--generate and FixtureGenerator options]
+ * [--runs=3] [--jar=../target/disk-cleanup-partition-assistant-1.0.0.jar] [--heap=2g]
+ * [--port=18080] [--app-args="--app.scanner.parallelism=8 ..."] [--thresholds=e2e-thresholds.properties]
+ * [--baseline=results/e2e-previous.json] [--result=results/e2e-timestamp.json]
+ */
+public class ScanFlowBenchmark {
+    
+    static final String SCAN_MILLIS = "scanMillis";
+    static final String FILES_SCANNED = "filesScanned";
+    static final String FILES_PER_SECOND = "filesPerSecond";
+    static final String DUPLICATES_MILLIS = "duplicatesMillis";
+    static final String DUPLICATE_GROUPS = "duplicateGroups";
+    static final String STATISTICS_MILLIS = "statisticsMillis";
+    static final String TOTAL_MILLIS = "totalMillis";
+    static final String PEAK_HEAP_BYTES = "peakHeapBytes";
+    static final String DB_BYTES = "dbBytes";
+    
+    private static final Duration STARTUP_TIMEOUT = Duration.ofMinutes(2);
+    private static final Duration REQUEST_TIMEOUT = Duration.ofHours(2);
+    private static final DateTimeFormatter TIMESTAMP = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss");
+    
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final HttpClient http = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(5)).build();
+    private final Path tree;
+    private final Path jar;
+    private final String heap;
+    private final int port;
+    private final List<String> appArgs;
+    
+    ScanFlowBenchmark(Arguments arguments) {
+        this.tree = Paths.get(arguments.require("tree")).toAbsolutePath().normalize();
+        this.jar = Paths.get(arguments.get("jar", "../target/disk-cleanup-partition-assistant-1.0.0.jar"));
+        this.heap = arguments.get("heap", "2g");
+        this.port = arguments.getInt("port", 18080);
+        String extra = arguments.get("app-args", "").trim();
+        this.appArgs = extra.isEmpty() ? List.of() : Arrays.asList(extra.split("\\s+"));
+    }
+    
+    public static void main(String[] args) throws Exception {
+        Arguments arguments = new Arguments(args);
+        ScanFlowBenchmark benchmark = new ScanFlowBenchmark(arguments);
+        if (!Files.isRegularFile(benchmark.jar)) {
+            System.err.println("Backend jar not found: " + benchmark.jar + " (build it with mvn package in backend/)");
+            System.exit(2);
+        }
+        
+        Path manifestFile = FixtureGenerator.manifestOf(benchmark.tree);
+        if (!Files.exists(benchmark.tree) && arguments.getBoolean("generate")) {
+            String[] generatorArgs = Stream.concat(Stream.of(args).filter(arg -> !arg.startsWith("--tree=")),
+                    Stream.of("--root=" + benchmark.tree)).toArray(String[]::new);
+            Map<String, Object> manifest = new FixtureGenerator(new Arguments(generatorArgs)).generate();
+            FixtureGenerator.writeManifest(manifest, manifestFile);
+        }
+        if (!Files.isDirectory(benchmark.tree)) {
+            System.err.println("Fixture tree not found: " + benchmark.tree + " (create it with --generate)");
+            System.exit(2);
+        }
+        Map<String, Object> fixture = Files.exists(manifestFile) ?
+                benchmark.objectMapper.readValue(manifestFile.toFile(), new TypeReference<>() { }) :
+                Map.of("root", benchmark.tree.toString());
+        
+        List<Map<String, Number>> runs = new ArrayList<>();
+        int count = arguments.getInt("runs", 3);
+        for (int run = 1; run <= count; run++) {
+            Map<String, Number> result = benchmark.run();
+            System.out.println("Run " + run + "/" + count + ": " + result);
+            runs.add(result);
+        }
+        Map<String, Number> median = median(runs);
+        
+        List<String> violations = new ArrayList<>();
+        Object expectedFiles = fixture.get("expectedFiles");
+        if (expectedFiles instanceof Number
+                && ((Number) expectedFiles).longValue() != median.get(FILES_SCANNED).longValue()) {
+            violations.add("scan stored " + median.get(FILES_SCANNED) + " files, the fixture has " + expectedFiles);
+        }
+        Map<String, Number> baseline = null;
+        if (arguments.has("baseline")) {
+            JsonNode previous = benchmark.objectMapper.readTree(Paths.get(arguments.require("baseline")).toFile());
+            baseline = benchmark.objectMapper.convertValue(previous.get("median"), new TypeReference<>() { });
+        }
+        Path thresholdsFile = arguments.has("thresholds") ? Paths.get(arguments.require("thresholds")) : null;
+        violations.addAll(Thresholds.load(thresholdsFile).check(median, baseline));
+        
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("timestamp", LocalDateTime.now().toString());
+        report.put("jar", benchmark.jar.toString());
+        report.put("jvm", Runtime.version().toString());
+        report.put("heap", benchmark.heap);
+        report.put("appArgs", benchmark.appArgs);
+        report.put("fixture", fixture);
+        report.put("runs", runs);
+        report.put("median", median);
+        report.put("baseline", arguments.get("baseline", null));
+        report.put("violations", violations);
+        Path resultFile = Paths.get(arguments.get("result",
+                "results/e2e-" + LocalDateTime.now().format(TIMESTAMP) + ".json"));
+        if (resultFile.getParent() != null) {
+            Files.createDirectories(resultFile.getParent());
+        }
+        benchmark.objectMapper.enable(SerializationFeature.INDENT_OUTPUT).writeValue(resultFile.toFile(), report);
+        
+        System.out.println("Median: " + median);
+        System.out.println("Result written to " + resultFile);
+        if (!violations.isEmpty()) {
+            violations.forEach(violation -> System.err.println("THRESHOLD EXCEEDED: " + violation));
+            System.exit(1);
+        }
+    }
+    
+    /**
+     * One run against a backend started for it, so every run begins with an empty database and hash cache
+     */
+    Map<String, Number> run() throws Exception {
+        Path work = Files.createTempDirectory("scan-flow-benchmark");
+        Process app = start(work);
+        Map<String, Number> result = new LinkedHashMap<>();
+        try {
+            awaitStartup(app);
+            try (HeapProbe heapProbe = HeapProbe.attach(app.pid())) {
+                heapProbe.reset();
+                String base = "http://localhost:" + port + "/api/disk";
+                
+                long start = System.nanoTime();
+                JsonNode scan = request(HttpRequest.newBuilder(URI.create(base + "/scan"))
+                        .header("Content-Type", "application/json")
+                        .POST(HttpRequest.BodyPublishers.ofString(objectMapper.writeValueAsString(Map.of(
+                                "path", tree.toString(), "maxDepth", 10_000, "includeHidden", true)))));
+                long scanned = System.nanoTime();
+                JsonNode duplicates = request(HttpRequest.newBuilder(URI.create(base + "/duplicates")).GET());
+                long deduplicated = System.nanoTime();
+                request(HttpRequest.newBuilder(URI.create(base + "/statistics")).GET());
+                long finished = System.nanoTime();
+                
+                long files = scan.path("filesScanned").asLong();
+                result.put(SCAN_MILLIS, millis(start, scanned));
+                result.put(FILES_SCANNED, files);
+                result.put(FILES_PER_SECOND, Math.round(files * 1e9 / Math.max(1, scanned - start)));
+                result.put(DUPLICATES_MILLIS, millis(scanned, deduplicated));
+                result.put(DUPLICATE_GROUPS, duplicates.path("duplicateGroups").asLong());
+                result.put(STATISTICS_MILLIS, millis(deduplicated, finished));
+                result.put(TOTAL_MILLIS, millis(start, finished));
+                result.put(PEAK_HEAP_BYTES, heapProbe.peakBytes());
+            }
+        } finally {
+            stop(app);
+        }
+        result.put(DB_BYTES, databaseBytes(work));
+        return result;
+    }
+    
+    private Process start(Path work) throws IOException {
+        List<String> command = new ArrayList<>(List.of(
+                Paths.get(System.getProperty("java.home"), "bin", "java").toString(),
+                "-Xms" + heap, "-Xmx" + heap,
+                "-jar", jar.toAbsolutePath().toString(),
+                "--server.port=" + port,
+                "--spring.datasource.url=jdbc:h2:file:" + work.resolve("db"),
+                "--spring.h2.console.enabled=false",
+                "--app.hash.cache.file=" + work.resolve("hash-cache.bin"),
+                "--logging.level.com.diskmanager=INFO"));
+        command.addAll(appArgs);
+        return new ProcessBuilder(command)
+                .redirectErrorStream(true)
+                .redirectOutput(work.resolve("app.log").toFile())
+                .start();
+    }
+    
+    private void awaitStartup(Process app) throws Exception {
+        long deadline = System.nanoTime() + STARTUP_TIMEOUT.toNanos();
+        HttpRequest health = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/api/disk/health"))
+                .timeout(Duration.ofSeconds(5)).GET().build();
+        while (System.nanoTime() < deadline) {
+            if (!app.isAlive()) {
+                throw new IllegalStateException("Backend exited with " + app.exitValue() + " during startup");
+            }
+            try {
+                if (http.send(health, HttpResponse.BodyHandlers.discarding()).statusCode() == 200) {
+                    return;
+                }
+            } catch (IOException e) {
+                // not listening yet
+            }
+            Thread.sleep(250);
+        }
+        throw new IllegalStateException("Backend did not start within " + STARTUP_TIMEOUT);
+    }
+    
+    private JsonNode request(HttpRequest.Builder builder) throws Exception {
+        HttpResponse<String> response = http.send(builder.timeout(REQUEST_TIMEOUT).build(),
+                HttpResponse.BodyHandlers.ofString());
+        JsonNode body = objectMapper.readTree(response.body());
+        if (response.statusCode() != 200 || !body.path("success").asBoolean()) {
+            throw new IllegalStateException(response.request().uri() + " failed with " + response.statusCode()
+                    + ": " + body.path("message").asText());
+        }
+        return body;
+    }
+    
+    /**
+     * Shut down gracefully so H2 closes and compacts its file before it is measured
+     */
+    private static void stop(Process app) throws InterruptedException {
+        app.destroy();
+        if (!app.waitFor(60, TimeUnit.SECONDS)) {
+            app.destroyForcibly().waitFor();
+        }
+    }
+    
+    private static long databaseBytes(Path work) throws IOException {
+        try (Stream<Path> files = Files.list(work)) {
+            long total = 0;
+            for (Path file : files.filter(file -> file.getFileName().toString().startsWith("db."))
+                    .collect(Collectors.toList())) {
+                total += Files.size(file);
+            }
+            return total;
+        }
+    }
+    
+    private static long millis(long fromNanos, long toNanos) {
+        return (toNanos - fromNanos) / 1_000_000;
+    }
+    
+    private static Map<String, Number> median(List<Map<String, Number>> runs) {
+        Map<String, Number> median = new LinkedHashMap<>();
+        for (String metric : runs.get(0).keySet()) {
+            long[] values = runs.stream().mapToLong(run -> run.get(metric).longValue()).sorted().toArray();
+            median.put(metric, values[values.length / 2]);
+        }
+        return median;
+    }
+    
+    /**
+     * Heap of the backend over JMX. The peak is the sum of the peaks of the heap pools since the
+     * last reset, an upper bound that still catches spikes collected before anyone sampled them.
+     */
+    private static class HeapProbe implements AutoCloseable {
+        
+        private final JMXConnector connector;
+        private final List<MemoryPoolMXBean> pools;
+        
+        private HeapProbe(JMXConnector connector, List<MemoryPoolMXBean> pools) {
+            this.connector = connector;
+            this.pools = pools;
+        }
+        
+        /**
+         * @return a probe measuring nothing if the JVM cannot be attached to, e.g. on a JRE
+         */
+        static HeapProbe attach(long pid) {
+            try {
+                VirtualMachine vm = VirtualMachine.attach(String.valueOf(pid));
+                String address;
+                try {
+                    address = vm.startLocalManagementAgent();
+                } finally {
+                    vm.detach();
+                }
+                JMXConnector connector = JMXConnectorFactory.connect(new JMXServiceURL(address));
+                MBeanServerConnection connection = connector.getMBeanServerConnection();
+                List<MemoryPoolMXBean> pools = ManagementFactory.getPlatformMXBeans(connection, MemoryPoolMXBean.class)
+                        .stream()
+                        .filter(pool -> pool.getType() == MemoryType.HEAP)
+                        .collect(Collectors.toList());
+                return new HeapProbe(connector, pools);
+            } catch (Exception | LinkageError e) {
+                System.err.println("Cannot attach to the backend, peak heap is not measured: " + e);
+                return new HeapProbe(null, List.of());
+            }
+        }
+        
+        void reset() {
+            pools.forEach(MemoryPoolMXBean::resetPeakUsage);
+        }
+        
+        long peakBytes() {
+            if (connector == null) {
+                return -1;
+            }
+            return pools.stream().mapToLong(pool -> pool.getPeakUsage().getUsed()).sum();
+        }
+        
+        @Override
+        public void close() throws IOException {
+            if (connector != null) {
+                connector.close();
+            }
+        }
+    }
+}
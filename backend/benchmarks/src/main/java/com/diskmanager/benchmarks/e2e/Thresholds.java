@@ -0,0 +1,106 @@
+package com.diskmanager.benchmarks.e2e;
+
+import com.diskmanager.util.FileSizeFormatter;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * Limits a benchmark run must stay within, from a properties file. Absolute limits apply to the
+ * median of the runs; baseline.max-regression-percent compares the medians with those of an
+ * earlier result. Keys that are not set are not checked.
+ */
+class Thresholds {
+    
+    /** Metrics where a larger value is a regression */
+    private static final String[] LOWER_IS_BETTER = {
+            ScanFlowBenchmark.SCAN_MILLIS, ScanFlowBenchmark.DUPLICATES_MILLIS, ScanFlowBenchmark.STATISTICS_MILLIS,
+            ScanFlowBenchmark.TOTAL_MILLIS, ScanFlowBenchmark.PEAK_HEAP_BYTES, ScanFlowBenchmark.DB_BYTES
+    };
+    
+    /** Metrics where a smaller value is a regression */
+    private static final String[] HIGHER_IS_BETTER = {ScanFlowBenchmark.FILES_PER_SECOND};
+    
+    private final Properties properties = new Properties();
+    
+    static Thresholds load(Path file) throws IOException {
+        Thresholds thresholds = new Thresholds();
+        if (file != null) {
+            try (Reader reader = Files.newBufferedReader(file)) {
+                thresholds.properties.load(reader);
+            }
+        }
+        return thresholds;
+    }
+    
+    /**
+     * @param median medians of this run
+     * @param baseline medians of an earlier run, null to skip the comparison
+     * @return a message for every limit that was exceeded
+     */
+    List<String> check(Map<String, Number> median, Map<String, Number> baseline) {
+        List<String> violations = new ArrayList<>();
+        atMost(violations, median, ScanFlowBenchmark.SCAN_MILLIS, "scan.max-millis", false);
+        atLeast(violations, median, ScanFlowBenchmark.FILES_PER_SECOND, "scan.min-files-per-second");
+        atMost(violations, median, ScanFlowBenchmark.DUPLICATES_MILLIS, "duplicates.max-millis", false);
+        atMost(violations, median, ScanFlowBenchmark.STATISTICS_MILLIS, "statistics.max-millis", false);
+        atMost(violations, median, ScanFlowBenchmark.TOTAL_MILLIS, "total.max-millis", false);
+        atMost(violations, median, ScanFlowBenchmark.PEAK_HEAP_BYTES, "heap.max-peak", true);
+        atMost(violations, median, ScanFlowBenchmark.DB_BYTES, "db.max-size", true);
+        
+        String percent = properties.getProperty("baseline.max-regression-percent");
+        if (baseline != null && percent != null) {
+            double allowed = Double.parseDouble(percent.trim()) / 100;
+            for (String metric : LOWER_IS_BETTER) {
+                Number before = baseline.get(metric);
+                Number now = median.get(metric);
+                if (measured(before) && measured(now) && now.doubleValue() > before.doubleValue() * (1 + allowed)) {
+                    violations.add(String.format("%s regressed from %s to %s (more than %s%%)",
+                            metric, before, now, percent.trim()));
+                }
+            }
+            for (String metric : HIGHER_IS_BETTER) {
+                Number before = baseline.get(metric);
+                Number now = median.get(metric);
+                if (measured(before) && measured(now) && now.doubleValue() < before.doubleValue() * (1 - allowed)) {
+                    violations.add(String.format("%s regressed from %s to %s (more than %s%%)",
+                            metric, before, now, percent.trim()));
+                }
+            }
+        }
+        return violations;
+    }
+    
+    private void atMost(List<String> violations, Map<String, Number> median, String metric, String key,
+                        boolean size) {
+        String limit = properties.getProperty(key);
+        Number value = median.get(metric);
+        if (limit != null && measured(value)) {
+            long max = size ? FileSizeFormatter.parseSize(limit.trim()) : Long.parseLong(limit.trim());
+            if (value.doubleValue() > max) {
+                violations.add(String.format("%s is %s, above %s=%s", metric, value, key, limit.trim()));
+            }
+        }
+    }
+    
+    private void atLeast(List<String> violations, Map<String, Number> median, String metric, String key) {
+        String limit = properties.getProperty(key);
+        Number value = median.get(metric);
+        if (limit != null && measured(value) && value.doubleValue() < Double.parseDouble(limit.trim())) {
+            violations.add(String.format("%s is %s, below %s=%s", metric, value, key, limit.trim()));
+        }
+    }
+    
+    /**
+     * Metrics that could not be measured, such as the heap without the attach API, are negative
+     */
+    private static boolean measured(Number value) {
+        return value != null && value.doubleValue() >= 0;
+    }
+}
@@ -1,11 +1,16 @@
 package com.diskmanager.config;
 
+import com.diskmanager.scanner.ThreadMode;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
 import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 
 import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
 
 /**
  * Async Configuration for multi-threaded file scanning
@@ -16,13 +21,33 @@ public class AsyncConfig {
     @Value("${app.scanner.thread-pool-size:10}")
     private int threadPoolSize;
 
+    @Value("${app.scanner.threads:platform}")
+    private String threadMode;
+
     @Bean(name = "taskExecutor")
-    public Executor taskExecutor() {
+    public Executor taskExecutor(MeterRegistry registry) {
+        if (ThreadMode.of(threadMode).effective() == ThreadMode.VIRTUAL) {
+            // A virtual thread per scan, job or stream; the limit takes the place of pool size and queue
+            SimpleAsyncTaskExecutor executor = new SimpleAsyncTaskExecutor("DiskScanner-");
+            executor.setVirtualThreads(true);
+            executor.setConcurrencyLimit(threadPoolSize * 2);
+            return executor;
+        }
+
         ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
         executor.setCorePoolSize(threadPoolSize);
         executor.setMaxPoolSize(threadPoolSize * 2);
         executor.setQueueCapacity(500);
         executor.setThreadNamePrefix("DiskScanner-");
+        // Active, queued and pool size are bound by the actuator as executor.*{name="taskExecutor"}
+        Counter rejected = Counter.builder("executor.rejected")
+                .description("Tasks rejected because pool and queue were full")
+                .tag("name", "taskExecutor")
+                .register(registry);
+        executor.setRejectedExecutionHandler((task, pool) -> {
+            rejected.increment();
+            throw new RejectedExecutionException("Task " + task + " rejected from " + pool);
+        });
         executor.initialize();
         return executor;
     }
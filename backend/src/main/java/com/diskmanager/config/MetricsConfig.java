@@ -0,0 +1,63 @@
+package com.diskmanager.config;
+
+import io.micrometer.common.KeyValue;
+import io.micrometer.common.KeyValues;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.config.MeterFilter;
+import io.micrometer.core.instrument.distribution.DistributionStatisticConfig;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.server.observation.DefaultServerRequestObservationConvention;
+import org.springframework.http.server.observation.ServerRequestObservationContext;
+import org.springframework.http.server.observation.ServerRequestObservationConvention;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Request metrics: http.server.requests is tagged with the controller that handled the request,
+ * and the controllers in app.metrics.histogram-controllers publish latency histograms
+ */
+@Configuration
+public class MetricsConfig {
+
+    private static final String REQUESTS = "http.server.requests";
+    private static final String CONTROLLER = "controller";
+
+    @Value("${app.metrics.histogram-controllers:DiskScannerController,PartitionController}")
+    private List<String> histogramControllers;
+
+    @Bean
+    public ServerRequestObservationConvention controllerTaggingConvention() {
+        return new DefaultServerRequestObservationConvention() {
+            @Override
+            public KeyValues getLowCardinalityKeyValues(ServerRequestObservationContext context) {
+                Object handler = context.getCarrier().getAttribute(HandlerMapping.BEST_MATCHING_HANDLER_ATTRIBUTE);
+                String controller = handler instanceof HandlerMethod ?
+                        ((HandlerMethod) handler).getBeanType().getSimpleName() : "none";
+                return super.getLowCardinalityKeyValues(context).and(KeyValue.of(CONTROLLER, controller));
+            }
+        };
+    }
+
+    @Bean
+    public MeterFilter controllerHistograms() {
+        Set<String> controllers = new HashSet<>(histogramControllers);
+        return new MeterFilter() {
+            @Override
+            public DistributionStatisticConfig configure(Meter.Id id, DistributionStatisticConfig config) {
+                if (REQUESTS.equals(id.getName()) && controllers.contains(id.getTag(CONTROLLER))) {
+                    return DistributionStatisticConfig.builder()
+                            .percentilesHistogram(true)
+                            .build()
+                            .merge(config);
+                }
+                return config;
+            }
+        };
+    }
+}
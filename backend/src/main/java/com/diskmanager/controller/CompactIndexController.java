@@ -0,0 +1,153 @@
+package com.diskmanager.controller;
+
+import com.diskmanager.dto.DuplicateSearchResultDTO;
+import com.diskmanager.dto.FileInfoDTO;
+import com.diskmanager.dto.ScanRequestDTO;
+import com.diskmanager.dto.ScanResultDTO;
+import com.diskmanager.service.CompactIndexService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * REST Controller for the compact in-memory file index
+ */
+@RestController
+@RequestMapping("/api/index")
+@ConditionalOnProperty(name = "app.index.compact.enabled", havingValue = "true")
+@RequiredArgsConstructor
+@Slf4j
+@Tag(name = "Compact Index", description = "APIs for scanning into and querying the in-memory file index")
+public class CompactIndexController {
+    
+    private static final int MAX_LIMIT = 10000;
+    
+    private final CompactIndexService compactIndexService;
+    
+    @PostMapping("/scan")
+    @Operation(summary = "Scan into the index", description = "Walk a directory into the in-memory index, replacing its previous scan; nothing is written to the database")
+    public ResponseEntity<Map<String, Object>> scan(@RequestBody ScanRequestDTO request) {
+        log.info("Received index scan request for path: {}", request.getPath());
+        
+        try {
+            ScanResultDTO result = compactIndexService.scan(request);
+            
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", true);
+            response.put("message", "Scan indexed successfully");
+            response.put("filesIndexed", result.getFilesStored());
+            response.put("filesReplaced", result.getFilesDeleted());
+            response.put("walk", Map.of(
+                    "directoriesVisited", result.getDirectoriesVisited(),
+                    "filesVisited", result.getFilesVisited(),
+                    "errors", result.getErrors(),
+                    "elapsedMillis", result.getElapsedMillis(),
+                    "filesPerSecond", result.getFilesPerSecond(),
+                    "parallelism", result.getParallelism(),
+                    "throttledMillis", result.getThrottledMillis()));
+            response.put("index", compactIndexService.getStatus());
+            
+            return ResponseEntity.ok(response);
+        } catch (Exception e) {
+            log.error("Error scanning into index", e);
+            return error("Error scanning into index: " + e.getMessage());
+        }
+    }
+    
+    @GetMapping("/status")
+    @Operation(summary = "Get index status", description = "Get file, directory and name counts and the memory held by the index")
+    public ResponseEntity<Map<String, Object>> getStatus() {
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", true);
+        response.put("message", "Index status retrieved successfully");
+        response.put("index", compactIndexService.getStatus());
+        
+        return ResponseEntity.ok(response);
+    }
+    
+    @GetMapping("/large-files")
+    @Operation(summary = "Get large files", description = "Get the largest indexed files above a threshold")
+    public ResponseEntity<Map<String, Object>> getLargeFiles(
+            @RequestParam(defaultValue = "104857600") long sizeThreshold, // Default 100MB
+            @RequestParam(defaultValue = "100") int limit) {
+        if (limit < 1 || limit > MAX_LIMIT) {
+            return error("limit must be between 1 and " + MAX_LIMIT);
+        }
+        
+        List<FileInfoDTO> files = compactIndexService.getLargeFiles(sizeThreshold, limit);
+        
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", true);
+        response.put("message", "Large files retrieved successfully");
+        response.put("count", files.size());
+        response.put("files", files);
+        
+        return ResponseEntity.ok(response);
+    }
+    
+    @GetMapping("/statistics")
+    @Operation(summary = "Get index statistics", description = "Get totals, type distribution and large file counts of the index")
+    public ResponseEntity<Map<String, Object>> getStatistics() {
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", true);
+        response.put("message", "Statistics retrieved successfully");
+        response.put("statistics", compactIndexService.getStatistics());
+        
+        return ResponseEntity.ok(response);
+    }
+    
+    @GetMapping("/duplicates")
+    @Operation(summary = "Find duplicate files", description = "Find duplicates among the indexed files by size, partial hash and full content hash")
+    public ResponseEntity<Map<String, Object>> findDuplicates(
+            @RequestParam(required = false) String algorithm, // MD5, SHA-256, XXH64; default app.hash.algorithm
+            @RequestParam(defaultValue = "100") int limit) {
+        if (limit < 1 || limit > MAX_LIMIT) {
+            return error("limit must be between 1 and " + MAX_LIMIT);
+        }
+        
+        try {
+            DuplicateSearchResultDTO result = compactIndexService.findDuplicates(algorithm, limit);
+            
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", true);
+            response.put("message", "Duplicate search completed");
+            response.put("duplicateGroups", result.getGroupCount());
+            response.put("groups", result.getFirstPage().getItems());
+            response.put("reclaimableBytes", result.getReclaimableBytes());
+            response.put("pipeline", result.getPipeline());
+            
+            return ResponseEntity.ok(response);
+        } catch (Exception e) {
+            log.error("Error finding duplicates in index", e);
+            return error("Error finding duplicates: " + e.getMessage());
+        }
+    }
+    
+    @DeleteMapping
+    @Operation(summary = "Clear the index", description = "Drop all indexed files and directories")
+    public ResponseEntity<Map<String, Object>> clear() {
+        compactIndexService.clear();
+        
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", true);
+        response.put("message", "Index cleared");
+        
+        return ResponseEntity.ok(response);
+    }
+    
+    private ResponseEntity<Map<String, Object>> error(String message) {
+        Map<String, Object> errorResponse = new HashMap<>();
+        errorResponse.put("success", false);
+        errorResponse.put("message", message);
+        
+        return ResponseEntity.badRequest().body(errorResponse);
+    }
+}
@@ -1,18 +1,30 @@
 package com.diskmanager.controller;
 
+import com.diskmanager.dto.CursorPageDTO;
+import com.diskmanager.dto.DirectoryNodeDTO;
 import com.diskmanager.dto.DiskStatisticsDTO;
+import com.diskmanager.dto.DuplicateGroupDTO;
+import com.diskmanager.dto.DuplicateSearchResultDTO;
 import com.diskmanager.dto.FileInfoDTO;
 import com.diskmanager.dto.ScanRequestDTO;
+import com.diskmanager.dto.TopUsageDTO;
 import com.diskmanager.service.DiskScannerService;
+import com.diskmanager.service.IndexWatchService;
+import com.diskmanager.service.ScanStreamService;
+import com.diskmanager.util.FileSizeFormatter;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.Sort;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.nio.file.Paths;
 import java.util.HashMap;
-import java.util.List;
 import java.util.Map;
 import java.util.concurrent.CompletableFuture;
 
@@ -26,7 +38,12 @@ import java.util.concurrent.CompletableFuture;
 @Tag(name = "Disk Scanner", description = "APIs for disk scanning and file analysis")
 public class DiskScannerController {
     
+    private static final int MAX_PAGE_SIZE = 1000;
+    
     private final DiskScannerService diskScannerService;
+    private final IndexWatchService indexWatchService;
+    private final ScanStreamService scanStreamService;
+    private final ObjectMapper objectMapper;
     
     @PostMapping("/scan")
     @Operation(summary = "Scan a directory", description = "Recursively scan a directory and analyze files")
@@ -36,12 +53,32 @@ public class DiskScannerController {
         log.info("Received scan request for path: {}", request.getPath());
         
         return diskScannerService.scanDirectory(request)
-                .thenApply(files -> {
+                .thenApply(result -> {
                     Map<String, Object> response = new HashMap<>();
                     response.put("success", true);
                     response.put("message", "Scan completed successfully");
-                    response.put("filesScanned", files.size());
-                    response.put("files", files);
+                    response.put("filesScanned", result.getFilesStored());
+                    response.put("files", result.getFiles());
+                    response.put("changes", Map.of(
+                            "incremental", result.getIncremental(),
+                            "filesAdded", result.getFilesAdded(),
+                            "filesModified", result.getFilesModified(),
+                            "filesDeleted", result.getFilesDeleted(),
+                            "directoriesUnchanged", result.getDirectoriesUnchanged()));
+                    response.put("throughput", Map.of(
+                            "directoriesVisited", result.getDirectoriesVisited(),
+                            "filesVisited", result.getFilesVisited(),
+                            "errors", result.getErrors(),
+                            "elapsedMillis", result.getElapsedMillis(),
+                            "filesPerSecond", result.getFilesPerSecond(),
+                            "parallelism", result.getParallelism(),
+                            "threadMode", result.getThreadMode(),
+                            "attributeReads", result.getAttributeReads(),
+                            "metadataCalls", result.getMetadataCalls(),
+                            "throttledMillis", result.getThrottledMillis()));
+                    if (Boolean.TRUE.equals(request.getWatch())) {
+                        response.put("watch", indexWatchService.watch(request));
+                    }
                     
                     return ResponseEntity.ok(response);
                 })
@@ -55,19 +92,96 @@ public class DiskScannerController {
                 });
     }
     
+    @GetMapping("/scan/stream")
+    @Operation(summary = "Stream a directory scan",
+            description = "Walk a directory and stream files and progress as NDJSON or Server-Sent Events (format=sse), without storing them")
+    public ResponseEntity<StreamingResponseBody> streamScan(
+            @ModelAttribute ScanRequestDTO request,
+            @RequestParam(defaultValue = "ndjson") String format) {
+        log.info("Received streaming scan request for path: {}", request.getPath());
+        
+        try {
+            ScanStreamService.Format streamFormat = ScanStreamService.Format.of(format);
+            StreamingResponseBody body = scanStreamService.stream(request, streamFormat);
+            
+            return ResponseEntity.ok()
+                    .contentType(streamFormat.getMediaType())
+                    .header("Cache-Control", "no-cache")
+                    .header("X-Accel-Buffering", "no")
+                    .body(body);
+        } catch (IllegalArgumentException e) {
+            Map<String, Object> errorResponse = new HashMap<>();
+            errorResponse.put("success", false);
+            errorResponse.put("message", "Error streaming scan: " + e.getMessage());
+            
+            return ResponseEntity.badRequest()
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .body(out -> objectMapper.writeValue(out, errorResponse));
+        }
+    }
+    
+    @GetMapping("/scan/top")
+    @Operation(summary = "Find the largest files and directories",
+            description = "Walk a directory keeping only the largest files and directories in bounded heaps, without storing anything")
+    public ResponseEntity<Map<String, Object>> findTopUsage(
+            @ModelAttribute ScanRequestDTO request,
+            @RequestParam(defaultValue = "size") String sort, // size, rounded
+            @RequestParam(defaultValue = "20") int limit) {
+        log.info("Received top usage request for path: {}", request.getPath());
+        
+        try {
+            checkLimit(limit);
+            TopUsageDTO result = diskScannerService.findTopUsage(request, sort, limit);
+            
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", true);
+            response.put("message", "Largest files and directories found");
+            response.put("root", result.getRoot());
+            response.put("files", result.getFiles());
+            response.put("directories", result.getDirectories());
+            response.put("sort", result.getSort());
+            response.put("throughput", Map.of(
+                    "directoriesVisited", result.getDirectoriesVisited(),
+                    "filesVisited", result.getFilesVisited(),
+                    "errors", result.getErrors(),
+                    "elapsedMillis", result.getElapsedMillis(),
+                    "filesPerSecond", result.getFilesPerSecond(),
+                    "parallelism", result.getParallelism(),
+                    "threadMode", result.getThreadMode(),
+                    "heapOffers", result.getHeapOffers(),
+                    "throttledMillis", result.getThrottledMillis()));
+            
+            return ResponseEntity.ok(response);
+        } catch (Exception e) {
+            log.error("Error finding largest files and directories", e);
+            Map<String, Object> errorResponse = new HashMap<>();
+            errorResponse.put("success", false);
+            errorResponse.put("message", "Error finding largest files and directories: " + e.getMessage());
+            
+            return ResponseEntity.badRequest().body(errorResponse);
+        }
+    }
+    
     @GetMapping("/duplicates")
-    @Operation(summary = "Find duplicate files", description = "Find duplicate files based on MD5 hash")
-    public ResponseEntity<Map<String, Object>> findDuplicates() {
+    @Operation(summary = "Find duplicate files",
+            description = "Find duplicate files by size, partial hash and full content hash; throttle=true hashes within the app.throttle budget")
+    public ResponseEntity<Map<String, Object>> findDuplicates(
+            @RequestParam(required = false) String algorithm, // MD5, SHA-256, XXH64; default app.hash.algorithm
+            @RequestParam(defaultValue = "false") boolean throttle) {
         log.info("Finding duplicate files");
         
         try {
-            List<List<FileInfoDTO>> duplicates = diskScannerService.findDuplicates();
+            DuplicateSearchResultDTO result = diskScannerService.findDuplicates(algorithm, throttle);
             
             Map<String, Object> response = new HashMap<>();
             response.put("success", true);
             response.put("message", "Duplicate search completed");
-            response.put("duplicateGroups", duplicates.size());
-            response.put("duplicates", duplicates);
+            response.put("duplicateGroups", result.getGroupCount());
+            response.put("groups", result.getFirstPage().getItems());
+            response.put("nextCursor", result.getFirstPage().getNextCursor());
+            response.put("reclaimableBytes", result.getReclaimableBytes());
+            response.put("reclaimableBytesFormatted", FileSizeFormatter.formatSize(result.getReclaimableBytes()));
+            response.put("pipeline", result.getPipeline());
             
             return ResponseEntity.ok(response);
         } catch (Exception e) {
@@ -80,21 +194,58 @@ public class DiskScannerController {
         }
     }
     
+    @GetMapping("/duplicates/groups")
+    @Operation(summary = "Get duplicate groups", description = "Page through the groups of the last duplicate search with their files, largest first")
+    public ResponseEntity<Map<String, Object>> getDuplicateGroups(
+            @RequestParam(defaultValue = DiskScannerService.DUPLICATE_SORT_RECLAIMABLE) String sort, // reclaimable, size, count
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "100") int limit) {
+        
+        try {
+            checkLimit(limit);
+            CursorPageDTO<DuplicateGroupDTO> page = diskScannerService.getDuplicateGroups(sort, cursor, limit);
+            long reclaimableBytes = diskScannerService.getReclaimableBytes();
+            
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", true);
+            response.put("message", "Duplicate groups retrieved successfully");
+            response.put("groups", page.getItems());
+            response.put("nextCursor", page.getNextCursor());
+            response.put("reclaimableBytes", reclaimableBytes);
+            response.put("reclaimableBytesFormatted", FileSizeFormatter.formatSize(reclaimableBytes));
+            
+            return ResponseEntity.ok(response);
+        } catch (Exception e) {
+            log.error("Error retrieving duplicate groups", e);
+            Map<String, Object> errorResponse = new HashMap<>();
+            errorResponse.put("success", false);
+            errorResponse.put("message", "Error retrieving duplicate groups: " + e.getMessage());
+            
+            return ResponseEntity.badRequest().body(errorResponse);
+        }
+    }
+    
     @GetMapping("/large-files")
-    @Operation(summary = "Get large files", description = "Get files larger than specified size")
+    @Operation(summary = "Get large files", description = "Page through files larger than specified size, sorted by size")
     public ResponseEntity<Map<String, Object>> getLargeFiles(
-            @RequestParam(defaultValue = "104857600") Long sizeThreshold) { // Default 100MB
+            @RequestParam(defaultValue = "104857600") Long sizeThreshold, // Default 100MB
+            @RequestParam(defaultValue = "desc") String direction,
+            @RequestParam(required = false) String cursor, // nextCursor of the previous page
+            @RequestParam(defaultValue = "100") int limit) {
         
         log.info("Fetching large files with threshold: {} bytes", sizeThreshold);
         
         try {
-            List<FileInfoDTO> largeFiles = diskScannerService.getLargeFiles(sizeThreshold);
+            checkLimit(limit);
+            CursorPageDTO<FileInfoDTO> page = diskScannerService.getLargeFiles(sizeThreshold, cursor, limit,
+                    Sort.Direction.fromString(direction));
             
             Map<String, Object> response = new HashMap<>();
             response.put("success", true);
             response.put("message", "Large files retrieved successfully");
-            response.put("count", largeFiles.size());
-            response.put("files", largeFiles);
+            response.put("count", page.getItems().size());
+            response.put("files", page.getItems());
+            response.put("nextCursor", page.getNextCursor());
             
             return ResponseEntity.ok(response);
         } catch (Exception e) {
@@ -107,6 +258,55 @@ public class DiskScannerController {
         }
     }
     
+    @GetMapping("/tree")
+    @Operation(summary = "Get directory sizes", description = "A scanned directory with the recursive size, block-rounded size and file count of it and of its largest subdirectories")
+    public ResponseEntity<Map<String, Object>> getDirectoryTree(
+            @RequestParam String path,
+            @RequestParam(defaultValue = "size") String sort, // size, rounded, files
+            @RequestParam(defaultValue = "100") int limit) {
+        
+        try {
+            checkLimit(limit);
+            return directoryTreeResponse(diskScannerService.getDirectoryTree(Paths.get(path), sort, limit));
+        } catch (Exception e) {
+            log.error("Error retrieving directory tree", e);
+            return directoryTreeError(e);
+        }
+    }
+    
+    @GetMapping("/tree/{id}")
+    @Operation(summary = "Expand a directory", description = "The largest subdirectories of a directory of the size tree, for lazy expansion")
+    public ResponseEntity<Map<String, Object>> expandDirectoryTree(
+            @PathVariable Long id,
+            @RequestParam(defaultValue = "size") String sort,
+            @RequestParam(defaultValue = "100") int limit) {
+        
+        try {
+            checkLimit(limit);
+            return directoryTreeResponse(diskScannerService.getDirectoryTree(id, sort, limit));
+        } catch (Exception e) {
+            log.error("Error expanding directory {}", id, e);
+            return directoryTreeError(e);
+        }
+    }
+    
+    private static ResponseEntity<Map<String, Object>> directoryTreeResponse(DirectoryNodeDTO node) {
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", true);
+        response.put("message", "Directory tree retrieved successfully");
+        response.put("directory", node);
+        
+        return ResponseEntity.ok(response);
+    }
+    
+    private static ResponseEntity<Map<String, Object>> directoryTreeError(Exception e) {
+        Map<String, Object> errorResponse = new HashMap<>();
+        errorResponse.put("success", false);
+        errorResponse.put("message", "Error retrieving directory tree: " + e.getMessage());
+        
+        return ResponseEntity.badRequest().body(errorResponse);
+    }
+    
     @GetMapping("/statistics")
     @Operation(summary = "Get disk statistics", description = "Get comprehensive disk usage statistics")
     public ResponseEntity<Map<String, Object>> getDiskStatistics() {
@@ -131,6 +331,85 @@ public class DiskScannerController {
         }
     }
     
+    @GetMapping("/hash-cache")
+    @Operation(summary = "Get hash cache statistics", description = "Get hash cache size and hit/miss counters")
+    public ResponseEntity<Map<String, Object>> getHashCacheStatistics() {
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", true);
+        response.put("message", "Hash cache statistics retrieved successfully");
+        response.put("cache", diskScannerService.getHashCacheStatistics());
+        
+        return ResponseEntity.ok(response);
+    }
+    
+    @GetMapping("/io/devices")
+    @Operation(summary = "Get I/O devices", description = "Block devices scans and hashing were routed to, with their read budget, active and waiting reads")
+    public ResponseEntity<Map<String, Object>> getIoDevices() {
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", true);
+        response.put("message", "I/O devices retrieved successfully");
+        response.put("devices", diskScannerService.getIoDevices());
+        
+        return ResponseEntity.ok(response);
+    }
+    
+    @DeleteMapping("/hash-cache")
+    @Operation(summary = "Clear hash cache", description = "Drop all cached content hashes")
+    public ResponseEntity<Map<String, Object>> clearHashCache() {
+        diskScannerService.clearHashCache();
+        
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", true);
+        response.put("message", "Hash cache cleared");
+        
+        return ResponseEntity.ok(response);
+    }
+    
+    @PostMapping("/watch")
+    @Operation(summary = "Watch a scanned directory", description = "Keep the index of a scanned directory current from file system events")
+    public ResponseEntity<Map<String, Object>> watchDirectory(@RequestBody ScanRequestDTO request) {
+        log.info("Watching directory: {}", request.getPath());
+        
+        try {
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", true);
+            response.put("message", "Directory is being watched");
+            response.put("watch", indexWatchService.watch(request));
+            
+            return ResponseEntity.ok(response);
+        } catch (Exception e) {
+            log.error("Error watching directory", e);
+            Map<String, Object> errorResponse = new HashMap<>();
+            errorResponse.put("success", false);
+            errorResponse.put("message", "Error watching directory: " + e.getMessage());
+            
+            return ResponseEntity.badRequest().body(errorResponse);
+        }
+    }
+    
+    @GetMapping("/watch")
+    @Operation(summary = "Get watched directories", description = "List watched directories with their watch mode and event counters")
+    public ResponseEntity<Map<String, Object>> getWatchStatus() {
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", true);
+        response.put("message", "Watch status retrieved successfully");
+        response.put("watches", indexWatchService.getStatus());
+        
+        return ResponseEntity.ok(response);
+    }
+    
+    @DeleteMapping("/watch")
+    @Operation(summary = "Stop watching a directory", description = "Stop keeping the index of a directory current")
+    public ResponseEntity<Map<String, Object>> unwatchDirectory(@RequestParam String path) {
+        indexWatchService.unwatch(Paths.get(path));
+        
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", true);
+        response.put("message", "Stopped watching directory");
+        
+        return ResponseEntity.ok(response);
+    }
+    
     @GetMapping("/health")
     @Operation(summary = "Health check", description = "Check if the disk scanner API is running")
     public ResponseEntity<Map<String, Object>> healthCheck() {
@@ -141,4 +420,10 @@ public class DiskScannerController {
         
         return ResponseEntity.ok(response);
     }
+    
+    private static void checkLimit(int limit) {
+        if (limit < 1 || limit > MAX_PAGE_SIZE) {
+            throw new IllegalArgumentException("limit must be between 1 and " + MAX_PAGE_SIZE);
+        }
+    }
 }
@@ -0,0 +1,183 @@
+package com.diskmanager.controller;
+
+import com.diskmanager.dto.FileInfoDTO;
+import com.diskmanager.dto.RecordingDTO;
+import com.diskmanager.dto.ScanJobDTO;
+import com.diskmanager.dto.ScanRequestDTO;
+import com.diskmanager.dto.ScanResultDTO;
+import com.diskmanager.service.ScanJobService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * REST Controller for background scan jobs
+ */
+@RestController
+@RequestMapping("/api/disk/jobs")
+@RequiredArgsConstructor
+@Slf4j
+@Tag(name = "Scan Jobs", description = "APIs for running scans in the background")
+public class ScanJobController {
+    
+    private static final int MAX_PAGE_SIZE = 1000;
+    
+    private final ScanJobService scanJobService;
+    
+    @PostMapping
+    @Operation(summary = "Submit a scan job", description = "Queue a directory scan and return its job ID immediately")
+    public ResponseEntity<Map<String, Object>> submitJob(@RequestBody ScanRequestDTO request) {
+        log.info("Received scan job for path: {}", request.getPath());
+        
+        try {
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", true);
+            response.put("message", "Scan job queued");
+            response.put("job", scanJobService.submit(request));
+            
+            return ResponseEntity.status(HttpStatus.ACCEPTED).body(response);
+        } catch (Exception e) {
+            log.error("Error submitting scan job", e);
+            return error("Error submitting scan job: " + e.getMessage());
+        }
+    }
+    
+    @GetMapping
+    @Operation(summary = "List scan jobs", description = "List queued, running and recently finished scan jobs")
+    public ResponseEntity<Map<String, Object>> getJobs() {
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", true);
+        response.put("message", "Scan jobs retrieved successfully");
+        response.put("jobs", scanJobService.getJobs());
+        
+        return ResponseEntity.ok(response);
+    }
+    
+    @GetMapping("/{id}")
+    @Operation(summary = "Get scan job progress", description = "Get status, progress counters and ETA of a scan job")
+    public ResponseEntity<Map<String, Object>> getJob(@PathVariable String id) {
+        return withJob(id, scanJobService.getJob(id), "Scan job retrieved successfully");
+    }
+    
+    @DeleteMapping("/{id}")
+    @Operation(summary = "Cancel a scan job", description = "Stop a queued or running scan; nothing is stored for a cancelled scan")
+    public ResponseEntity<Map<String, Object>> cancelJob(@PathVariable String id) {
+        return withJob(id, scanJobService.cancel(id), "Cancellation requested");
+    }
+    
+    @GetMapping("/{id}/results")
+    @Operation(summary = "Get scan job results", description = "Get one page of the files stored below the path of a completed scan job")
+    public ResponseEntity<Map<String, Object>> getResults(
+            @PathVariable String id,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "1000") int size) {
+        if (page < 0 || size < 1 || size > MAX_PAGE_SIZE) {
+            return error("page must be >= 0 and size between 1 and " + MAX_PAGE_SIZE);
+        }
+        
+        try {
+            Optional<List<FileInfoDTO>> files = scanJobService.getResults(id, page, size);
+            if (files.isEmpty()) {
+                return notFound(id);
+            }
+            ScanResultDTO result = scanJobService.getResult(id).orElseThrow();
+            
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", true);
+            response.put("message", "Scan job results retrieved successfully");
+            response.put("page", page);
+            response.put("size", size);
+            response.put("totalFiles", scanJobService.countResults(id));
+            response.put("files", files.get());
+            response.put("changes", Map.of(
+                    "incremental", result.getIncremental(),
+                    "filesAdded", result.getFilesAdded(),
+                    "filesModified", result.getFilesModified(),
+                    "filesDeleted", result.getFilesDeleted(),
+                    "directoriesUnchanged", result.getDirectoriesUnchanged()));
+            
+            return ResponseEntity.ok(response);
+        } catch (IllegalStateException e) {
+            return error(e.getMessage());
+        }
+    }
+    
+    @PostMapping("/{id}/recording")
+    @Operation(summary = "Record a scan job", description = "Start a bounded flight recording of slow directory listings, file hashes, persistence batches and duplicate grouping passes; it stops when the job finishes")
+    public ResponseEntity<Map<String, Object>> startRecording(
+            @PathVariable String id,
+            @RequestParam(required = false) Long durationMillis) {
+        try {
+            return withRecording(id, scanJobService.startRecording(id, durationMillis), "Recording started");
+        } catch (Exception e) {
+            log.error("Error starting recording of scan job {}", id, e);
+            return error("Error starting recording: " + e.getMessage());
+        }
+    }
+    
+    @GetMapping("/{id}/recording")
+    @Operation(summary = "Get the recording of a scan job", description = "State and file of the flight recording of a scan job")
+    public ResponseEntity<Map<String, Object>> getRecording(@PathVariable String id) {
+        return withRecording(id, scanJobService.getRecording(id), "Recording retrieved successfully");
+    }
+    
+    @DeleteMapping("/{id}/recording")
+    @Operation(summary = "Stop recording a scan job", description = "Stop the flight recording of a scan job and write it to its .jfr file")
+    public ResponseEntity<Map<String, Object>> stopRecording(@PathVariable String id) {
+        return withRecording(id, scanJobService.stopRecording(id), "Recording stopped");
+    }
+    
+    private ResponseEntity<Map<String, Object>> withRecording(String id, Optional<RecordingDTO> recording,
+                                                              String message) {
+        if (recording.isEmpty()) {
+            Map<String, Object> errorResponse = new HashMap<>();
+            errorResponse.put("success", false);
+            errorResponse.put("message", "No recording of scan job: " + id);
+            
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(errorResponse);
+        }
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", true);
+        response.put("message", message);
+        response.put("recording", recording.get());
+        
+        return ResponseEntity.ok(response);
+    }
+    
+    private ResponseEntity<Map<String, Object>> withJob(String id, Optional<ScanJobDTO> job, String message) {
+        if (job.isEmpty()) {
+            return notFound(id);
+        }
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", true);
+        response.put("message", message);
+        response.put("job", job.get());
+        
+        return ResponseEntity.ok(response);
+    }
+    
+    private ResponseEntity<Map<String, Object>> notFound(String id) {
+        Map<String, Object> errorResponse = new HashMap<>();
+        errorResponse.put("success", false);
+        errorResponse.put("message", "Scan job not found: " + id);
+        
+        return ResponseEntity.status(HttpStatus.NOT_FOUND).body(errorResponse);
+    }
+    
+    private ResponseEntity<Map<String, Object>> error(String message) {
+        Map<String, Object> errorResponse = new HashMap<>();
+        errorResponse.put("success", false);
+        errorResponse.put("message", message);
+        
+        return ResponseEntity.badRequest().body(errorResponse);
+    }
+}
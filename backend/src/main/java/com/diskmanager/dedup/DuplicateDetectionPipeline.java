@@ -0,0 +1,305 @@
+package com.diskmanager.dedup;
+
+import com.diskmanager.hash.ContentHasher;
+import com.diskmanager.hash.FileDigester;
+import com.diskmanager.hash.FileIdentity;
+import com.diskmanager.hash.HashCache;
+import com.diskmanager.io.AdaptiveThrottle;
+import com.diskmanager.io.DeviceIoScheduler;
+import com.diskmanager.jfr.DuplicateGroupingEvent;
+import com.diskmanager.jfr.FileHashedEvent;
+import com.diskmanager.metrics.ScanMetrics;
+import com.diskmanager.model.FileInfo;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+import java.util.function.LongConsumer;
+
+/**
+ * Staged duplicate detection: size, then partial (head/tail) hash, then full content hash.
+ * Each stage only looks at the collisions of the previous one, so files with a unique size
+ * are never read and files with a unique head/tail are never read in full.
+ * Both hash stages consult the {@link HashCache} first, so unchanged files are not read at all.
+ * The files of a stage are hashed concurrently, as many per device as its read budget allows.
+ * A throttled run charges every chunk it reads to its bytes-per-second budget and gives up the
+ * device permit while it waits for the budget, so other reads of the device are not held up.
+ * A file that changed since it was scanned, or cannot be hashed, loses the content hash it was
+ * scanned with, so a stale hash never groups it with the files of its old content.
+ */
+@Slf4j
+public class DuplicateDetectionPipeline {
+    
+    private final ContentHasher hasher;
+    private final int chunkSize;
+    private final long partialCoverage;
+    private final HashCache hashCache;
+    private final String partialKind;
+    private final DeviceIoScheduler ioScheduler;
+    private final AdaptiveThrottle throttle;
+    private final ScanMetrics metrics;
+    private final Map<FileInfo, FileIdentity> identities = Collections.synchronizedMap(new IdentityHashMap<>());
+    private final DuplicateDetectionStatistics statistics = new DuplicateDetectionStatistics();
+    
+    /**
+     * @param hasher algorithm used for both the partial and the full hash
+     * @param chunkSize bytes hashed from each end of a file in the partial stage; files up to
+     *                  two chunks are read completely and their partial hash is used as the full hash
+     * @param hashCache cache consulted before any file is read
+     * @param ioScheduler runs the reads on the device of each file
+     * @param throttle hashing budget, null to read as fast as the devices allow
+     * @param metrics receives the bytes and time of every file read
+     */
+    public DuplicateDetectionPipeline(ContentHasher hasher, int chunkSize, HashCache hashCache,
+                                      DeviceIoScheduler ioScheduler, AdaptiveThrottle throttle, ScanMetrics metrics) {
+        this.hasher = hasher;
+        this.chunkSize = chunkSize;
+        this.partialCoverage = 2L * chunkSize;
+        this.hashCache = hashCache;
+        this.ioScheduler = ioScheduler;
+        this.throttle = throttle;
+        this.metrics = metrics;
+        this.partialKind = hasher.getAlgorithm() + "/head-tail-" + chunkSize;
+        statistics.setAlgorithm(hasher.getAlgorithm());
+    }
+    
+    public DuplicateDetectionStatistics getStatistics() {
+        return statistics;
+    }
+    
+    /**
+     * Run all stages over the given files
+     * @param files candidate files, typically those sharing their size with another file
+     * @return groups of two or more files with identical content; members get their full hash set
+     */
+    public List<List<FileInfo>> detect(List<FileInfo> files) {
+        statistics.setCandidates(files.size());
+        
+        // Stage 1: size
+        DuplicateGroupingEvent sizePass = new DuplicateGroupingEvent();
+        sizePass.begin();
+        List<List<FileInfo>> sizeGroups = collisions(groupBy(files, FileInfo::getFileSize));
+        statistics.setSizeCollisions(countFiles(sizeGroups));
+        sizePass.finish(DuplicateGroupingEvent.SIZE, hasher.getAlgorithm(), files.size(), sizeGroups.size());
+        
+        // Stage 2: head/tail hash
+        DuplicateGroupingEvent partialPass = new DuplicateGroupingEvent();
+        partialPass.begin();
+        Map<FileInfo, String> partialHashes = hashAll(sizeGroups, true);
+        List<List<FileInfo>> partialGroups = new ArrayList<>();
+        for (List<FileInfo> group : sizeGroups) {
+            Map<String, List<FileInfo>> byPartialHash = new LinkedHashMap<>();
+            for (FileInfo file : group) {
+                String partialHash = partialHashes.get(file);
+                if (partialHash != null) {
+                    byPartialHash.computeIfAbsent(partialHash, k -> new ArrayList<>()).add(file);
+                }
+            }
+            partialGroups.addAll(collisions(byPartialHash));
+        }
+        statistics.setPartialHashCollisions(countFiles(partialGroups));
+        partialPass.finish(DuplicateGroupingEvent.HEAD_TAIL, hasher.getAlgorithm(), statistics.getSizeCollisions(),
+                partialGroups.size());
+        
+        // Stage 3: full hash, skipped where the partial hash already read the whole file
+        DuplicateGroupingEvent fullPass = new DuplicateGroupingEvent();
+        fullPass.begin();
+        Map<FileInfo, String> fullHashes = hashAll(partialGroups, false);
+        List<List<FileInfo>> duplicateGroups = new ArrayList<>();
+        for (List<FileInfo> group : partialGroups) {
+            Map<String, List<FileInfo>> byFullHash = new LinkedHashMap<>();
+            for (FileInfo file : group) {
+                String fullHash = file.getFileSize() <= partialCoverage ?
+                        file.getContentHash() : fullHashes.get(file);
+                if (fullHash != null) {
+                    file.setContentHash(fullHash);
+                    file.setHashAlgorithm(hasher.getAlgorithm());
+                    byFullHash.computeIfAbsent(fullHash, k -> new ArrayList<>()).add(file);
+                }
+            }
+            duplicateGroups.addAll(collisions(byFullHash));
+        }
+        statistics.setDuplicateGroups(duplicateGroups.size());
+        statistics.setDuplicateFiles(countFiles(duplicateGroups));
+        fullPass.finish(DuplicateGroupingEvent.FULL, hasher.getAlgorithm(), statistics.getPartialHashCollisions(),
+                duplicateGroups.size());
+        
+        log.info("Duplicate pipeline: {} candidates, {} size collisions, {} partial collisions, {} groups; " +
+                        "hashed {} bytes partially and {} bytes fully, {} cache hits",
+                statistics.getCandidates(), statistics.getSizeCollisions(),
+                statistics.getPartialHashCollisions(), statistics.getDuplicateGroups(),
+                statistics.getPartialBytesHashed(), statistics.getFullBytesHashed(), statistics.getCacheHits());
+        if (throttle != null) {
+            statistics.setThrottledMillis(throttle.getThrottledMillis());
+            log.info("Duplicate pipeline waited {} ms for its hashing budget, ending at {}% of it",
+                    throttle.getThrottledMillis(), Math.round(throttle.getShare() * 100));
+        }
+        
+        return duplicateGroups;
+    }
+    
+    /**
+     * Hash the files of all groups that need it, queued on the device of each file
+     * @return hash per file, missing where the file could not be read
+     */
+    private Map<FileInfo, String> hashAll(List<List<FileInfo>> groups, boolean partial) {
+        Map<FileInfo, CompletableFuture<String>> pending = new IdentityHashMap<>();
+        for (List<FileInfo> group : groups) {
+            for (FileInfo file : group) {
+                if (!partial && file.getFileSize() <= partialCoverage) {
+                    continue;
+                }
+                Path path;
+                try {
+                    path = Paths.get(file.getFilePath());
+                } catch (InvalidPathException e) {
+                    statistics.addError();
+                    log.warn("Failed to hash {}: {}", file.getFilePath(), e.getMessage());
+                    forgetHash(file);
+                    continue;
+                }
+                pending.put(file, ioScheduler.submit(path, () -> hash(file, path, partial)));
+            }
+        }
+        Map<FileInfo, String> hashes = new IdentityHashMap<>();
+        pending.forEach((file, hash) -> {
+            String value = hash.join();
+            if (value != null) {
+                hashes.put(file, value);
+            }
+        });
+        return hashes;
+    }
+    
+    private String hash(FileInfo file, Path path, boolean partial) {
+        try {
+            long size = file.getFileSize();
+            FileIdentity identity = identify(file, path);
+            if (changedSinceScan(file, identity)) {
+                statistics.addError();
+                log.debug("Skipping {}, changed since the scan", path);
+                forgetHash(file);
+                return null;
+            }
+            
+            // A partial hash of a small file covers all of it and is shared with the full hash
+            boolean whole = size <= partialCoverage;
+            String kind = partial && !whole ? partialKind : hasher.getAlgorithm();
+            String hash = hashCache.get(kind, identity);
+            if (hash != null) {
+                statistics.addCacheHit();
+            } else {
+                long read = partial ? Math.min(size, partialCoverage) : size;
+                long[] waitedNanos = new long[1];
+                LongConsumer budget = throttle == null ? null : bytes -> throttle.acquireBytes(bytes, wait -> {
+                    long waitStarted = System.nanoTime();
+                    ioScheduler.releaseWhile(path, wait);
+                    waitedNanos[0] += System.nanoTime() - waitStarted;
+                });
+                FileHashedEvent event = new FileHashedEvent();
+                event.begin();
+                long started = System.nanoTime();
+                try {
+                    hash = partial ? FileDigester.digestHeadTail(path, size, chunkSize, hasher, budget) :
+                            FileDigester.digest(path, hasher, budget);
+                } finally {
+                    event.finish(path, hasher.getAlgorithm(), read, partial && !whole, hash == null, waitedNanos[0]);
+                }
+                metrics.hashed(hasher.getAlgorithm(), read, System.nanoTime() - started - waitedNanos[0]);
+                hashCache.put(kind, identity, hash);
+                if (partial) {
+                    statistics.addPartialBytesHashed(read);
+                } else {
+                    statistics.addFullBytesHashed(read);
+                }
+            }
+            if (partial && whole) {
+                // The partial hash read the whole file, keep it as the full hash
+                file.setContentHash(hash);
+                file.setHashAlgorithm(hasher.getAlgorithm());
+            }
+            return hash;
+        } catch (IOException | RuntimeException e) {
+            statistics.addError();
+            log.warn("Failed to hash {}: {}", file.getFilePath(), e.getMessage());
+            forgetHash(file);
+            return null;
+        }
+    }
+    
+    /**
+     * Whether size or modification time differ from the scan. Times are compared in milliseconds,
+     * the precision the compact index keeps.
+     */
+    private static boolean changedSinceScan(FileInfo file, FileIdentity identity) {
+        if (identity.getSize() != file.getFileSize()) {
+            return true;
+        }
+        if (file.getLastModified() == null) {
+            return false;
+        }
+        LocalDateTime modified = LocalDateTime.ofInstant(Instant.EPOCH.plus(identity.getLastModifiedMicros(),
+                ChronoUnit.MICROS), ZoneId.systemDefault());
+        return !modified.truncatedTo(ChronoUnit.MILLIS).equals(file.getLastModified().truncatedTo(ChronoUnit.MILLIS));
+    }
+    
+    /**
+     * Drop the hash a file was scanned with once it cannot be confirmed
+     */
+    private static void forgetHash(FileInfo file) {
+        file.setContentHash(null);
+        file.setHashAlgorithm(null);
+    }
+    
+    /**
+     * Stat a file once per run, the identity is reused by later stages
+     */
+    private FileIdentity identify(FileInfo file, Path path) throws IOException {
+        FileIdentity identity = identities.get(file);
+        if (identity == null) {
+            identity = FileIdentity.read(path);
+            identities.put(file, identity);
+        }
+        return identity;
+    }
+    
+    private static <K> Map<K, List<FileInfo>> groupBy(List<FileInfo> files, Function<FileInfo, K> key) {
+        Map<K, List<FileInfo>> groups = new LinkedHashMap<>();
+        for (FileInfo file : files) {
+            groups.computeIfAbsent(key.apply(file), k -> new ArrayList<>()).add(file);
+        }
+        return groups;
+    }
+    
+    private static <K> List<List<FileInfo>> collisions(Map<K, List<FileInfo>> groups) {
+        List<List<FileInfo>> result = new ArrayList<>();
+        for (List<FileInfo> group : groups.values()) {
+            if (group.size() > 1) {
+                result.add(group);
+            }
+        }
+        return result;
+    }
+    
+    private static long countFiles(List<List<FileInfo>> groups) {
+        long count = 0;
+        for (List<FileInfo> group : groups) {
+            count += group.size();
+        }
+        return count;
+    }
+}
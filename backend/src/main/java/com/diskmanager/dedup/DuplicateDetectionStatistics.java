@@ -0,0 +1,37 @@
+package com.diskmanager.dedup;
+
+import lombok.Data;
+
+/**
+ * Per-stage counters of a duplicate detection run
+ */
+@Data
+public class DuplicateDetectionStatistics {
+    private String algorithm;
+    private long candidates;
+    private long sizeCollisions;
+    private long partialHashCollisions;
+    private long duplicateGroups;
+    private long duplicateFiles;
+    private long partialBytesHashed;
+    private long fullBytesHashed;
+    private long cacheHits;
+    private long errors;
+    private long throttledMillis; // waited for the hashing budget of a throttled run
+    
+    public synchronized void addPartialBytesHashed(long bytes) {
+        partialBytesHashed += bytes;
+    }
+    
+    public synchronized void addFullBytesHashed(long bytes) {
+        fullBytesHashed += bytes;
+    }
+    
+    public synchronized void addCacheHit() {
+        cacheHits++;
+    }
+    
+    public synchronized void addError() {
+        errors++;
+    }
+}
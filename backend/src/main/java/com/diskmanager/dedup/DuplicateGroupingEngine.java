@@ -0,0 +1,58 @@
+package com.diskmanager.dedup;
+
+import com.diskmanager.jfr.DuplicateGroupingEvent;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * Rebuilds duplicate groups from stored content hashes with set-based statements:
+ * one grouped insert into duplicate_groups and one bulk update of the file marks.
+ * Callers run {@link #regroup} in a transaction.
+ */
+@Component
+public class DuplicateGroupingEngine {
+    
+    private static final String CLEAR_MARKS = "UPDATE files SET is_duplicate = FALSE, duplicate_group_id = NULL " +
+            "WHERE is_duplicate = TRUE OR duplicate_group_id IS NOT NULL";
+    
+    private static final String DELETE_GROUPS = "DELETE FROM duplicate_groups";
+    
+    // Size is part of the key so that a hash collision between different sizes never groups files
+    private static final String INSERT_GROUPS = "INSERT INTO duplicate_groups " +
+            "(id, content_hash, hash_algorithm, file_size, file_count, reclaimable_bytes, created_at) " +
+            "SELECT ROW_NUMBER() OVER (ORDER BY file_size * (COUNT(*) - 1) DESC, content_hash), " +
+            "content_hash, hash_algorithm, file_size, COUNT(*), file_size * (COUNT(*) - 1), CURRENT_TIMESTAMP " +
+            "FROM files WHERE hash_algorithm = ? AND content_hash IS NOT NULL AND file_size > 0 " +
+            "GROUP BY content_hash, hash_algorithm, file_size HAVING COUNT(*) > 1";
+    
+    private static final String MARK_FILES = "UPDATE files f SET is_duplicate = TRUE, duplicate_group_id = " +
+            "(SELECT g.id FROM duplicate_groups g WHERE g.content_hash = f.content_hash " +
+            "AND g.hash_algorithm = f.hash_algorithm AND g.file_size = f.file_size) " +
+            "WHERE f.hash_algorithm = ? AND EXISTS (SELECT 1 FROM duplicate_groups g " +
+            "WHERE g.content_hash = f.content_hash AND g.hash_algorithm = f.hash_algorithm " +
+            "AND g.file_size = f.file_size)";
+    
+    private final JdbcTemplate jdbcTemplate;
+    
+    public DuplicateGroupingEngine(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+    
+    /**
+     * Replace all groups with the groups of files sharing size and content hash
+     * @param algorithm only hashes of this algorithm are compared
+     * @return number of groups
+     */
+    public int regroup(String algorithm) {
+        DuplicateGroupingEvent event = new DuplicateGroupingEvent();
+        event.begin();
+        jdbcTemplate.update(CLEAR_MARKS);
+        jdbcTemplate.update(DELETE_GROUPS);
+        int groups = jdbcTemplate.update(INSERT_GROUPS, algorithm);
+        if (groups > 0) {
+            jdbcTemplate.update(MARK_FILES, algorithm);
+        }
+        event.finish(DuplicateGroupingEvent.DATABASE, algorithm, -1, groups);
+        return groups;
+    }
+}
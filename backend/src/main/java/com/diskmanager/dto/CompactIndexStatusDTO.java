@@ -0,0 +1,21 @@
+package com.diskmanager.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * DTO for size and memory footprint of the compact in-memory index
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CompactIndexStatusDTO {
+    private Boolean offHeap;
+    private Long files;
+    private Long directories;
+    private Long names; // distinct interned names
+    private Long memoryBytes;
+    private String memoryFormatted;
+    private Double bytesPerFile;
+}
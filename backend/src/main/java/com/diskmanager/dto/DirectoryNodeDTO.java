@@ -0,0 +1,27 @@
+package com.diskmanager.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * DTO for a directory of the size tree with the rollups of everything below it
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class DirectoryNodeDTO {
+    private Long id;
+    private String name;
+    private String path;
+    private Long totalFiles;
+    private Long totalSize;
+    private String totalSizeFormatted;
+    private Long roundedSize;
+    private String roundedSizeFormatted;
+    private Long totalDirectories;
+    private List<DirectoryNodeDTO> children; // largest first, null when not expanded
+    private Boolean moreChildren; // children were cut off at the requested limit
+}
@@ -0,0 +1,25 @@
+package com.diskmanager.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * DTO for a duplicate group and its files
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class DuplicateGroupDTO {
+    private Long id;
+    private String contentHash;
+    private String hashAlgorithm;
+    private Long fileSize;
+    private String fileSizeFormatted;
+    private Long fileCount;
+    private Long reclaimableBytes;
+    private String reclaimableBytesFormatted;
+    private List<FileInfoDTO> files; // ordered by path
+}
@@ -0,0 +1,21 @@
+package com.diskmanager.dto;
+
+import com.diskmanager.dedup.DuplicateDetectionStatistics;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * DTO for the first page of duplicate groups together with per-stage pipeline counters
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class DuplicateSearchResultDTO {
+    private Long groupCount;
+    private Long reclaimableBytes; // freed by keeping one copy of every group
+    private CursorPageDTO<DuplicateGroupDTO> firstPage;
+    private DuplicateDetectionStatistics pipeline;
+}
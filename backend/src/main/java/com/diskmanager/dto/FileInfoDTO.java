@@ -16,7 +16,8 @@ public class FileInfoDTO {
     private String filePath;
     private Long fileSize;
     private String fileSizeFormatted;
-    private String md5Hash;
+    private String contentHash;
+    private String hashAlgorithm;
     private String fileExtension;
     private String fileType;
     private String lastModified;
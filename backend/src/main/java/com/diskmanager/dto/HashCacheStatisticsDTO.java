@@ -0,0 +1,21 @@
+package com.diskmanager.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * DTO for hash cache size and hit/miss counters
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class HashCacheStatisticsDTO {
+    private Boolean enabled;
+    private Integer entries;
+    private Integer maxEntries;
+    private Long hits;
+    private Long misses;
+    private Long evictions;
+    private Double hitRatio;
+}
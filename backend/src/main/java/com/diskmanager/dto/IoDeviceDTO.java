@@ -0,0 +1,25 @@
+package com.diskmanager.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * DTO for a block device with its budget of concurrent reads and its current load
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class IoDeviceDTO {
+    private String device; // major:minor from the mount table
+    private String source;
+    private String fileSystem;
+    private List<String> mountPoints; // those paths were mapped to so far
+    private Boolean rotational; // null when the medium is unknown
+    private Integer concurrency;
+    private Integer active;
+    private Integer waiting; // walker threads and queued hashing tasks
+    private Long completed;
+}
@@ -0,0 +1,19 @@
+package com.diskmanager.dto;
+
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+/**
+ * DTO for a flight recording of a scan job
+ */
+@Data
+public class RecordingDTO {
+    private String jobId;
+    private String state; // RUNNING, or STOPPED once the file was written
+    private String file;
+    private LocalDateTime startedAt;
+    private Long maxDurationMillis;
+    private Long maxSizeBytes;
+    private Long sizeBytes; // of the written file
+}
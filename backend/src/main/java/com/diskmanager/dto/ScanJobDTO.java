@@ -0,0 +1,35 @@
+package com.diskmanager.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * DTO for the status and progress of a scan job
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ScanJobDTO {
+    private String id;
+    private String path;
+    private String status; // QUEUED, RUNNING, COMPLETED, FAILED, CANCELLED
+    private String phase; // WALKING, CANCELLING or SAVING while running
+    private String message;
+    private LocalDateTime submittedAt;
+    private LocalDateTime startedAt;
+    private LocalDateTime finishedAt;
+    private Long directoriesVisited;
+    private Long filesVisited;
+    private Long filesMatched;
+    private Long bytesMatched;
+    private String bytesMatchedFormatted;
+    private Long errors;
+    private Long elapsedMillis;
+    private Double filesPerSecond;
+    private Long expectedFiles; // from the previous scan of the path, null if it was never scanned
+    private Double percentComplete; // estimate, null without expected files
+    private Long etaMillis; // estimate, null without expected files
+}
@@ -17,4 +17,10 @@ public class ScanRequestDTO {
     private Boolean includeHidden = false;
     private Integer maxDepth = 10;
     private List<String> fileExtensions; // null means all extensions
+    private Integer parallelism; // null uses app.scanner.parallelism, 1 walks on a single thread
+    private String threadMode; // platform or virtual (Java 21), null uses app.scanner.threads
+    private Boolean incremental = false; // only store changes since the previous scan of this path
+    private Boolean trustDirectoryMtime = false; // incremental: skip files in directories with unchanged mtime
+    private Boolean throttle = false; // stay within app.throttle budgets, backing off while the device is busy
+    private Boolean watch = false; // keep the index current from file system events after the scan
 }
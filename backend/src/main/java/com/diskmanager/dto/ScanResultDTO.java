@@ -0,0 +1,33 @@
+package com.diskmanager.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * DTO for scan results together with walk throughput
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ScanResultDTO {
+    private List<FileInfoDTO> files; // stored files, at most app.scan.result-limit
+    private Long filesStored; // files written by the scan
+    private Long directoriesVisited;
+    private Long filesVisited;
+    private Long errors;
+    private Long elapsedMillis;
+    private Double filesPerSecond;
+    private Integer parallelism;
+    private String threadMode; // threads the walk ran on, platform when virtual threads are unavailable
+    private Long attributeReads;
+    private Long metadataCalls; // directory listings plus attribute reads
+    private Long throttledMillis; // waited for the metadata budget of a throttled scan
+    private Boolean incremental;
+    private Long filesAdded;
+    private Long filesModified;
+    private Long filesDeleted;
+    private Long directoriesUnchanged; // listings reused from the previous scan
+}
@@ -0,0 +1,29 @@
+package com.diskmanager.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * DTO for the largest files and directories of a walk that stored nothing
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class TopUsageDTO {
+    private DirectoryNodeDTO root; // rollup of the whole walked tree
+    private List<FileInfoDTO> files; // largest first
+    private List<DirectoryNodeDTO> directories; // largest first, the root excluded
+    private String sort;
+    private Long directoriesVisited;
+    private Long filesVisited;
+    private Long errors;
+    private Long elapsedMillis;
+    private Double filesPerSecond;
+    private Integer parallelism;
+    private String threadMode;
+    private Long heapOffers;
+    private Long throttledMillis; // files and directories that got past the heap threshold
+}
@@ -0,0 +1,19 @@
+package com.diskmanager.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * DTO for the live index state of a watched directory tree
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class WatchStatusDTO {
+    private String path;
+    private String mode; // WATCHING or POLLING after the watch limit was reached
+    private Long watchedDirectories;
+    private Long eventsReceived;
+    private Long batchesApplied;
+}
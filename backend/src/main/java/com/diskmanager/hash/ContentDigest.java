@@ -0,0 +1,28 @@
+package com.diskmanager.hash;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Incremental hash computation created by a {@link ContentHasher}.
+ * Instances are reusable: {@link #finish()} and {@link #reset()} return them to the initial state.
+ */
+public interface ContentDigest {
+    
+    void update(byte[] buffer, int offset, int length);
+    
+    /**
+     * Consume the remaining bytes of a heap, direct or mapped buffer
+     */
+    void update(ByteBuffer buffer);
+    
+    /**
+     * Complete the computation and reset for the next one
+     * @return hash as lower-case hex string
+     */
+    String finish();
+    
+    /**
+     * Discard a partial computation
+     */
+    void reset();
+}
@@ -0,0 +1,29 @@
+package com.diskmanager.hash;
+
+/**
+ * Service provider interface for content hash algorithms.
+ * Implementations are Spring beans collected by {@link ContentHasherRegistry};
+ * adding a new algorithm only requires another {@code @Component} implementing this interface.
+ */
+public interface ContentHasher {
+    
+    /**
+     * Algorithm name stored next to every hash, e.g. "MD5"
+     */
+    String getAlgorithm();
+    
+    /**
+     * Length of the hex encoded hash
+     */
+    int getHashLength();
+    
+    /**
+     * Whether the hash is collision resistant against crafted input
+     */
+    boolean isCryptographic();
+    
+    /**
+     * Start a new hash computation
+     */
+    ContentDigest newDigest();
+}
@@ -0,0 +1,59 @@
+package com.diskmanager.hash;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Looks up content hashers by algorithm name
+ */
+@Component
+public class ContentHasherRegistry {
+    
+    private final Map<String, ContentHasher> hashers = new LinkedHashMap<>();
+    private final String defaultAlgorithm;
+    
+    public ContentHasherRegistry(List<ContentHasher> hashers,
+                                 @Value("${app.hash.algorithm:MD5}") String defaultAlgorithm) {
+        for (ContentHasher hasher : hashers) {
+            this.hashers.put(normalize(hasher.getAlgorithm()), hasher);
+        }
+        this.defaultAlgorithm = defaultAlgorithm;
+        get(defaultAlgorithm); // fail fast on a misconfigured default
+    }
+    
+    /**
+     * Get the hasher for an algorithm name, case-insensitive
+     * @param algorithm algorithm name, null for the configured default
+     * @throws IllegalArgumentException if the algorithm is unknown
+     */
+    public ContentHasher get(String algorithm) {
+        if (algorithm == null || algorithm.isBlank()) {
+            algorithm = defaultAlgorithm;
+        }
+        ContentHasher hasher = hashers.get(normalize(algorithm));
+        if (hasher == null) {
+            throw new IllegalArgumentException("Unsupported hash algorithm: " + algorithm +
+                    ", supported: " + hashers.values().stream().map(ContentHasher::getAlgorithm).toList());
+        }
+        return hasher;
+    }
+    
+    public ContentHasher getDefault() {
+        return get(defaultAlgorithm);
+    }
+    
+    public Collection<ContentHasher> getAll() {
+        return Collections.unmodifiableCollection(hashers.values());
+    }
+    
+    private static String normalize(String algorithm) {
+        return algorithm.replace("-", "").toUpperCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,155 @@
+package com.diskmanager.hash;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.function.LongConsumer;
+
+/**
+ * File I/O for content hashing.
+ * Reads through a {@link FileChannel} straight into pooled direct buffers with positional reads,
+ * whatever the file size, and reuses one digest per algorithm and thread, so hashing a file does
+ * not allocate anything proportional to its size. Files are not memory-mapped: mappings are only
+ * released when their buffer is garbage collected, so hashing large files would pile them up.
+ */
+public class FileDigester {
+    
+    private static final int BUFFER_SIZE = 256 * 1024;
+    private static final int POOL_SIZE = 64;
+    
+    private static final BlockingQueue<ByteBuffer> BUFFER_POOL = new ArrayBlockingQueue<>(POOL_SIZE);
+    private static final ThreadLocal<Map<ContentHasher, ContentDigest>> DIGESTS =
+            ThreadLocal.withInitial(IdentityHashMap::new);
+    
+    private FileDigester() {
+    }
+    
+    /**
+     * Hash the complete content of a file
+     * @param file file to read
+     * @param hasher algorithm to use
+     * @return hash as hex string
+     */
+    public static String digest(Path file, ContentHasher hasher) throws IOException {
+        return digest(file, hasher, null);
+    }
+    
+    /**
+     * Hash the complete content of a file, announcing every read before it is issued
+     * @param beforeRead called with the size of each read, e.g. to charge a budget; null for none
+     */
+    public static String digest(Path file, ContentHasher hasher, LongConsumer beforeRead) throws IOException {
+        ContentDigest digest = digestFor(hasher);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            update(channel, 0, Long.MAX_VALUE, digest, beforeRead);
+            return digest.finish();
+        } catch (IOException | RuntimeException e) {
+            digest.reset();
+            throw e;
+        }
+    }
+    
+    /**
+     * Hash the first and last chunk of a file.
+     * Files no larger than two chunks are hashed completely, so the result equals {@link #digest}.
+     * @param file file to read
+     * @param fileSize size of the file
+     * @param chunkSize bytes read from each end
+     * @param hasher algorithm to use
+     * @return hash as hex string
+     */
+    public static String digestHeadTail(Path file, long fileSize, int chunkSize,
+                                        ContentHasher hasher) throws IOException {
+        return digestHeadTail(file, fileSize, chunkSize, hasher, null);
+    }
+    
+    /**
+     * Hash the first and last chunk of a file, announcing every read before it is issued
+     * @param beforeRead called with the size of each read, e.g. to charge a budget; null for none
+     */
+    public static String digestHeadTail(Path file, long fileSize, int chunkSize, ContentHasher hasher,
+                                        LongConsumer beforeRead) throws IOException {
+        if (fileSize <= 2L * chunkSize) {
+            return digest(file, hasher, beforeRead);
+        }
+        ContentDigest digest = digestFor(hasher);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            update(channel, 0, chunkSize, digest, beforeRead);
+            update(channel, fileSize - chunkSize, chunkSize, digest, beforeRead);
+            return digest.finish();
+        } catch (IOException | RuntimeException e) {
+            digest.reset();
+            throw e;
+        }
+    }
+    
+    /**
+     * Hash a byte range of a file
+     * @param file file to read
+     * @param position first byte to hash
+     * @param length number of bytes, fewer if the file ends earlier
+     * @param hasher algorithm to use
+     * @return hash as hex string
+     */
+    public static String digestRange(Path file, long position, long length,
+                                     ContentHasher hasher) throws IOException {
+        ContentDigest digest = digestFor(hasher);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            update(channel, position, length, digest, null);
+            return digest.finish();
+        } catch (IOException | RuntimeException e) {
+            digest.reset();
+            throw e;
+        }
+    }
+    
+    private static ContentDigest digestFor(ContentHasher hasher) {
+        return DIGESTS.get().computeIfAbsent(hasher, ContentHasher::newDigest);
+    }
+    
+    /**
+     * Feed a range through a pooled direct buffer using positional reads
+     */
+    private static void update(FileChannel channel, long position, long length,
+                               ContentDigest digest, LongConsumer beforeRead) throws IOException {
+        ByteBuffer buffer = acquireBuffer();
+        try {
+            long remaining = length;
+            while (remaining > 0) {
+                buffer.clear();
+                buffer.limit((int) Math.min(buffer.capacity(), remaining));
+                if (beforeRead != null) {
+                    long available = Math.min(buffer.limit(), channel.size() - position);
+                    if (available > 0) {
+                        beforeRead.accept(available);
+                    }
+                }
+                int read = channel.read(buffer, position);
+                if (read < 0) {
+                    break;
+                }
+                buffer.flip();
+                digest.update(buffer);
+                position += read;
+                remaining -= read;
+            }
+        } finally {
+            releaseBuffer(buffer);
+        }
+    }
+    
+    private static ByteBuffer acquireBuffer() {
+        ByteBuffer buffer = BUFFER_POOL.poll();
+        return buffer != null ? buffer : ByteBuffer.allocateDirect(BUFFER_SIZE);
+    }
+    
+    private static void releaseBuffer(ByteBuffer buffer) {
+        BUFFER_POOL.offer(buffer); // dropped when the pool is full
+    }
+}
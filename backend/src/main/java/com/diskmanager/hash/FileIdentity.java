@@ -0,0 +1,38 @@
+package com.diskmanager.hash;
+
+import lombok.Value;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Identity and change metadata of a file, the key of the {@link HashCache}.
+ * The file key is device and inode on POSIX systems; where the platform has no file key
+ * the absolute path is used instead.
+ */
+@Value
+public class FileIdentity {
+    String fileKey;
+    long size;
+    long lastModifiedMicros;
+    
+    /**
+     * Build the identity from attributes that were already read, no I/O
+     */
+    public static FileIdentity of(Path file, BasicFileAttributes attrs) {
+        Object key = attrs.fileKey();
+        return new FileIdentity(key != null ? key.toString() : file.toAbsolutePath().toString(),
+                attrs.size(), attrs.lastModifiedTime().to(TimeUnit.MICROSECONDS));
+    }
+    
+    /**
+     * Read the attributes of a file and build its identity, one stat call
+     */
+    public static FileIdentity read(Path file) throws IOException {
+        return of(file, Files.readAttributes(file, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS));
+    }
+}
@@ -0,0 +1,243 @@
+package com.diskmanager.hash;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Persistent cache of content hashes keyed by file identity, size and modification time.
+ * An unchanged file keeps its key, so re-scans never read it again. Entries are evicted in
+ * least-recently-used order once the configured bound is reached, and the cache is written
+ * to disk periodically and on shutdown.
+ */
+@Component
+@Slf4j
+public class HashCache {
+    
+    private static final int FORMAT_VERSION = 1;
+    
+    @Value("${app.hash.cache.enabled:true}")
+    private boolean enabled;
+    
+    @Value("${app.hash.cache.file:${user.home}/.disk-cleanup/hash-cache.bin}")
+    private String cacheFile;
+    
+    @Value("${app.hash.cache.max-entries:500000}")
+    private int maxEntries;
+    
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    
+    private final Object flushLock = new Object(); // one writer of the cache file at a time
+    private Map<CacheKey, String> entries;
+    private volatile boolean dirty;
+    
+    @PostConstruct
+    public void load() {
+        entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<CacheKey, String> eldest) {
+                if (size() > maxEntries) {
+                    evictions.increment();
+                    return true;
+                }
+                return false;
+            }
+        };
+        
+        Path file = Paths.get(cacheFile);
+        if (!enabled || !Files.isRegularFile(file)) {
+            return;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (in.readInt() != FORMAT_VERSION) {
+                log.warn("Ignoring hash cache {} with unknown format", file);
+                return;
+            }
+            int count = in.readInt();
+            synchronized (this) {
+                for (int i = 0; i < count; i++) {
+                    String kind = in.readUTF().intern();
+                    FileIdentity identity = new FileIdentity(in.readUTF(), in.readLong(), in.readLong());
+                    entries.put(new CacheKey(kind, identity), in.readUTF());
+                }
+            }
+            log.info("Loaded {} hash cache entries from {}", entries.size(), file);
+        } catch (IOException e) {
+            log.warn("Failed to load hash cache {}: {}", file, e.getMessage());
+        }
+    }
+    
+    /**
+     * Look up a cached hash
+     * @param kind algorithm name, or algorithm plus variant for partial hashes
+     * @param identity identity of the file as it is now
+     * @return the hash, or null if the file is unknown or changed since it was hashed
+     */
+    public String get(String kind, FileIdentity identity) {
+        if (!enabled) {
+            return null;
+        }
+        String hash;
+        synchronized (this) {
+            hash = entries.get(new CacheKey(kind, identity));
+        }
+        if (hash != null) {
+            hits.increment();
+        } else {
+            misses.increment();
+        }
+        return hash;
+    }
+    
+    /**
+     * Look up a cached hash without counting a hit or miss, for opportunistic lookups
+     */
+    public String peek(String kind, FileIdentity identity) {
+        if (!enabled) {
+            return null;
+        }
+        synchronized (this) {
+            return entries.get(new CacheKey(kind, identity));
+        }
+    }
+    
+    public void put(String kind, FileIdentity identity, String hash) {
+        if (!enabled) {
+            return;
+        }
+        synchronized (this) {
+            entries.put(new CacheKey(kind.intern(), identity), hash);
+        }
+        dirty = true;
+    }
+    
+    public synchronized void clear() {
+        entries.clear();
+        dirty = true;
+    }
+    
+    /**
+     * Write the cache to disk if it changed since the last flush. The entries are copied under the
+     * cache lock and written outside it, so lookups and stores are not blocked by the disk.
+     */
+    @Scheduled(fixedDelayString = "${app.hash.cache.flush-interval:60000}")
+    @PreDestroy
+    public void flush() {
+        if (!enabled || !dirty) {
+            return;
+        }
+        synchronized (flushLock) {
+            CacheKey[] keys;
+            String[] hashes;
+            synchronized (this) {
+                dirty = false;
+                keys = new CacheKey[entries.size()];
+                hashes = new String[keys.length];
+                int i = 0;
+                for (Map.Entry<CacheKey, String> entry : entries.entrySet()) {
+                    keys[i] = entry.getKey();
+                    hashes[i++] = entry.getValue();
+                }
+            }
+            
+            Path file = Paths.get(cacheFile);
+            try {
+                Files.createDirectories(file.toAbsolutePath().getParent());
+                Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+                try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+                    out.writeInt(FORMAT_VERSION);
+                    out.writeInt(keys.length);
+                    for (int i = 0; i < keys.length; i++) {
+                        out.writeUTF(keys[i].kind);
+                        out.writeUTF(keys[i].identity.getFileKey());
+                        out.writeLong(keys[i].identity.getSize());
+                        out.writeLong(keys[i].identity.getLastModifiedMicros());
+                        out.writeUTF(hashes[i]);
+                    }
+                }
+                Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                log.debug("Wrote {} hash cache entries to {}", keys.length, file);
+            } catch (IOException e) {
+                dirty = true;
+                log.warn("Failed to write hash cache {}: {}", file, e.getMessage());
+            }
+        }
+    }
+    
+    public boolean isEnabled() {
+        return enabled;
+    }
+    
+    public synchronized int getSize() {
+        return entries.size();
+    }
+    
+    public int getMaxEntries() {
+        return maxEntries;
+    }
+    
+    public long getHits() {
+        return hits.sum();
+    }
+    
+    public long getMisses() {
+        return misses.sum();
+    }
+    
+    public long getEvictions() {
+        return evictions.sum();
+    }
+    
+    /**
+     * Hits as a fraction of all lookups
+     */
+    public double getHitRatio() {
+        long lookups = getHits() + getMisses();
+        return lookups > 0 ? (double) getHits() / lookups : 0;
+    }
+    
+    private static final class CacheKey {
+        private final String kind;
+        private final FileIdentity identity;
+        
+        CacheKey(String kind, FileIdentity identity) {
+            this.kind = kind;
+            this.identity = identity;
+        }
+        
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof CacheKey)) {
+                return false;
+            }
+            CacheKey other = (CacheKey) o;
+            return kind.equals(other.kind) && identity.equals(other.identity);
+        }
+        
+        @Override
+        public int hashCode() {
+            return 31 * kind.hashCode() + identity.hashCode();
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package com.diskmanager.hash;
+
+import org.springframework.stereotype.Component;
+
+/**
+ * MD5 content hash, the historical default
+ */
+@Component
+public class Md5ContentHasher extends MessageDigestContentHasher {
+    
+    public static final String ALGORITHM = "MD5";
+    
+    public Md5ContentHasher() {
+        super("MD5");
+    }
+    
+    @Override
+    public String getAlgorithm() {
+        return ALGORITHM;
+    }
+    
+    @Override
+    public int getHashLength() {
+        return 32;
+    }
+    
+    @Override
+    public boolean isCryptographic() {
+        return false; // broken against crafted collisions
+    }
+}
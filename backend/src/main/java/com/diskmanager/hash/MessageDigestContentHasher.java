@@ -0,0 +1,50 @@
+package com.diskmanager.hash;
+
+import org.apache.commons.codec.binary.Hex;
+
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * Base class for hashers backed by a JCA {@link MessageDigest}
+ */
+public abstract class MessageDigestContentHasher implements ContentHasher {
+    
+    private final String jcaName;
+    
+    protected MessageDigestContentHasher(String jcaName) {
+        this.jcaName = jcaName;
+    }
+    
+    @Override
+    public ContentDigest newDigest() {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance(jcaName);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("Digest not available: " + jcaName, e);
+        }
+        return new ContentDigest() {
+            @Override
+            public void update(byte[] buffer, int offset, int length) {
+                digest.update(buffer, offset, length);
+            }
+            
+            @Override
+            public void update(ByteBuffer buffer) {
+                digest.update(buffer);
+            }
+            
+            @Override
+            public String finish() {
+                return Hex.encodeHexString(digest.digest());
+            }
+            
+            @Override
+            public void reset() {
+                digest.reset();
+            }
+        };
+    }
+}
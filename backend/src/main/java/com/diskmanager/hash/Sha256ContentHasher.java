@@ -0,0 +1,31 @@
+package com.diskmanager.hash;
+
+import org.springframework.stereotype.Component;
+
+/**
+ * SHA-256 content hash for shares where crafted collisions matter
+ */
+@Component
+public class Sha256ContentHasher extends MessageDigestContentHasher {
+    
+    public static final String ALGORITHM = "SHA-256";
+    
+    public Sha256ContentHasher() {
+        super("SHA-256");
+    }
+    
+    @Override
+    public String getAlgorithm() {
+        return ALGORITHM;
+    }
+    
+    @Override
+    public int getHashLength() {
+        return 64;
+    }
+    
+    @Override
+    public boolean isCryptographic() {
+        return true;
+    }
+}
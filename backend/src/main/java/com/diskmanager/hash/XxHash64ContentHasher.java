@@ -0,0 +1,80 @@
+package com.diskmanager.hash;
+
+import net.jpountz.xxhash.StreamingXXHash64;
+import net.jpountz.xxhash.XXHashFactory;
+import org.springframework.stereotype.Component;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Non-cryptographic 64-bit xxHash, memory-bandwidth bound rather than CPU bound.
+ * The streaming hash only accepts arrays, so the direct buffers {@link FileDigester} reads into are
+ * copied through a small heap array. The one-shot {@code XXHash64.hash(ByteBuffer, ...)} reads
+ * direct buffers in place but hashes a single region, and a file must hash the same however it was read.
+ */
+@Component
+public class XxHash64ContentHasher implements ContentHasher {
+    
+    public static final String ALGORITHM = "XXH64";
+    
+    private static final long SEED = 0L;
+    private static final int SCRATCH_SIZE = 8 * 1024;
+    private static final XXHashFactory FACTORY = XXHashFactory.fastestInstance();
+    
+    @Override
+    public String getAlgorithm() {
+        return ALGORITHM;
+    }
+    
+    @Override
+    public int getHashLength() {
+        return 16;
+    }
+    
+    @Override
+    public boolean isCryptographic() {
+        return false;
+    }
+    
+    @Override
+    public ContentDigest newDigest() {
+        StreamingXXHash64 hash = FACTORY.newStreamingHash64(SEED);
+        return new ContentDigest() {
+            private byte[] scratch;
+            
+            @Override
+            public void update(byte[] buffer, int offset, int length) {
+                hash.update(buffer, offset, length);
+            }
+            
+            @Override
+            public void update(ByteBuffer buffer) {
+                if (buffer.hasArray()) {
+                    hash.update(buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining());
+                    buffer.position(buffer.limit());
+                    return;
+                }
+                if (scratch == null) {
+                    scratch = new byte[SCRATCH_SIZE];
+                }
+                while (buffer.hasRemaining()) {
+                    int length = Math.min(scratch.length, buffer.remaining());
+                    buffer.get(scratch, 0, length);
+                    hash.update(scratch, 0, length);
+                }
+            }
+            
+            @Override
+            public String finish() {
+                String hex = String.format("%016x", hash.getValue());
+                hash.reset();
+                return hex;
+            }
+            
+            @Override
+            public void reset() {
+                hash.reset();
+            }
+        };
+    }
+}
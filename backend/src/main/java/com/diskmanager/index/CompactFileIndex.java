@@ -0,0 +1,438 @@
+package com.diskmanager.index;
+
+import com.diskmanager.util.FileTypeDetector;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory file index in struct-of-arrays layout.
+ * <p>
+ * A file is a slot in parallel primitive columns: directory slot, interned name, size,
+ * modification time and extension code; its type follows from the extension dictionary.
+ * Directories are slots with a parent slot and an interned name, so paths are not stored
+ * but rebuilt on demand. A file costs 28 bytes plus its share of the name table, against
+ * several hundred for an entity with boxed fields, timestamps and a full path string.
+ * Parents always get lower slots than their children, which lets subtree operations run in
+ * one pass in slot order. Removed slots are tombstoned and reclaimed by {@link #compact}.
+ */
+public class CompactFileIndex {
+    
+    public static final int NO_PARENT = -1;
+    
+    private final boolean offHeap;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final NameTable names = new NameTable();
+    
+    // Extension and type dictionaries, small enough to stay ordinary collections
+    private final Map<String, Integer> extensionCodes = new HashMap<>();
+    private final List<String> extensions = new ArrayList<>();
+    private final Map<String, Integer> typeCodes = new HashMap<>();
+    private final List<String> types = new ArrayList<>();
+    private int[] typeOfExtension = new int[64];
+    
+    private IntColumn directoryParent;
+    private IntColumn directoryName;
+    private BitSet removedDirectories = new BitSet();
+    private int directoryCount;
+    
+    private IntColumn fileDirectory;
+    private IntColumn fileName;
+    private LongColumn fileSize;
+    private LongColumn fileModified; // epoch millis
+    private IntColumn fileExtension;
+    private BitSet removedFiles = new BitSet();
+    private int fileCount;
+    private int removedFileCount;
+    
+    public CompactFileIndex(int initialCapacity, boolean offHeap) {
+        this.offHeap = offHeap;
+        allocate(initialCapacity);
+    }
+    
+    private void allocate(int capacity) {
+        directoryParent = new IntColumn(capacity / 8, offHeap);
+        directoryName = new IntColumn(capacity / 8, offHeap);
+        fileDirectory = new IntColumn(capacity, offHeap);
+        fileName = new IntColumn(capacity, offHeap);
+        fileSize = new LongColumn(capacity, offHeap);
+        fileModified = new LongColumn(capacity, offHeap);
+        fileExtension = new IntColumn(capacity, offHeap);
+    }
+    
+    public boolean isOffHeap() {
+        return offHeap;
+    }
+    
+    /**
+     * Add a directory below a parent slot, or a root with {@link #NO_PARENT} and its full path as name
+     * @return slot of the directory
+     */
+    public int addDirectory(int parent, String name) {
+        int nameId = names.intern(name);
+        lock.writeLock().lock();
+        try {
+            int slot = directoryCount++;
+            directoryParent.set(slot, parent);
+            directoryName.set(slot, nameId);
+            return slot;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+    
+    /**
+     * @return slot of the file
+     */
+    public int addFile(int directory, String name, long size, long modifiedMillis) {
+        int nameId = names.intern(name);
+        String extension = FileTypeDetector.getExtension(name);
+        lock.writeLock().lock();
+        try {
+            int slot = fileCount++;
+            fileDirectory.set(slot, directory);
+            fileName.set(slot, nameId);
+            fileSize.set(slot, size);
+            fileModified.set(slot, modifiedMillis);
+            fileExtension.set(slot, extensionCode(extension));
+            return slot;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+    
+    private int extensionCode(String extension) {
+        Integer code = extensionCodes.get(extension);
+        if (code == null) {
+            code = extensions.size();
+            extensionCodes.put(extension, code);
+            extensions.add(extension);
+            String type = FileTypeDetector.detectFileType(extension);
+            Integer typeCode = typeCodes.get(type);
+            if (typeCode == null) {
+                typeCode = types.size();
+                typeCodes.put(type, typeCode);
+                types.add(type);
+            }
+            if (code == typeOfExtension.length) {
+                typeOfExtension = Arrays.copyOf(typeOfExtension, code * 2);
+            }
+            typeOfExtension[code] = typeCode;
+        }
+        return code;
+    }
+    
+    public int getDirectoryCount() {
+        lock.readLock().lock();
+        try {
+            return directoryCount - removedDirectories.cardinality();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+    
+    public int getFileCount() {
+        lock.readLock().lock();
+        try {
+            return fileCount - removedFileCount;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+    
+    /**
+     * Slot marks, taken before adding a tree so that it can be told apart afterwards
+     */
+    public int getDirectorySlots() {
+        lock.readLock().lock();
+        try {
+            return directoryCount;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+    
+    public int getFileSlots() {
+        lock.readLock().lock();
+        try {
+            return fileCount;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+    
+    public int getNameCount() {
+        return names.size();
+    }
+    
+    /**
+     * Bytes held by columns, tombstones and dictionaries
+     */
+    public long getMemoryBytes() {
+        lock.readLock().lock();
+        try {
+            return directoryParent.bytes() + directoryName.bytes() + fileDirectory.bytes() + fileName.bytes()
+                    + fileSize.bytes() + fileModified.bytes() + fileExtension.bytes()
+                    + removedFiles.size() / 8 + removedDirectories.size() / 8 + names.bytes()
+                    + (long) typeOfExtension.length * Integer.BYTES;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+    
+    /**
+     * Remove the tree stored at the given path from directory and file slots below the marks,
+     * i.e. the state before a new scan of that path was added, including trees scanned on their own below it
+     * @return number of files removed
+     */
+    public int removeSubtree(String path, int directoryMark, int fileMark) {
+        lock.writeLock().lock();
+        try {
+            String lastName = new File(path).getName();
+            int lastNameId = lastName.isEmpty() ? -1 : names.find(lastName);
+            int pathNameId = names.find(path);
+            
+            BitSet inside = new BitSet(directoryMark);
+            for (int directory = 0; directory < directoryMark; directory++) {
+                if (removedDirectories.get(directory)) {
+                    continue;
+                }
+                int parent = directoryParent.get(directory);
+                int nameId = directoryName.get(directory);
+                boolean below = parent != NO_PARENT ? inside.get(parent)
+                        : names.get(nameId).startsWith(join(path, "")); // a tree scanned on its own
+                if (below || ((nameId == lastNameId || nameId == pathNameId) && path.equals(directoryPath(directory)))) {
+                    inside.set(directory);
+                }
+            }
+            removedDirectories.or(inside);
+            return removeFiles(0, fileMark, inside);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+    
+    /**
+     * Remove everything added from the marks on, e.g. an incomplete scan
+     * @return number of files removed
+     */
+    public int removeFrom(int directoryMark, int fileMark) {
+        lock.writeLock().lock();
+        try {
+            removedDirectories.set(directoryMark, directoryCount);
+            return removeFiles(fileMark, fileCount, null);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+    
+    private int removeFiles(int from, int to, BitSet directories) {
+        int removed = 0;
+        for (int file = from; file < to; file++) {
+            if (!removedFiles.get(file) && (directories == null || directories.get(fileDirectory.get(file)))) {
+                removedFiles.set(file);
+                removed++;
+            }
+        }
+        removedFileCount += removed;
+        return removed;
+    }
+    
+    /**
+     * Drop all entries
+     */
+    public void clear() {
+        lock.writeLock().lock();
+        try {
+            removedDirectories.set(0, directoryCount);
+            removedFiles.set(0, fileCount);
+            removedFileCount = fileCount;
+            compact();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+    
+    /**
+     * Rewrite the columns without removed slots once they make up more than half of them.
+     * Interned names are kept, removed trees are usually scanned again.
+     */
+    public void compact() {
+        lock.writeLock().lock();
+        try {
+            if (removedFileCount * 2 <= fileCount && removedDirectories.cardinality() * 2 <= directoryCount) {
+                return;
+            }
+            IntColumn oldParent = directoryParent;
+            IntColumn oldDirectoryName = directoryName;
+            IntColumn oldDirectory = fileDirectory;
+            IntColumn oldName = fileName;
+            LongColumn oldSize = fileSize;
+            LongColumn oldModified = fileModified;
+            IntColumn oldExtension = fileExtension;
+            int oldDirectoryCount = directoryCount;
+            int oldFileCount = fileCount;
+            
+            allocate(oldFileCount - removedFileCount);
+            int[] remap = new int[oldDirectoryCount];
+            directoryCount = 0;
+            for (int directory = 0; directory < oldDirectoryCount; directory++) {
+                if (removedDirectories.get(directory)) {
+                    remap[directory] = NO_PARENT;
+                    continue;
+                }
+                int parent = oldParent.get(directory);
+                remap[directory] = directoryCount;
+                directoryParent.set(directoryCount, parent == NO_PARENT ? NO_PARENT : remap[parent]);
+                directoryName.set(directoryCount, oldDirectoryName.get(directory));
+                directoryCount++;
+            }
+            fileCount = 0;
+            for (int file = 0; file < oldFileCount; file++) {
+                if (removedFiles.get(file)) {
+                    continue;
+                }
+                fileDirectory.set(fileCount, remap[oldDirectory.get(file)]);
+                fileName.set(fileCount, oldName.get(file));
+                fileSize.set(fileCount, oldSize.get(file));
+                fileModified.set(fileCount, oldModified.get(file));
+                fileExtension.set(fileCount, oldExtension.get(file));
+                fileCount++;
+            }
+            removedDirectories = new BitSet();
+            removedFiles = new BitSet();
+            removedFileCount = 0;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+    
+    /**
+     * Largest files above a threshold, found with a bounded heap in one pass over the size column
+     */
+    public List<IndexedFile> findLargest(long threshold, int limit) {
+        lock.readLock().lock();
+        try {
+            PriorityQueue<Integer> smallestFirst = new PriorityQueue<>(limit + 1,
+                    (a, b) -> Long.compare(fileSize.get(a), fileSize.get(b)));
+            for (int file = 0; file < fileCount; file++) {
+                long size = fileSize.get(file);
+                if (size <= threshold || removedFiles.get(file)) {
+                    continue;
+                }
+                if (smallestFirst.size() < limit) {
+                    smallestFirst.add(file);
+                } else if (size > fileSize.get(smallestFirst.peek())) {
+                    smallestFirst.poll();
+                    smallestFirst.add(file);
+                }
+            }
+            List<IndexedFile> largest = new ArrayList<>(smallestFirst.size());
+            while (!smallestFirst.isEmpty()) {
+                largest.add(describe(smallestFirst.poll()));
+            }
+            Collections.reverse(largest);
+            return largest;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+    
+    /**
+     * Count and size per file type
+     * @return totals by type: [files, bytes, files above threshold, bytes above threshold]
+     */
+    public Map<String, long[]> totalsByType(long threshold) {
+        lock.readLock().lock();
+        try {
+            long[][] totals = new long[types.size()][4];
+            for (int file = 0; file < fileCount; file++) {
+                if (removedFiles.get(file)) {
+                    continue;
+                }
+                long size = fileSize.get(file);
+                long[] typeTotals = totals[typeOfExtension[fileExtension.get(file)]];
+                typeTotals[0]++;
+                typeTotals[1] += size;
+                if (size > threshold) {
+                    typeTotals[2]++;
+                    typeTotals[3] += size;
+                }
+            }
+            Map<String, long[]> byType = new HashMap<>();
+            for (int type = 0; type < totals.length; type++) {
+                if (totals[type][0] > 0) {
+                    byType.put(types.get(type), totals[type]);
+                }
+            }
+            return byType;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+    
+    /**
+     * Non-empty files sharing their size with another file, the candidates for duplicate detection
+     */
+    public List<IndexedFile> findSizeCollisions() {
+        lock.readLock().lock();
+        try {
+            long[] sizes = new long[fileCount - removedFileCount];
+            int live = 0;
+            for (int file = 0; file < fileCount; file++) {
+                if (!removedFiles.get(file)) {
+                    sizes[live++] = fileSize.get(file);
+                }
+            }
+            Arrays.sort(sizes);
+            
+            List<IndexedFile> candidates = new ArrayList<>();
+            for (int file = 0; file < fileCount; file++) {
+                long size = fileSize.get(file);
+                if (size > 0 && !removedFiles.get(file) && isShared(sizes, size)) {
+                    candidates.add(describe(file));
+                }
+            }
+            return candidates;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+    
+    private static boolean isShared(long[] sorted, long value) {
+        int index = Arrays.binarySearch(sorted, value);
+        return (index > 0 && sorted[index - 1] == value) || (index < sorted.length - 1 && sorted[index + 1] == value);
+    }
+    
+    private IndexedFile describe(int file) {
+        int directory = fileDirectory.get(file);
+        String name = names.get(fileName.get(file));
+        String extension = extensions.get(fileExtension.get(file));
+        return new IndexedFile(join(directoryPath(directory), name), name, fileSize.get(file),
+                fileModified.get(file), extension, types.get(typeOfExtension[fileExtension.get(file)]));
+    }
+    
+    private String directoryPath(int directory) {
+        List<String> parts = new ArrayList<>();
+        for (int current = directory; current != NO_PARENT; current = directoryParent.get(current)) {
+            parts.add(names.get(directoryName.get(current)));
+        }
+        String path = parts.get(parts.size() - 1); // the root carries its full path
+        for (int i = parts.size() - 2; i >= 0; i--) {
+            path = join(path, parts.get(i));
+        }
+        return path;
+    }
+    
+    private static String join(String directory, String name) {
+        return directory.endsWith(File.separator) ? directory + name : directory + File.separator + name;
+    }
+}
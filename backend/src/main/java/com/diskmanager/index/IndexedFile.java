@@ -0,0 +1,18 @@
+package com.diskmanager.index;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/**
+ * A file read out of the {@link CompactFileIndex}, with its path rebuilt
+ */
+@Data
+@AllArgsConstructor
+public class IndexedFile {
+    private String path;
+    private String name;
+    private long size;
+    private long modifiedMillis;
+    private String extension;
+    private String type;
+}
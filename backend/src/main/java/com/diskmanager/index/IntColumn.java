@@ -0,0 +1,58 @@
+package com.diskmanager.index;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+
+/**
+ * Growable column of primitive ints, held in an int[] or in a direct buffer outside the heap
+ */
+class IntColumn {
+    
+    private final boolean offHeap;
+    private int[] values;
+    private ByteBuffer buffer;
+    private int capacity;
+    
+    IntColumn(int capacity, boolean offHeap) {
+        this.offHeap = offHeap;
+        this.capacity = Math.max(capacity, 16);
+        if (offHeap) {
+            buffer = ByteBuffer.allocateDirect(this.capacity * Integer.BYTES).order(ByteOrder.nativeOrder());
+        } else {
+            values = new int[this.capacity];
+        }
+    }
+    
+    int get(int index) {
+        return offHeap ? buffer.getInt(index * Integer.BYTES) : values[index];
+    }
+    
+    void set(int index, int value) {
+        ensureCapacity(index + 1);
+        if (offHeap) {
+            buffer.putInt(index * Integer.BYTES, value);
+        } else {
+            values[index] = value;
+        }
+    }
+    
+    long bytes() {
+        return (long) capacity * Integer.BYTES;
+    }
+    
+    private void ensureCapacity(int required) {
+        if (required <= capacity) {
+            return;
+        }
+        int grown = Math.min(Integer.MAX_VALUE / Integer.BYTES, Math.max(required, capacity + (capacity >> 1)));
+        if (offHeap) {
+            ByteBuffer larger = ByteBuffer.allocateDirect(grown * Integer.BYTES).order(ByteOrder.nativeOrder());
+            larger.put(buffer.clear());
+            buffer = larger;
+        } else {
+            values = Arrays.copyOf(values, grown);
+        }
+        capacity = grown;
+    }
+}
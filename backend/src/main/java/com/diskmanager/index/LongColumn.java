@@ -0,0 +1,58 @@
+package com.diskmanager.index;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+
+/**
+ * Growable column of primitive longs, held in a long[] or in a direct buffer outside the heap
+ */
+class LongColumn {
+    
+    private final boolean offHeap;
+    private long[] values;
+    private ByteBuffer buffer;
+    private int capacity;
+    
+    LongColumn(int capacity, boolean offHeap) {
+        this.offHeap = offHeap;
+        this.capacity = Math.max(capacity, 16);
+        if (offHeap) {
+            buffer = ByteBuffer.allocateDirect(this.capacity * Long.BYTES).order(ByteOrder.nativeOrder());
+        } else {
+            values = new long[this.capacity];
+        }
+    }
+    
+    long get(int index) {
+        return offHeap ? buffer.getLong(index * Long.BYTES) : values[index];
+    }
+    
+    void set(int index, long value) {
+        ensureCapacity(index + 1);
+        if (offHeap) {
+            buffer.putLong(index * Long.BYTES, value);
+        } else {
+            values[index] = value;
+        }
+    }
+    
+    long bytes() {
+        return (long) capacity * Long.BYTES;
+    }
+    
+    private void ensureCapacity(int required) {
+        if (required <= capacity) {
+            return;
+        }
+        int grown = Math.min(Integer.MAX_VALUE / Long.BYTES, Math.max(required, capacity + (capacity >> 1)));
+        if (offHeap) {
+            ByteBuffer larger = ByteBuffer.allocateDirect(grown * Long.BYTES).order(ByteOrder.nativeOrder());
+            larger.put(buffer.clear());
+            buffer = larger;
+        } else {
+            values = Arrays.copyOf(values, grown);
+        }
+        capacity = grown;
+    }
+}
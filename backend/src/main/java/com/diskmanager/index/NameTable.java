@@ -0,0 +1,112 @@
+package com.diskmanager.index;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Interned strings stored once as UTF-8 in a shared byte arena and referenced by int id.
+ * File and directory names repeat heavily across a tree (index.js, README, .git), so most
+ * entries cost only their 4 byte reference. Lookup uses open addressing over the ids.
+ */
+class NameTable {
+    
+    private byte[] arena = new byte[1 << 16];
+    private int arenaSize;
+    private int[] offsets = new int[1 << 10]; // start of name i; offsets[count] is the end of the last
+    private int count;
+    private int[] slots = new int[1 << 11]; // id + 1, 0 for a free slot
+    
+    /**
+     * Id of the name, adding it if it is new
+     */
+    synchronized int intern(String name) {
+        byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+        int hash = hash(bytes);
+        int mask = slots.length - 1;
+        for (int slot = hash & mask; ; slot = (slot + 1) & mask) {
+            int entry = slots[slot];
+            if (entry == 0) {
+                int id = append(bytes);
+                slots[slot] = id + 1;
+                if (count * 2 > slots.length) {
+                    rehash();
+                }
+                return id;
+            }
+            if (matches(entry - 1, bytes)) {
+                return entry - 1;
+            }
+        }
+    }
+    
+    /**
+     * Id of the name, or -1 if it was never interned
+     */
+    synchronized int find(String name) {
+        byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+        int mask = slots.length - 1;
+        for (int slot = hash(bytes) & mask; slots[slot] != 0; slot = (slot + 1) & mask) {
+            if (matches(slots[slot] - 1, bytes)) {
+                return slots[slot] - 1;
+            }
+        }
+        return -1;
+    }
+    
+    synchronized String get(int id) {
+        return new String(arena, offsets[id], offsets[id + 1] - offsets[id], StandardCharsets.UTF_8);
+    }
+    
+    synchronized int size() {
+        return count;
+    }
+    
+    synchronized long bytes() {
+        return arena.length + (long) offsets.length * Integer.BYTES + (long) slots.length * Integer.BYTES;
+    }
+    
+    private int append(byte[] bytes) {
+        if (arenaSize + bytes.length > arena.length) {
+            arena = Arrays.copyOf(arena, Math.max(arenaSize + bytes.length, arena.length + (arena.length >> 1)));
+        }
+        if (count + 2 > offsets.length) {
+            offsets = Arrays.copyOf(offsets, offsets.length + (offsets.length >> 1));
+        }
+        System.arraycopy(bytes, 0, arena, arenaSize, bytes.length);
+        offsets[count] = arenaSize;
+        arenaSize += bytes.length;
+        offsets[count + 1] = arenaSize;
+        return count++;
+    }
+    
+    private boolean matches(int id, byte[] bytes) {
+        int start = offsets[id];
+        return offsets[id + 1] - start == bytes.length
+                && Arrays.equals(arena, start, start + bytes.length, bytes, 0, bytes.length);
+    }
+    
+    private void rehash() {
+        int[] larger = new int[slots.length * 2];
+        int mask = larger.length - 1;
+        for (int id = 0; id < count; id++) {
+            int slot = hash(arena, offsets[id], offsets[id + 1]) & mask;
+            while (larger[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            larger[slot] = id + 1;
+        }
+        slots = larger;
+    }
+    
+    private static int hash(byte[] bytes) {
+        return hash(bytes, 0, bytes.length);
+    }
+    
+    private static int hash(byte[] bytes, int from, int to) {
+        int hash = 1;
+        for (int i = from; i < to; i++) {
+            hash = 31 * hash + bytes[i];
+        }
+        return hash ^ (hash >>> 16);
+    }
+}
@@ -0,0 +1,158 @@
+package com.diskmanager.io;
+
+import com.diskmanager.scanner.IoGate;
+import com.diskmanager.scanner.ScanStatistics;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * Budgets of metadata operations and hashed bytes per second for one throttled scan or search.
+ * Each budget is a token bucket that lets callers run into debt and makes the next caller sleep
+ * it off, so a directory of a thousand entries is paid for after it was listed. Once a second
+ * the budgets follow the utilization of the devices being read: above the busy threshold they
+ * are halved, down to a minimum share, and below three quarters of it they grow back by a tenth
+ * of the configured budget. Without a utilization signal the configured budgets apply as they are.
+ */
+@Slf4j
+public class AdaptiveThrottle {
+    
+    private static final long ADJUST_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(1);
+    private static final double RECOVERY_STEP = 0.1;
+    private static final double RECOVERY_THRESHOLD = 0.75;
+    
+    private final double opsPerSecond;
+    private final double bytesPerSecond;
+    private final double busyUtilization;
+    private final double minShare;
+    private final DiskUtilization utilization;
+    private final Bucket ops = new Bucket();
+    private final Bucket bytes = new Bucket();
+    private final LongAdder throttledNanos = new LongAdder();
+    private volatile double share = 1.0;
+    private long nextAdjustNanos;
+    
+    /**
+     * @param opsPerSecond metadata budget at an idle device, 0 or less for none
+     * @param bytesPerSecond hashing budget at an idle device, 0 or less for none
+     */
+    public AdaptiveThrottle(double opsPerSecond, double bytesPerSecond, double busyUtilization, double minShare,
+                            DiskUtilization utilization) {
+        this.opsPerSecond = opsPerSecond;
+        this.bytesPerSecond = bytesPerSecond;
+        this.busyUtilization = busyUtilization;
+        this.minShare = minShare;
+        this.utilization = utilization;
+        utilization.sample(); // baseline for the first adjustment
+        this.nextAdjustNanos = System.nanoTime() + ADJUST_INTERVAL_NANOS;
+    }
+    
+    /**
+     * Wait until the metadata budget covers the given number of operations
+     */
+    public void acquireOps(long count) {
+        if (opsPerSecond > 0 && count > 0) {
+            pause(ops.reserve(count, opsPerSecond * share()));
+        }
+    }
+    
+    /**
+     * Wait until the hashing budget covers the given number of bytes. The sleep, if any, runs
+     * through the given wrapper, so a reader can give up its device permit for the wait.
+     */
+    public void acquireBytes(long count, Consumer<Runnable> waiting) {
+        if (bytesPerSecond > 0 && count > 0) {
+            long nanos = bytes.reserve(count, bytesPerSecond * share());
+            if (nanos > 0) {
+                waiting.accept(() -> pause(nanos));
+            }
+        }
+    }
+    
+    /**
+     * Gate charging the metadata calls a walk made since the last directory to the budget before
+     * passing on to the device gate, so no device permit is held while sleeping
+     */
+    public IoGate gate(IoGate delegate, ScanStatistics statistics) {
+        AtomicLong charged = new AtomicLong();
+        return path -> {
+            long calls = statistics.getMetadataCalls();
+            acquireOps(calls - charged.getAndAccumulate(calls, Math::max));
+            return delegate.enter(path);
+        };
+    }
+    
+    /**
+     * Share of the configured budgets currently granted
+     */
+    public double getShare() {
+        return share;
+    }
+    
+    /**
+     * Total time callers slept waiting for budget
+     */
+    public long getThrottledMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(throttledNanos.sum());
+    }
+    
+    private double share() {
+        if (System.nanoTime() - nextAdjustNanos >= 0) {
+            adjust();
+        }
+        return share;
+    }
+    
+    private synchronized void adjust() {
+        long now = System.nanoTime();
+        if (now - nextAdjustNanos < 0) {
+            return; // another caller adjusted meanwhile
+        }
+        nextAdjustNanos = now + ADJUST_INTERVAL_NANOS;
+        double busy = utilization.sample();
+        if (Double.isNaN(busy)) {
+            return;
+        }
+        double previous = share;
+        if (busy > busyUtilization) {
+            share = Math.max(minShare, share / 2);
+        } else if (busy < busyUtilization * RECOVERY_THRESHOLD) {
+            share = Math.min(1.0, share + RECOVERY_STEP);
+        }
+        if (share != previous) {
+            log.debug("Device utilization {}%, throttle share {} -> {}", Math.round(busy * 100),
+                    String.format("%.2f", previous), String.format("%.2f", share));
+        }
+    }
+    
+    private void pause(long nanos) {
+        if (nanos <= 0) {
+            return;
+        }
+        throttledNanos.add(nanos);
+        try {
+            TimeUnit.NANOSECONDS.sleep(nanos);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+    
+    /**
+     * Token bucket without burst: each reservation moves the time the budget is free again
+     * forward by its cost at the current rate and waits for the reservations before it
+     */
+    private static class Bucket {
+        
+        private long freeAtNanos = System.nanoTime();
+        
+        synchronized long reserve(long count, double perSecond) {
+            long now = System.nanoTime();
+            long start = Math.max(freeAtNanos, now);
+            freeAtNanos = start + (long) (count / perSecond * 1_000_000_000L);
+            return start - now;
+        }
+    }
+}
@@ -0,0 +1,276 @@
+package com.diskmanager.io;
+
+import com.diskmanager.dto.IoDeviceDTO;
+import com.diskmanager.scanner.IoGate;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.FileStore;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Limits concurrent reads per block device. Every path is mapped to the device it is mounted
+ * from (/proc/self/mountinfo, or the FileStore of its root elsewhere), and every device gets a
+ * budget of concurrent reads: few for a spinning disk, where more readers only add seeks, many
+ * for a solid-state drive, which needs a deep queue to be busy. Walkers hold a permit while
+ * they list a directory; hashing tasks wait in a queue of their device until a permit is free.
+ * All walks and searches share the budgets, so two scans of one disk do not thrash it while a
+ * scan of another disk runs at full speed.
+ */
+@Component
+@Slf4j
+public class DeviceIoScheduler implements IoGate {
+    
+    private static final long MOUNT_TABLE_MAX_AGE_NANOS = TimeUnit.SECONDS.toNanos(10);
+    
+    private final boolean enabled;
+    private final int rotationalConcurrency;
+    private final int solidStateConcurrency;
+    private final int defaultConcurrency;
+    private final Map<String, Device> devices = new ConcurrentHashMap<>();
+    private final ExecutorService workers;
+    private volatile MountTable mountTable;
+    private volatile long mountTableLoadedNanos;
+    
+    public DeviceIoScheduler(@Value("${app.io.device-scheduling:true}") boolean enabled,
+                             @Value("${app.io.rotational-concurrency:2}") int rotationalConcurrency,
+                             @Value("${app.io.solid-state-concurrency:16}") int solidStateConcurrency,
+                             @Value("${app.io.default-concurrency:8}") int defaultConcurrency) {
+        this.enabled = enabled;
+        this.rotationalConcurrency = rotationalConcurrency;
+        this.solidStateConcurrency = solidStateConcurrency;
+        this.defaultConcurrency = defaultConcurrency;
+        AtomicInteger threads = new AtomicInteger();
+        this.workers = Executors.newCachedThreadPool(task -> {
+            Thread thread = new Thread(task, "DiskIo-" + threads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+    
+    @PreDestroy
+    public void shutdown() {
+        workers.shutdownNow();
+    }
+    
+    @Override
+    public Permit enter(Path path) {
+        if (!enabled) {
+            return UNLIMITED.enter(path);
+        }
+        Device device = deviceOf(path);
+        device.permits.acquireUninterruptibly();
+        return device::release;
+    }
+    
+    /**
+     * Run a task reading a path once its device has a free permit, in the order tasks were queued per device
+     */
+    public <T> CompletableFuture<T> submit(Path path, Callable<T> task) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        Runnable run = () -> {
+            try {
+                future.complete(task.call());
+            } catch (Exception e) {
+                future.completeExceptionally(e);
+            }
+        };
+        if (!enabled) {
+            run.run();
+            return future;
+        }
+        Device device = deviceOf(path);
+        device.queue.add(run);
+        device.drain();
+        return future;
+    }
+    
+    /**
+     * Give up the permit of a task started by {@link #submit} for the same path while it waits,
+     * e.g. for a throttle budget, and take it back afterwards
+     */
+    public void releaseWhile(Path path, Runnable wait) {
+        if (!enabled) {
+            wait.run();
+            return;
+        }
+        Device device = deviceOf(path);
+        device.permits.release();
+        device.drain();
+        try {
+            wait.run();
+        } finally {
+            device.permits.acquireUninterruptibly();
+        }
+    }
+    
+    /**
+     * Devices seen so far with their budget and load
+     */
+    public List<IoDeviceDTO> getDevices() {
+        List<IoDeviceDTO> result = new ArrayList<>();
+        for (Device device : devices.values()) {
+            List<String> mountPoints = new ArrayList<>(device.mountPoints);
+            mountPoints.sort(Comparator.naturalOrder());
+            result.add(new IoDeviceDTO(device.id, device.source, device.fileSystem, mountPoints, device.rotational,
+                    device.concurrency, device.concurrency - device.permits.availablePermits(),
+                    device.permits.getQueueLength() + device.queue.size(), device.completed.sum()));
+        }
+        result.sort(Comparator.comparing(IoDeviceDTO::getDevice));
+        return result;
+    }
+    
+    /**
+     * Id of the device a path is read from: major:minor, a /dev path, or root: and a file system root
+     */
+    public String deviceId(Path path) {
+        return deviceOf(path).id;
+    }
+    
+    /**
+     * Ids of the devices seen so far
+     */
+    public Set<String> deviceIds() {
+        return devices.keySet();
+    }
+    
+    private Device deviceOf(Path path) {
+        MountTable table = mountTable();
+        MountTable.Mount mount = table != null ? table.find(path) : null;
+        if (mount == null) {
+            return rootDevice(path);
+        }
+        Device device = devices.computeIfAbsent(mount.getDevice(), id -> {
+            Boolean rotational = MountTable.isRotational(mount);
+            return newDevice(id, mount.getSource(), mount.getFileSystem(), rotational);
+        });
+        device.mountPoints.add(mount.getMountPoint());
+        return device;
+    }
+    
+    /**
+     * Without a mount table every file system root counts as one device, e.g. a drive letter on Windows
+     */
+    private Device rootDevice(Path path) {
+        Path root = path.toAbsolutePath().getRoot();
+        Device device = devices.computeIfAbsent("root:" + root, id -> {
+            String source = root.toString();
+            String fileSystem = null;
+            try {
+                FileStore store = Files.getFileStore(root);
+                source = store.name();
+                fileSystem = store.type();
+            } catch (IOException e) {
+                log.debug("Cannot read the file store of {}: {}", root, e.getMessage());
+            }
+            return newDevice(id, source, fileSystem, null);
+        });
+        device.mountPoints.add(root.toString());
+        return device;
+    }
+    
+    private Device newDevice(String id, String source, String fileSystem, Boolean rotational) {
+        int concurrency = rotational == null ? defaultConcurrency :
+                rotational ? rotationalConcurrency : solidStateConcurrency;
+        log.info("I/O device {} ({}, {}): {}, {} concurrent reads", id, source, fileSystem,
+                rotational == null ? "unknown medium" : rotational ? "rotational" : "solid state", concurrency);
+        return new Device(id, source, fileSystem, rotational, concurrency);
+    }
+    
+    private MountTable mountTable() {
+        if (System.nanoTime() - mountTableLoadedNanos > MOUNT_TABLE_MAX_AGE_NANOS || mountTableLoadedNanos == 0) {
+            synchronized (this) {
+                if (System.nanoTime() - mountTableLoadedNanos > MOUNT_TABLE_MAX_AGE_NANOS
+                        || mountTableLoadedNanos == 0) {
+                    mountTable = MountTable.load(); // picks up new mounts; budgets stay with their device
+                    mountTableLoadedNanos = System.nanoTime();
+                }
+            }
+        }
+        return mountTable;
+    }
+    
+    /**
+     * A device with its budget of concurrent reads. Walker threads wait on the fair semaphore,
+     * hashing tasks in the queue; both take permits in arrival order.
+     */
+    private class Device {
+        
+        final String id;
+        final String source;
+        final String fileSystem;
+        final Boolean rotational;
+        final int concurrency;
+        final Semaphore permits;
+        final Queue<Runnable> queue = new ConcurrentLinkedQueue<>();
+        final Set<String> mountPoints = ConcurrentHashMap.newKeySet();
+        final LongAdder completed = new LongAdder();
+        
+        Device(String id, String source, String fileSystem, Boolean rotational, int concurrency) {
+            this.id = id;
+            this.source = source;
+            this.fileSystem = fileSystem;
+            this.rotational = rotational;
+            this.concurrency = concurrency;
+            this.permits = new Semaphore(concurrency, true);
+        }
+        
+        void release() {
+            permits.release();
+            completed.increment();
+            drain();
+        }
+        
+        /**
+         * Start queued tasks while permits are free; every release calls it again
+         */
+        void drain() {
+            while (!queue.isEmpty() && tryAcquire()) {
+                Runnable task = queue.poll();
+                if (task == null) {
+                    permits.release(); // another thread took the last task
+                    continue;
+                }
+                workers.execute(() -> {
+                    try {
+                        task.run();
+                    } finally {
+                        release();
+                    }
+                });
+            }
+        }
+        
+        /**
+         * Take a free permit unless walker threads are already waiting for one
+         */
+        private boolean tryAcquire() {
+            try {
+                return permits.tryAcquire(0, TimeUnit.NANOSECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package com.diskmanager.io;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * How busy block devices are, from the time they spent doing I/O in /proc/diskstats: the
+ * share of wall-clock time between two samples in which the device had requests in flight.
+ * It counts every reader of the device, not just our own, which is what a scan that should
+ * stay out of the way of production traffic has to look at.
+ */
+@Slf4j
+public class DiskUtilization {
+    
+    private static final Path DISKSTATS = Paths.get("/proc/diskstats");
+    private static final int IO_TICKS_FIELD = 12; // major minor name, then the 10th statistic: ms doing I/O
+    
+    private final Supplier<? extends Collection<String>> devices;
+    private Map<String, Long> lastTicks;
+    private long lastNanos;
+    
+    /**
+     * @param devices ids of the devices to watch, major:minor or /dev/name as in {@link MountTable}
+     */
+    public DiskUtilization(Supplier<? extends Collection<String>> devices) {
+        this.devices = devices;
+    }
+    
+    /**
+     * Utilization of the busiest watched device since the previous sample, from 0 to 1
+     * @return NaN on the first sample, without /proc/diskstats or for devices it does not list
+     */
+    public synchronized double sample() {
+        Map<String, Long> ticks = readIoTicks();
+        long now = System.nanoTime();
+        double busiest = Double.NaN;
+        if (lastTicks != null && now > lastNanos) {
+            double elapsedMillis = (now - lastNanos) / 1_000_000.0;
+            for (String device : devices.get()) {
+                String key = key(device);
+                Long current = ticks.get(key);
+                Long previous = lastTicks.get(key);
+                if (current != null && previous != null) {
+                    double utilization = Math.min(1.0, Math.max(0, current - previous) / elapsedMillis);
+                    busiest = Double.isNaN(busiest) ? utilization : Math.max(busiest, utilization);
+                }
+            }
+        }
+        lastTicks = ticks;
+        lastNanos = now;
+        return busiest;
+    }
+    
+    /**
+     * Milliseconds spent doing I/O per device, keyed by major:minor and by name
+     */
+    static Map<String, Long> readIoTicks() {
+        if (!Files.isReadable(DISKSTATS)) {
+            return Map.of();
+        }
+        try {
+            return parse(Files.readAllLines(DISKSTATS, StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            log.debug("Cannot read {}: {}", DISKSTATS, e.getMessage());
+            return Map.of();
+        }
+    }
+    
+    static Map<String, Long> parse(List<String> lines) {
+        Map<String, Long> ticks = new HashMap<>();
+        for (String line : lines) {
+            String[] fields = line.trim().split("\\s+");
+            if (fields.length <= IO_TICKS_FIELD) {
+                continue;
+            }
+            try {
+                long value = Long.parseLong(fields[IO_TICKS_FIELD]);
+                ticks.put(fields[0] + ":" + fields[1], value);
+                ticks.put(fields[2], value);
+            } catch (NumberFormatException e) {
+                log.debug("Skipping diskstats line: {}", line);
+            }
+        }
+        return ticks;
+    }
+    
+    /**
+     * A btrfs volume is known by its /dev path, diskstats lists it by name
+     */
+    private static String key(String device) {
+        return device.startsWith("/dev/") ? Paths.get(device).getFileName().toString() : device;
+    }
+}
@@ -0,0 +1,52 @@
+package com.diskmanager.io;
+
+import com.diskmanager.util.FileSizeFormatter;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * Creates the throttles of scans and searches asked to run in the background, with the
+ * budgets and busy threshold from the configuration
+ */
+@Component
+@RequiredArgsConstructor
+public class IoThrottling {
+    
+    private final DeviceIoScheduler deviceIoScheduler;
+    
+    @Value("${app.throttle.metadata-ops-per-second:5000}")
+    private double metadataOpsPerSecond;
+    
+    @Value("${app.throttle.hash-bytes-per-second:50MB}")
+    private String hashBytesPerSecond;
+    
+    @Value("${app.throttle.busy-utilization:0.6}")
+    private double busyUtilization;
+    
+    @Value("${app.throttle.min-share:0.05}")
+    private double minShare;
+    
+    /**
+     * Throttle for a walk, adapting to the device of its root
+     */
+    public AdaptiveThrottle forPath(Path root) {
+        List<String> device = List.of(deviceIoScheduler.deviceId(root));
+        return newThrottle(new DiskUtilization(() -> device));
+    }
+    
+    /**
+     * Throttle for work spread over several devices, adapting to the busiest device the scheduler knows
+     */
+    public AdaptiveThrottle forDevicesInUse() {
+        return newThrottle(new DiskUtilization(deviceIoScheduler::deviceIds));
+    }
+    
+    private AdaptiveThrottle newThrottle(DiskUtilization utilization) {
+        return new AdaptiveThrottle(metadataOpsPerSecond, FileSizeFormatter.parseSize(hashBytesPerSecond),
+                busyUtilization, minShare, utilization);
+    }
+}
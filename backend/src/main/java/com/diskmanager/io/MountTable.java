@@ -0,0 +1,171 @@
+package com.diskmanager.io;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Mount points of the running system from /proc/self/mountinfo, each with the device it is
+ * mounted from. Bind mounts and several mounts of one file system share the device.
+ */
+@Slf4j
+public class MountTable {
+    
+    private static final Path MOUNTINFO = Paths.get("/proc/self/mountinfo");
+    private static final Path SYS_DEV_BLOCK = Paths.get("/sys/dev/block");
+    private static final Path SYS_CLASS_BLOCK = Paths.get("/sys/class/block");
+    
+    /**
+     * One line of mountinfo
+     */
+    public static class Mount {
+        private final String mountPoint;
+        private final String device; // major:minor, or the source for an anonymous device of a block file system
+        private final String fileSystem;
+        private final String source;
+        
+        Mount(String mountPoint, String device, String fileSystem, String source) {
+            this.mountPoint = mountPoint;
+            this.device = device;
+            this.fileSystem = fileSystem;
+            this.source = source;
+        }
+        
+        public String getMountPoint() {
+            return mountPoint;
+        }
+        
+        public String getDevice() {
+            return device;
+        }
+        
+        public String getFileSystem() {
+            return fileSystem;
+        }
+        
+        public String getSource() {
+            return source;
+        }
+    }
+    
+    private final Map<String, Mount> byMountPoint;
+    
+    private MountTable(Map<String, Mount> byMountPoint) {
+        this.byMountPoint = byMountPoint;
+    }
+    
+    /**
+     * Read the mount table of this process
+     * @return null where there is no /proc/self/mountinfo
+     */
+    public static MountTable load() {
+        if (!Files.isReadable(MOUNTINFO)) {
+            return null;
+        }
+        try {
+            return parse(Files.readAllLines(MOUNTINFO, StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            log.warn("Cannot read {}: {}", MOUNTINFO, e.getMessage());
+            return null;
+        }
+    }
+    
+    /**
+     * Parse mountinfo lines: id parent major:minor root mount-point options [optional...] - type source super-options
+     */
+    static MountTable parse(List<String> lines) {
+        Map<String, Mount> mounts = new HashMap<>();
+        for (String line : lines) {
+            String[] fields = line.split(" ");
+            int separator = indexOf(fields, "-", 6);
+            if (fields.length < 5 || separator < 0 || separator + 2 >= fields.length) {
+                continue;
+            }
+            String majorMinor = fields[2];
+            String mountPoint = unescape(fields[4]);
+            String fileSystem = fields[separator + 1];
+            String source = unescape(fields[separator + 2]);
+            
+            // Anonymous devices (major 0) are unique per file system; a btrfs volume still names its disk
+            String device = majorMinor.startsWith("0:") && source.startsWith("/dev/") ? source : majorMinor;
+            // Later lines are mounted on top of earlier ones at the same point
+            mounts.put(mountPoint, new Mount(mountPoint, device, fileSystem, source));
+        }
+        return new MountTable(mounts);
+    }
+    
+    /**
+     * Mount a path lives on: the nearest ancestor that is a mount point
+     */
+    public Mount find(Path path) {
+        for (Path ancestor = path.toAbsolutePath().normalize(); ancestor != null; ancestor = ancestor.getParent()) {
+            Mount mount = byMountPoint.get(ancestor.toString());
+            if (mount != null) {
+                return mount;
+            }
+        }
+        return null;
+    }
+    
+    /**
+     * Whether a device spins, from the queue attributes in sysfs; a partition uses those of its disk
+     * @return null if unknown, e.g. for file systems without a block device
+     */
+    public static Boolean isRotational(Mount mount) {
+        Path block = mount.getDevice().startsWith("/dev/") ?
+                SYS_CLASS_BLOCK.resolve(Paths.get(mount.getDevice()).getFileName().toString()) :
+                SYS_DEV_BLOCK.resolve(mount.getDevice());
+        try {
+            if (!Files.exists(block)) {
+                return null;
+            }
+            Path device = block.toRealPath();
+            for (Path candidate : new Path[] {device, device.getParent()}) {
+                Path rotational = candidate.resolve("queue").resolve("rotational");
+                if (Files.isReadable(rotational)) {
+                    return "1".equals(Files.readString(rotational).trim());
+                }
+            }
+        } catch (IOException e) {
+            log.debug("Cannot read queue attributes of {}: {}", mount.getDevice(), e.getMessage());
+        }
+        return null;
+    }
+    
+    private static int indexOf(String[] fields, String value, int from) {
+        for (int i = from; i < fields.length; i++) {
+            if (fields[i].equals(value)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+    
+    /**
+     * Undo the octal escapes mountinfo uses for space, tab, newline and backslash
+     */
+    private static String unescape(String field) {
+        if (field.indexOf('\\') < 0) {
+            return field;
+        }
+        StringBuilder result = new StringBuilder(field.length());
+        for (int i = 0; i < field.length(); i++) {
+            char c = field.charAt(i);
+            if (c == '\\' && i + 3 < field.length()
+                    && field.substring(i + 1, i + 4).chars().allMatch(d -> d >= '0' && d <= '7')) {
+                result.append((char) Integer.parseInt(field.substring(i + 1, i + 4), 8));
+                i += 3;
+            } else {
+                result.append(c);
+            }
+        }
+        return result.toString();
+    }
+}
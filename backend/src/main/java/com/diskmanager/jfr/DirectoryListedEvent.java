@@ -0,0 +1,54 @@
+package com.diskmanager.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+import jdk.jfr.Timespan;
+
+import java.nio.file.Path;
+
+/**
+ * A directory read by a walk. The duration covers reading and visiting the entries;
+ * subdirectories are listed by events of their own.
+ */
+@Name("com.diskmanager.DirectoryListed")
+@Label("Directory Listed")
+@Category({"Disk Analyzer", "Scan"})
+@Description("Directory read and its entries visited by a scan")
+@StackTrace(false)
+@Threshold(DirectoryListedEvent.DEFAULT_THRESHOLD)
+public class DirectoryListedEvent extends jdk.jfr.Event {
+    
+    public static final String DEFAULT_THRESHOLD = "20 ms";
+    
+    @Label("Directory")
+    String directory;
+    
+    @Label("Entries")
+    int entries;
+    
+    @Label("Read Time")
+    @Description("Opening and reading the directory, without visiting its entries")
+    @Timespan
+    long readTime;
+    
+    @Label("Failed")
+    boolean failed;
+    
+    /**
+     * End the event and commit it if it took longer than the threshold
+     */
+    public void finish(Path directory, int entries, long readNanos, boolean failed) {
+        end();
+        if (shouldCommit()) {
+            this.directory = directory.toString();
+            this.entries = entries;
+            this.readTime = readNanos;
+            this.failed = failed;
+            commit();
+        }
+    }
+}
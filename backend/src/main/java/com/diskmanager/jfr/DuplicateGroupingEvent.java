@@ -0,0 +1,55 @@
+package com.diskmanager.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/**
+ * One pass that groups duplicate candidates: by size, head/tail hash or full hash in the
+ * pipeline, or the set-based regrouping in the database
+ */
+@Name("com.diskmanager.DuplicateGrouping")
+@Label("Duplicate Grouping")
+@Category({"Disk Analyzer", "Duplicates"})
+@Description("Grouping pass of a duplicate search, including the hashing it waited for")
+@StackTrace(false)
+@Threshold(DuplicateGroupingEvent.DEFAULT_THRESHOLD)
+public class DuplicateGroupingEvent extends jdk.jfr.Event {
+    
+    public static final String DEFAULT_THRESHOLD = "0 ms";
+    
+    public static final String SIZE = "size";
+    public static final String HEAD_TAIL = "head-tail";
+    public static final String FULL = "full";
+    public static final String DATABASE = "database";
+    
+    @Label("Pass")
+    String pass;
+    
+    @Label("Algorithm")
+    String algorithm;
+    
+    @Label("Candidates")
+    @Description("Files looked at by the pass, -1 where the database does not report them")
+    long candidates;
+    
+    @Label("Groups")
+    long groups;
+    
+    /**
+     * End the event and commit it if it took longer than the threshold
+     */
+    public void finish(String pass, String algorithm, long candidates, long groups) {
+        end();
+        if (shouldCommit()) {
+            this.pass = pass;
+            this.algorithm = algorithm;
+            this.candidates = candidates;
+            this.groups = groups;
+            commit();
+        }
+    }
+}
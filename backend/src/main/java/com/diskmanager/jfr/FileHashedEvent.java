@@ -0,0 +1,66 @@
+package com.diskmanager.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+import jdk.jfr.Timespan;
+
+import java.nio.file.Path;
+
+/**
+ * A file read by a stage of the duplicate pipeline, without cache hits. The duration includes the
+ * throttling waits between its chunks, which are also reported on their own.
+ */
+@Name("com.diskmanager.FileHashed")
+@Label("File Hashed")
+@Category({"Disk Analyzer", "Duplicates"})
+@Description("File or its head and tail read and hashed")
+@StackTrace(false)
+@Threshold(FileHashedEvent.DEFAULT_THRESHOLD)
+public class FileHashedEvent extends jdk.jfr.Event {
+    
+    public static final String DEFAULT_THRESHOLD = "50 ms";
+    
+    @Label("File")
+    String file;
+    
+    @Label("Algorithm")
+    String algorithm;
+    
+    @Label("Bytes")
+    @DataAmount
+    long bytes;
+    
+    @Label("Head and Tail")
+    @Description("Only the first and last chunk were read")
+    boolean partial;
+    
+    @Label("Failed")
+    boolean failed;
+    
+    @Label("Throttled")
+    @Description("Time spent waiting for the hashing budget")
+    @Timespan
+    long throttled;
+    
+    /**
+     * End the event and commit it if it took longer than the threshold
+     */
+    public void finish(Path file, String algorithm, long bytes, boolean partial, boolean failed,
+                       long throttledNanos) {
+        end();
+        if (shouldCommit()) {
+            this.file = file.toString();
+            this.algorithm = algorithm;
+            this.bytes = bytes;
+            this.partial = partial;
+            this.failed = failed;
+            this.throttled = throttledNanos;
+            commit();
+        }
+    }
+}
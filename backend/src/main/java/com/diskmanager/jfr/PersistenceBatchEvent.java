@@ -0,0 +1,40 @@
+package com.diskmanager.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/**
+ * A chunk of scan results written and committed in one transaction
+ */
+@Name("com.diskmanager.PersistenceBatch")
+@Label("Persistence Batch")
+@Category({"Disk Analyzer", "Persistence"})
+@Description("JDBC batch of scan results committed in its own transaction")
+@StackTrace(false)
+@Threshold(PersistenceBatchEvent.DEFAULT_THRESHOLD)
+public class PersistenceBatchEvent extends jdk.jfr.Event {
+    
+    public static final String DEFAULT_THRESHOLD = "100 ms";
+    
+    @Label("Operation")
+    String operation;
+    
+    @Label("Rows")
+    int rows;
+    
+    /**
+     * End the event and commit it if it took longer than the threshold
+     */
+    public void finish(String operation, int rows) {
+        end();
+        if (shouldCommit()) {
+            this.operation = operation;
+            this.rows = rows;
+            commit();
+        }
+    }
+}
@@ -0,0 +1,168 @@
+package com.diskmanager.jfr;
+
+import com.diskmanager.dto.RecordingDTO;
+import com.diskmanager.util.FileSizeFormatter;
+import jdk.jfr.Configuration;
+import jdk.jfr.Recording;
+import jdk.jfr.RecordingState;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.text.ParseException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Bounded flight recordings of the scanner events, one per scan job. A recording stops by itself
+ * after its duration, when the job finishes, or when it is stopped; it is then written to
+ * app.jfr.directory. Events are JVM-wide, so scans running at the same time are recorded too.
+ */
+@Component
+@Slf4j
+public class ScanRecordings {
+    
+    private final Map<String, Recording> recordings = new ConcurrentHashMap<>();
+    
+    @Value("${app.jfr.directory:${java.io.tmpdir}/disk-cleanup-jfr}")
+    private String directory;
+    
+    @Value("${app.jfr.max-duration-ms:600000}")
+    private long maxDurationMillis;
+    
+    @Value("${app.jfr.max-size:100MB}")
+    private String maxSize;
+    
+    @Value("${app.jfr.configuration:}")
+    private String configuration;
+    
+    @Value("${app.jfr.threshold.directory-listed-ms:20}")
+    private long directoryListedThreshold;
+    
+    @Value("${app.jfr.threshold.file-hashed-ms:50}")
+    private long fileHashedThreshold;
+    
+    @Value("${app.jfr.threshold.persistence-batch-ms:100}")
+    private long persistenceBatchThreshold;
+    
+    @Value("${app.jfr.threshold.duplicate-grouping-ms:0}")
+    private long duplicateGroupingThreshold;
+    
+    /**
+     * Start recording for a job
+     * @param durationMillis stop after this long, at most app.jfr.max-duration-ms; null for the maximum
+     * @throws IllegalStateException if the job is already being recorded
+     */
+    public synchronized RecordingDTO start(String jobId, Long durationMillis) {
+        Recording previous = recordings.get(jobId);
+        if (previous != null && previous.getState() == RecordingState.RUNNING) {
+            throw new IllegalStateException("Scan job " + jobId + " is already being recorded");
+        }
+        long duration = durationMillis != null ? Math.min(durationMillis, maxDurationMillis) : maxDurationMillis;
+        if (duration <= 0) {
+            throw new IllegalArgumentException("Duration must be positive");
+        }
+        
+        Recording recording = newRecording();
+        recording.setName("scan-job-" + jobId);
+        recording.setDuration(Duration.ofMillis(duration));
+        recording.setMaxSize(FileSizeFormatter.parseSize(maxSize));
+        recording.setToDisk(true);
+        try {
+            Path target = Paths.get(directory);
+            Files.createDirectories(target);
+            recording.setDestination(target.resolve("scan-job-" + jobId + "-" + System.currentTimeMillis() + ".jfr"));
+        } catch (IOException e) {
+            recording.close();
+            throw new UncheckedIOException("Cannot write recordings to " + directory, e);
+        }
+        recording.start();
+        if (previous != null) {
+            previous.close();
+        }
+        recordings.put(jobId, recording);
+        log.info("Recording scan job {} for at most {} ms to {}", jobId, duration, recording.getDestination());
+        return toDTO(jobId, recording);
+    }
+    
+    public Optional<RecordingDTO> get(String jobId) {
+        return Optional.ofNullable(recordings.get(jobId)).map(recording -> toDTO(jobId, recording));
+    }
+    
+    /**
+     * Stop the recording of a job and write it out; a recording that already stopped is returned as is
+     */
+    public synchronized Optional<RecordingDTO> stop(String jobId) {
+        Recording recording = recordings.get(jobId);
+        if (recording == null) {
+            return Optional.empty();
+        }
+        if (recording.getState() == RecordingState.RUNNING) {
+            recording.stop(); // writes the destination
+            log.info("Recording of scan job {} written to {}", jobId, recording.getDestination());
+        }
+        recording.close(); // releases the buffered chunks, the written file stays
+        return Optional.of(toDTO(jobId, recording));
+    }
+    
+    /**
+     * Stop and forget the recording of a job that is evicted; the file stays
+     */
+    public synchronized void remove(String jobId) {
+        Recording recording = recordings.remove(jobId);
+        if (recording != null) {
+            recording.close();
+        }
+    }
+    
+    /**
+     * The scanner events with their configured thresholds, on top of a JDK configuration if one is set
+     */
+    private Recording newRecording() {
+        Recording recording;
+        if (configuration.isBlank()) {
+            recording = new Recording();
+        } else {
+            try {
+                recording = new Recording(Configuration.getConfiguration(configuration));
+            } catch (IOException | ParseException e) {
+                throw new IllegalStateException("Cannot load JFR configuration " + configuration, e);
+            }
+        }
+        recording.enable(DirectoryListedEvent.class).withThreshold(Duration.ofMillis(directoryListedThreshold));
+        recording.enable(FileHashedEvent.class).withThreshold(Duration.ofMillis(fileHashedThreshold));
+        recording.enable(PersistenceBatchEvent.class).withThreshold(Duration.ofMillis(persistenceBatchThreshold));
+        recording.enable(DuplicateGroupingEvent.class).withThreshold(Duration.ofMillis(duplicateGroupingThreshold));
+        return recording;
+    }
+    
+    private RecordingDTO toDTO(String jobId, Recording recording) {
+        RecordingDTO dto = new RecordingDTO();
+        dto.setJobId(jobId);
+        boolean running = recording.getState() == RecordingState.RUNNING;
+        dto.setState(running ? RecordingState.RUNNING.name() : RecordingState.STOPPED.name());
+        dto.setFile(recording.getDestination().toString());
+        if (recording.getStartTime() != null) {
+            dto.setStartedAt(LocalDateTime.ofInstant(recording.getStartTime(), ZoneId.systemDefault()));
+        }
+        dto.setMaxDurationMillis(recording.getDuration().toMillis());
+        dto.setMaxSizeBytes(recording.getMaxSize());
+        if (!running) {
+            try {
+                dto.setSizeBytes(Files.size(recording.getDestination()));
+            } catch (IOException e) {
+                log.debug("Recording {} not written: {}", recording.getDestination(), e.getMessage());
+            }
+        }
+        return dto;
+    }
+}
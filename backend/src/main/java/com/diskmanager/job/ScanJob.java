@@ -0,0 +1,142 @@
+package com.diskmanager.job;
+
+import com.diskmanager.dto.ScanRequestDTO;
+import com.diskmanager.dto.ScanResultDTO;
+import com.diskmanager.scanner.ScanStatistics;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * State of one submitted scan. Progress is read from the statistics the walk updates,
+ * status changes are synchronized on the job.
+ */
+public class ScanJob {
+    
+    public enum Status { QUEUED, RUNNING, COMPLETED, FAILED, CANCELLED }
+    
+    private final String id = UUID.randomUUID().toString();
+    private final ScanRequestDTO request;
+    private final ScanStatistics statistics = new ScanStatistics();
+    private final LocalDateTime submittedAt = LocalDateTime.now();
+    private final Long expectedFiles; // files stored by the previous scan of the path, null if never scanned
+    
+    private Status status = Status.QUEUED;
+    private boolean cancelRequested;
+    private LocalDateTime startedAt;
+    private LocalDateTime finishedAt;
+    private ScanResultDTO result;
+    private String message;
+    
+    public ScanJob(ScanRequestDTO request, Long expectedFiles) {
+        this.request = request;
+        this.expectedFiles = expectedFiles;
+    }
+    
+    /**
+     * Move a queued job to running
+     * @return false if the job was cancelled while queued
+     */
+    public synchronized boolean start() {
+        if (status != Status.QUEUED) {
+            return false;
+        }
+        status = Status.RUNNING;
+        startedAt = LocalDateTime.now();
+        return true;
+    }
+    
+    public synchronized void complete(ScanResultDTO result) {
+        this.result = result;
+        finish(Status.COMPLETED, cancelRequested ? "Scan completed, cancelled too late to stop storing results" : null);
+    }
+    
+    public synchronized void fail(String message) {
+        finish(Status.FAILED, message);
+    }
+    
+    public synchronized void cancelled() {
+        finish(Status.CANCELLED, "Scan cancelled");
+    }
+    
+    /**
+     * Request cancellation; a queued job is cancelled immediately, a running walk stops at
+     * the next directory and its results are discarded
+     * @return false if the job had already finished
+     */
+    public synchronized boolean cancel() {
+        if (status == Status.QUEUED) {
+            cancelled();
+            return true;
+        }
+        if (status != Status.RUNNING) {
+            return false;
+        }
+        cancelRequested = true;
+        statistics.cancel();
+        return true;
+    }
+    
+    private void finish(Status status, String message) {
+        this.status = status;
+        this.message = message;
+        this.finishedAt = LocalDateTime.now();
+    }
+    
+    public synchronized boolean isFinished() {
+        return status != Status.QUEUED && status != Status.RUNNING;
+    }
+    
+    /**
+     * Phase of a running job: walking the tree or storing what was found
+     */
+    public synchronized String getPhase() {
+        if (status != Status.RUNNING) {
+            return status.name();
+        }
+        if (cancelRequested && !statistics.isFinished()) {
+            return "CANCELLING";
+        }
+        return statistics.isFinished() ? "SAVING" : "WALKING";
+    }
+    
+    public String getId() {
+        return id;
+    }
+    
+    public ScanRequestDTO getRequest() {
+        return request;
+    }
+    
+    public ScanStatistics getStatistics() {
+        return statistics;
+    }
+    
+    public LocalDateTime getSubmittedAt() {
+        return submittedAt;
+    }
+    
+    public Long getExpectedFiles() {
+        return expectedFiles;
+    }
+    
+    public synchronized Status getStatus() {
+        return status;
+    }
+    
+    public synchronized LocalDateTime getStartedAt() {
+        return startedAt;
+    }
+    
+    public synchronized LocalDateTime getFinishedAt() {
+        return finishedAt;
+    }
+    
+    public synchronized ScanResultDTO getResult() {
+        return result;
+    }
+    
+    public synchronized String getMessage() {
+        return message;
+    }
+}
@@ -0,0 +1,145 @@
+package com.diskmanager.metrics;
+
+import com.diskmanager.scanner.ScanStatistics;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.FunctionTimer;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+import java.util.function.ToLongFunction;
+
+/**
+ * Micrometer meters of the scan, hash and persist stages, exported through /actuator/prometheus.
+ * Walks count into their {@link ScanStatistics} as usual; the directory, file, list and stat
+ * meters read those counters of every running walk plus the totals of the finished ones, so the
+ * walkers stay free of metrics code and a scrape sees a walk progress while it runs.
+ */
+@Component
+public class ScanMetrics {
+    
+    private final MeterRegistry registry;
+    private final Set<ScanStatistics> running = new HashSet<>();
+    private final Timer persistTimer;
+    private final Map<String, Counter> hashedBytes = new ConcurrentHashMap<>();
+    private final Map<String, Timer> hashTimers = new ConcurrentHashMap<>();
+    
+    // Totals of finished walks
+    private long directories;
+    private long files;
+    private long listings;
+    private long listingNanos;
+    private long attributeReads;
+    private long attributeReadNanos;
+    
+    public ScanMetrics(MeterRegistry registry) {
+        this.registry = registry;
+        FunctionCounter.builder("disk.scan.directories", this,
+                        metrics -> metrics.total(ScanStatistics::getDirectoriesVisited, () -> metrics.directories))
+                .description("Directories listed by scans")
+                .register(registry);
+        FunctionCounter.builder("disk.scan.files", this,
+                        metrics -> metrics.total(ScanStatistics::getFilesVisited, () -> metrics.files))
+                .description("Regular files visited by scans")
+                .register(registry);
+        FunctionTimer.builder("disk.stage.list", this,
+                        metrics -> metrics.total(ScanStatistics::getDirectoryListings, () -> metrics.listings),
+                        metrics -> metrics.total(ScanStatistics::getListingNanos, () -> metrics.listingNanos),
+                        TimeUnit.NANOSECONDS)
+                .description("Opening and reading directories, without visiting their entries")
+                .register(registry);
+        FunctionTimer.builder("disk.stage.stat", this,
+                        metrics -> metrics.total(ScanStatistics::getAttributeReads, () -> metrics.attributeReads),
+                        metrics -> metrics.total(ScanStatistics::getAttributeReadNanos,
+                                () -> metrics.attributeReadNanos),
+                        TimeUnit.NANOSECONDS)
+                .description("Attribute reads of directory entries")
+                .register(registry);
+        Gauge.builder("disk.scan.active", this, metrics -> metrics.activeWalks())
+                .description("Walks in progress")
+                .register(registry);
+        persistTimer = Timer.builder("disk.stage.persist")
+                .description("Transactions writing scan results")
+                .publishPercentileHistogram()
+                .register(registry);
+    }
+    
+    /**
+     * Count a walk into the meters until the returned handle is closed
+     */
+    public Tracking track(ScanStatistics statistics) {
+        synchronized (this) {
+            running.add(statistics);
+        }
+        return () -> finished(statistics);
+    }
+    
+    /**
+     * Record a file read by a hash stage; cache hits and throttling waits are not included
+     */
+    public void hashed(String algorithm, long bytes, long nanos) {
+        hashedBytes.computeIfAbsent(algorithm, name -> Counter.builder("disk.hash.bytes")
+                        .baseUnit("bytes")
+                        .description("Bytes read and hashed")
+                        .tag("algorithm", name)
+                        .register(registry))
+                .increment(bytes);
+        hashTimers.computeIfAbsent(algorithm, name -> Timer.builder("disk.stage.hash")
+                        .description("Hashing a file or its head and tail")
+                        .tag("algorithm", name)
+                        .publishPercentileHistogram()
+                        .register(registry))
+                .record(nanos, TimeUnit.NANOSECONDS);
+    }
+    
+    /**
+     * Run a unit of persistence work and time it
+     */
+    public <T> T persist(Supplier<T> work) {
+        return persistTimer.record(work);
+    }
+    
+    private synchronized void finished(ScanStatistics statistics) {
+        if (running.remove(statistics)) {
+            directories += statistics.getDirectoriesVisited();
+            files += statistics.getFilesVisited();
+            listings += statistics.getDirectoryListings();
+            listingNanos += statistics.getListingNanos();
+            attributeReads += statistics.getAttributeReads();
+            attributeReadNanos += statistics.getAttributeReadNanos();
+        }
+    }
+    
+    /**
+     * Finished total plus the running walks, under the same lock as {@link #finished} so a scrape
+     * never sees a walk counted twice or not at all
+     */
+    private synchronized long total(ToLongFunction<ScanStatistics> counter, LongSupplier finished) {
+        long total = finished.getAsLong();
+        for (ScanStatistics statistics : running) {
+            total += counter.applyAsLong(statistics);
+        }
+        return total;
+    }
+    
+    private synchronized int activeWalks() {
+        return running.size();
+    }
+    
+    /**
+     * Ends the tracking of a walk, whether it completed or failed
+     */
+    public interface Tracking extends AutoCloseable {
+        @Override
+        void close();
+    }
+}
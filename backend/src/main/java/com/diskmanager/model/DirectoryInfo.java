@@ -0,0 +1,57 @@
+package com.diskmanager.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Entity representing a scanned directory and the state it had when it was listed.
+ * Directories form a tree of names; only a root without a stored parent keeps its full path.
+ */
+@Entity
+@Table(name = "directories", indexes = {
+        @Index(name = "idx_directories_parent_name", columnList = "parentId, name", unique = true)
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class DirectoryInfo {
+    
+    public static final int ID_BLOCK_SIZE = 1000; // ids reserved per sequence call
+    
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "directories_seq")
+    @SequenceGenerator(name = "directories_seq", sequenceName = "directories_seq", allocationSize = ID_BLOCK_SIZE)
+    private Long id;
+    
+    @Column
+    private Long parentId; // null for a scan root
+    
+    @Column(nullable = false, length = 1000)
+    private String name; // file name, the absolute path for a root
+    
+    @Column(nullable = false)
+    private Long lastModifiedMicros; // directory mtime, changes when entries are added, removed or renamed
+    
+    @Column
+    private LocalDateTime scannedAt;
+    
+    // du-style rollups of everything below this directory, maintained by every scan
+    @Column(nullable = false)
+    private Long totalFiles = 0L;
+    
+    @Column(nullable = false)
+    private Long totalSize = 0L; // in bytes
+    
+    @Column(nullable = false)
+    private Long roundedSize = 0L; // sizes rounded up to whole file system blocks
+    
+    @Column(nullable = false)
+    private Long totalDirectories = 0L;
+    
+    @Transient
+    private String path; // absolute path, resolved through the parents by DirectoryTree
+}
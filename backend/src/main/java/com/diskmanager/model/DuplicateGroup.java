@@ -0,0 +1,46 @@
+package com.diskmanager.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Entity representing a set of files with identical content.
+ * Groups are rebuilt by every duplicate search and numbered by reclaimable bytes, largest first.
+ */
+@Entity
+@Table(name = "duplicate_groups", indexes = {
+        @Index(name = "idx_duplicate_groups_hash", columnList = "contentHash"),
+        @Index(name = "idx_duplicate_groups_reclaimable", columnList = "reclaimableBytes, id"),
+        @Index(name = "idx_duplicate_groups_size", columnList = "fileSize, id"),
+        @Index(name = "idx_duplicate_groups_count", columnList = "fileCount, id")
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class DuplicateGroup {
+    
+    @Id
+    private Long id; // assigned by the grouping query
+    
+    @Column(nullable = false, length = 64)
+    private String contentHash;
+    
+    @Column(nullable = false, length = 16)
+    private String hashAlgorithm;
+    
+    @Column(nullable = false)
+    private Long fileSize; // size of each copy
+    
+    @Column(nullable = false)
+    private Long fileCount;
+    
+    @Column(nullable = false)
+    private Long reclaimableBytes; // fileSize * (fileCount - 1), freed by keeping one copy
+    
+    @Column
+    private LocalDateTime createdAt;
+}
@@ -11,27 +11,39 @@ import java.time.LocalDateTime;
  * Entity representing a file in the system
  */
 @Entity
-@Table(name = "files")
+@Table(name = "files", indexes = {
+        @Index(name = "idx_files_directory", columnList = "directoryId"),
+        @Index(name = "idx_files_size", columnList = "fileSize, id"),
+        @Index(name = "idx_files_hash", columnList = "contentHash"),
+        @Index(name = "idx_files_type", columnList = "fileType"),
+        @Index(name = "idx_files_duplicate_group", columnList = "duplicateGroupId")
+})
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
 public class FileInfo {
     
+    public static final int ID_BLOCK_SIZE = 1000; // ids reserved per sequence call
+    
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "files_seq")
+    @SequenceGenerator(name = "files_seq", sequenceName = "files_seq", allocationSize = ID_BLOCK_SIZE)
     private Long id;
     
+    @Column
+    private Long directoryId; // DirectoryInfo containing this file
+    
     @Column(nullable = false)
     private String fileName;
     
-    @Column(nullable = false, length = 1000)
-    private String filePath;
-    
     @Column(nullable = false)
     private Long fileSize; // in bytes
     
-    @Column(length = 32)
-    private String md5Hash;
+    @Column(length = 64)
+    private String contentHash;
+    
+    @Column(length = 16)
+    private String hashAlgorithm; // algorithm that produced contentHash
     
     @Column
     private String fileExtension;
@@ -50,4 +62,7 @@ public class FileInfo {
     
     @Column
     private Long duplicateGroupId;
+    
+    @Transient
+    private String filePath; // directory path and file name, resolved by DirectoryTree when loaded
 }
@@ -0,0 +1,156 @@
+package com.diskmanager.persistence;
+
+import com.diskmanager.model.DirectoryInfo;
+import com.diskmanager.repository.FileInfoRepository;
+import com.diskmanager.scanner.DirectoryTotals;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Keeps the du-style rollups of the directories table current. A full scan takes them from the
+ * walker. An incremental scan aggregates only the directories whose own files changed and
+ * derives the own share of every other directory from its stored rollup minus its children's.
+ * A rescanned subtree passes its difference on to the stored directories above it.
+ */
+@Component
+@RequiredArgsConstructor
+public class DirectoryRollups {
+    
+    private static final int CHUNK_SIZE = 1000;
+    
+    private final FileInfoRepository fileInfoRepository;
+    private final DirectoryTree directoryTree;
+    private final ScanResultWriter scanResultWriter;
+    
+    public static void setTotals(DirectoryInfo directory, DirectoryTotals totals) {
+        directory.setTotalFiles(totals.getFiles());
+        directory.setTotalSize(totals.getBytes());
+        directory.setRoundedSize(totals.getRoundedBytes());
+        directory.setTotalDirectories(totals.getDirectories());
+    }
+    
+    public static DirectoryTotals getTotals(DirectoryInfo directory) {
+        return new DirectoryTotals(directory.getTotalFiles(), directory.getTotalSize(),
+                directory.getRoundedSize(), directory.getTotalDirectories());
+    }
+    
+    /**
+     * Pass the change of a rescanned subtree on to the directories above it, in the caller's transaction
+     * @param parentId stored parent of the subtree root, null for a root of its own
+     * @param before rollup of the subtree root before the scan, null if it was not stored
+     * @param after rollup of the subtree root after the scan, null if it is gone
+     */
+    public void subtreeReplaced(Long parentId, DirectoryTotals before, DirectoryTotals after) {
+        if (parentId == null) {
+            return;
+        }
+        DirectoryTotals delta = difference(asChild(after), asChild(before));
+        if (!isZero(delta)) {
+            scanResultWriter.addToTotals(directoryTree.ancestorIds(parentId), delta);
+        }
+    }
+    
+    /**
+     * Recompute the rollups of a tree once an incremental scan has written its changes
+     * @param prior directories of the tree as stored before the scan, with their rollups
+     * @param current directories of the tree after the scan, with ids and parents
+     * @param changedIds directories whose own files were added, modified or deleted
+     * @param blockSize allocation unit the walker rounds file sizes to
+     * @return number of directories whose rollups changed
+     */
+    public int recompute(Collection<DirectoryInfo> prior, Collection<DirectoryInfo> current,
+                         Set<Long> changedIds, long blockSize) {
+        Map<Long, DirectoryTotals> before = new HashMap<>();
+        Map<Long, List<DirectoryInfo>> priorChildren = new HashMap<>();
+        for (DirectoryInfo directory : prior) {
+            before.put(directory.getId(), getTotals(directory));
+            priorChildren.computeIfAbsent(directory.getParentId(), k -> new ArrayList<>()).add(directory);
+        }
+        
+        // Own share of unchanged directories: their rollup minus those of their children
+        Map<Long, DirectoryTotals> own = new HashMap<>();
+        for (DirectoryInfo directory : prior) {
+            DirectoryTotals children = new DirectoryTotals();
+            priorChildren.getOrDefault(directory.getId(), Collections.emptyList())
+                    .forEach(child -> children.addDirectory(getTotals(child)));
+            own.put(directory.getId(), new DirectoryTotals(directory.getTotalFiles() - children.getFiles(),
+                    directory.getTotalSize() - children.getBytes(),
+                    directory.getRoundedSize() - children.getRoundedBytes(), 0));
+        }
+        List<Long> changed = new ArrayList<>(changedIds);
+        for (int i = 0; i < changed.size(); i += CHUNK_SIZE) {
+            List<Long> chunk = changed.subList(i, Math.min(changed.size(), i + CHUNK_SIZE));
+            chunk.forEach(id -> own.put(id, new DirectoryTotals()));
+            for (Object[] row : fileInfoRepository.sumByDirectory(chunk, blockSize)) {
+                own.put((Long) row[0], new DirectoryTotals(((Number) row[1]).longValue(),
+                        ((Number) row[2]).longValue(), ((Number) row[3]).longValue(), 0));
+            }
+        }
+        
+        Map<Long, List<DirectoryInfo>> children = new HashMap<>();
+        Set<Long> ids = new HashSet<>();
+        for (DirectoryInfo directory : current) {
+            ids.add(directory.getId());
+            children.computeIfAbsent(directory.getParentId(), k -> new ArrayList<>()).add(directory);
+        }
+        List<DirectoryInfo> updated = new ArrayList<>();
+        for (DirectoryInfo directory : current) {
+            if (directory.getParentId() == null || !ids.contains(directory.getParentId())) {
+                DirectoryTotals after = sum(directory, own, children, updated);
+                scanResultWriter.inTransaction(() -> {
+                    subtreeReplaced(directory.getParentId(), before.get(directory.getId()), after);
+                    return null;
+                });
+            }
+        }
+        scanResultWriter.updateTotals(updated);
+        return updated.size();
+    }
+    
+    /**
+     * Rollup of a directory from the own shares below it, depth first
+     */
+    private static DirectoryTotals sum(DirectoryInfo directory, Map<Long, DirectoryTotals> own,
+                                       Map<Long, List<DirectoryInfo>> children, List<DirectoryInfo> updated) {
+        DirectoryTotals totals = new DirectoryTotals();
+        totals.add(own.getOrDefault(directory.getId(), new DirectoryTotals()));
+        for (DirectoryInfo child : children.getOrDefault(directory.getId(), Collections.emptyList())) {
+            totals.addDirectory(sum(child, own, children, updated));
+        }
+        if (!isZero(difference(totals, getTotals(directory)))) {
+            setTotals(directory, totals);
+            updated.add(directory);
+        }
+        return totals;
+    }
+    
+    /**
+     * Totals a directory adds to its parent: everything below it and itself
+     */
+    private static DirectoryTotals asChild(DirectoryTotals totals) {
+        DirectoryTotals child = new DirectoryTotals();
+        if (totals != null) {
+            child.addDirectory(totals);
+        }
+        return child;
+    }
+    
+    private static DirectoryTotals difference(DirectoryTotals a, DirectoryTotals b) {
+        return new DirectoryTotals(a.getFiles() - b.getFiles(), a.getBytes() - b.getBytes(),
+                a.getRoundedBytes() - b.getRoundedBytes(), a.getDirectories() - b.getDirectories());
+    }
+    
+    private static boolean isZero(DirectoryTotals totals) {
+        return totals.getFiles() == 0 && totals.getBytes() == 0 && totals.getRoundedBytes() == 0
+                && totals.getDirectories() == 0;
+    }
+}
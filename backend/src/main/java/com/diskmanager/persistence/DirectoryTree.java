@@ -0,0 +1,224 @@
+package com.diskmanager.persistence;
+
+import com.diskmanager.model.DirectoryInfo;
+import com.diskmanager.model.FileInfo;
+import com.diskmanager.repository.DirectoryInfoRepository;
+import com.diskmanager.repository.FileInfoRepository;
+import com.diskmanager.util.PathUtil;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Paths of the normalized directory table. Files and directories store only their name and
+ * the id of their parent directory, so absolute paths are rebuilt from the parent chain.
+ * Rebuilt paths are kept in a bounded least-recently-used cache; ids are never reused and a
+ * stored directory never moves, so cached paths do not go stale.
+ */
+@Component
+public class DirectoryTree {
+    
+    private static final int LOAD_CHUNK_SIZE = 1000;
+    
+    private final DirectoryInfoRepository directoryInfoRepository;
+    private final FileInfoRepository fileInfoRepository;
+    private final Map<Long, String> paths;
+    
+    public DirectoryTree(DirectoryInfoRepository directoryInfoRepository, FileInfoRepository fileInfoRepository,
+                         @Value("${app.directories.path-cache-size:100000}") int pathCacheSize) {
+        this.directoryInfoRepository = directoryInfoRepository;
+        this.fileInfoRepository = fileInfoRepository;
+        this.paths = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, String> eldest) {
+                return size() > pathCacheSize;
+            }
+        };
+    }
+    
+    /**
+     * Id of a stored directory: the deepest stored root above it, then one lookup per name below that root
+     * @return null if the directory was not listed by a scan
+     */
+    public Long findId(Path directory) {
+        Path normalized = directory.toAbsolutePath().normalize();
+        List<String> ancestors = new ArrayList<>();
+        for (Path ancestor = normalized; ancestor != null; ancestor = ancestor.getParent()) {
+            ancestors.add(ancestor.toString());
+        }
+        Optional<DirectoryInfo> root = directoryInfoRepository.findRoots(ancestors).stream()
+                .max(Comparator.comparingInt(candidate -> candidate.getName().length()));
+        if (root.isEmpty()) {
+            return null;
+        }
+        
+        Long id = root.get().getId();
+        int depth = Paths.get(root.get().getName()).getNameCount();
+        for (int i = depth; i < normalized.getNameCount(); i++) {
+            Optional<DirectoryInfo> child = directoryInfoRepository.findChild(id, normalized.getName(i).toString());
+            if (child.isEmpty()) {
+                return null;
+            }
+            id = child.get().getId();
+        }
+        cache(id, normalized.toString());
+        return id;
+    }
+    
+    /**
+     * Directories at or below a root with their paths, including roots scanned on their own below it
+     */
+    public List<DirectoryInfo> subtree(Path root) {
+        Path normalized = root.toAbsolutePath().normalize();
+        Long rootId = findId(normalized);
+        List<DirectoryInfo> directories = directoryInfoRepository.findSubtree(rootId != null ? rootId : -1,
+                PathUtil.likePrefix(normalized));
+        
+        Map<Long, DirectoryInfo> byId = new HashMap<>();
+        directories.forEach(directory -> byId.put(directory.getId(), directory));
+        for (DirectoryInfo directory : directories) {
+            if (directory.getId().equals(rootId)) {
+                directory.setPath(normalized.toString());
+            }
+        }
+        for (DirectoryInfo directory : directories) {
+            resolve(directory, byId);
+        }
+        return directories;
+    }
+    
+    /**
+     * Path of a stored directory
+     */
+    public String getPath(DirectoryInfo directory) {
+        Map<Long, DirectoryInfo> loaded = new HashMap<>();
+        loaded.put(directory.getId(), directory);
+        return path(directory.getId(), loaded);
+    }
+    
+    /**
+     * Ids of a directory and of every stored directory above it, nearest first
+     */
+    public List<Long> ancestorIds(Long id) {
+        List<Long> ids = new ArrayList<>();
+        while (id != null) {
+            Optional<DirectoryInfo> directory = directoryInfoRepository.findById(id);
+            if (directory.isEmpty()) {
+                break;
+            }
+            ids.add(id);
+            id = directory.get().getParentId();
+        }
+        return ids;
+    }
+    
+    /**
+     * Number of files at or below a directory
+     */
+    public long countFiles(Path root) {
+        Path normalized = root.toAbsolutePath().normalize();
+        Long rootId = findId(normalized);
+        return fileInfoRepository.countSubtree(rootId != null ? rootId : -1, PathUtil.likePrefix(normalized));
+    }
+    
+    /**
+     * One page of the files at or below a directory in the order they were written, with their paths
+     */
+    public List<FileInfo> findFiles(Path root, int page, int size) {
+        Path normalized = root.toAbsolutePath().normalize();
+        Long rootId = findId(normalized);
+        List<FileInfo> files = fileInfoRepository.findSubtree(rootId != null ? rootId : -1,
+                PathUtil.likePrefix(normalized), PageRequest.of(page, size));
+        resolvePaths(files);
+        return files;
+    }
+    
+    /**
+     * Set the path of files loaded from the database. Directories missing from the cache are
+     * loaded in chunks, one round per level of ancestors that is not cached either.
+     */
+    public void resolvePaths(Collection<FileInfo> files) {
+        Map<Long, DirectoryInfo> loaded = new HashMap<>();
+        Set<Long> missing = new HashSet<>();
+        for (FileInfo file : files) {
+            if (file.getDirectoryId() != null && cached(file.getDirectoryId()) == null) {
+                missing.add(file.getDirectoryId());
+            }
+        }
+        while (!missing.isEmpty()) {
+            List<Long> ids = new ArrayList<>(missing);
+            missing.clear();
+            for (int i = 0; i < ids.size(); i += LOAD_CHUNK_SIZE) {
+                for (DirectoryInfo directory : directoryInfoRepository.findAllById(
+                        ids.subList(i, Math.min(ids.size(), i + LOAD_CHUNK_SIZE)))) {
+                    loaded.put(directory.getId(), directory);
+                    Long parentId = directory.getParentId();
+                    if (parentId != null && !loaded.containsKey(parentId) && cached(parentId) == null) {
+                        missing.add(parentId);
+                    }
+                }
+            }
+            missing.removeAll(loaded.keySet());
+        }
+        
+        for (FileInfo file : files) {
+            String directory = file.getDirectoryId() != null ? path(file.getDirectoryId(), loaded) : null;
+            file.setFilePath(directory != null ? PathUtil.join(directory, file.getFileName()) : file.getFileName());
+        }
+    }
+    
+    private String path(Long id, Map<Long, DirectoryInfo> loaded) {
+        String path = cached(id);
+        if (path != null) {
+            return path;
+        }
+        DirectoryInfo directory = loaded.get(id);
+        if (directory == null) {
+            // evicted since it was found in the cache
+            directory = directoryInfoRepository.findById(id).orElse(null);
+            if (directory != null) {
+                loaded.put(id, directory);
+            }
+        }
+        return directory != null ? resolve(directory, loaded) : null;
+    }
+    
+    /**
+     * Path of a directory whose ancestors are cached or in the given map
+     */
+    private String resolve(DirectoryInfo directory, Map<Long, DirectoryInfo> directories) {
+        if (directory.getPath() == null) {
+            if (directory.getParentId() == null) {
+                directory.setPath(directory.getName());
+            } else {
+                String parent = path(directory.getParentId(), directories);
+                directory.setPath(parent != null ? PathUtil.join(parent, directory.getName()) : null);
+            }
+        }
+        if (directory.getPath() != null) {
+            cache(directory.getId(), directory.getPath());
+        }
+        return directory.getPath();
+    }
+    
+    private synchronized String cached(Long id) {
+        return paths.get(id);
+    }
+    
+    private synchronized void cache(Long id, String path) {
+        paths.put(id, path);
+    }
+}
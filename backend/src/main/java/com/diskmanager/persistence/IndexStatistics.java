@@ -0,0 +1,186 @@
+package com.diskmanager.persistence;
+
+import com.diskmanager.model.FileInfo;
+import com.diskmanager.util.FileSizeFormatter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Per file type totals of the index, kept current as rows are written so that reading them
+ * does not touch the files table. Changes are measured inside the writing transaction and
+ * applied once it commits; deletes and updates are measured with an aggregate over the
+ * affected rows, which costs as much as the statement itself.
+ */
+@Component
+@Slf4j
+public class IndexStatistics {
+    
+    public static final int FILES = 0;
+    public static final int BYTES = 1;
+    public static final int LARGE_FILES = 2;
+    public static final int LARGE_BYTES = 3;
+    public static final int DUPLICATE_FILES = 4;
+    public static final int DUPLICATE_BYTES = 5;
+    private static final int COUNTERS = 6;
+    
+    private static final String AGGREGATE = "SELECT file_type, COUNT(*), COALESCE(SUM(file_size), 0), " +
+            "COUNT(CASE WHEN file_size > ? THEN 1 END), " +
+            "COALESCE(SUM(CASE WHEN file_size > ? THEN file_size END), 0), " +
+            "COUNT(CASE WHEN is_duplicate THEN 1 END), " +
+            "COALESCE(SUM(CASE WHEN is_duplicate THEN file_size END), 0) FROM files";
+    
+    private final JdbcTemplate jdbcTemplate;
+    private final Map<String, long[]> totals = new HashMap<>();
+    
+    @Value("${app.scanner.large-file-threshold:100MB}")
+    private String largeFileThreshold;
+    
+    public IndexStatistics(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+    
+    /**
+     * Count the stored index once; from then on the totals are maintained
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void reload() {
+        Map<String, long[]> measured = measure("1 = 1");
+        synchronized (this) {
+            totals.clear();
+            totals.putAll(measured);
+        }
+        log.info("Index statistics loaded for {} file types", measured.size());
+    }
+    
+    public long getLargeFileThreshold() {
+        return FileSizeFormatter.parseSize(largeFileThreshold);
+    }
+    
+    /**
+     * Copy of the totals by file type, indexed by the counter constants
+     */
+    public synchronized Map<String, long[]> snapshot() {
+        Map<String, long[]> copy = new HashMap<>();
+        totals.forEach((type, counters) -> copy.put(type, counters.clone()));
+        return copy;
+    }
+    
+    /**
+     * Count inserted files once the current transaction commits
+     */
+    public void added(Collection<FileInfo> files) {
+        long threshold = getLargeFileThreshold();
+        Map<String, long[]> delta = new HashMap<>();
+        for (FileInfo file : files) {
+            long size = file.getFileSize();
+            boolean duplicate = Boolean.TRUE.equals(file.getIsDuplicate());
+            long[] counters = delta.computeIfAbsent(key(file.getFileType()), k -> new long[COUNTERS]);
+            counters[FILES]++;
+            counters[BYTES] += size;
+            if (size > threshold) {
+                counters[LARGE_FILES]++;
+                counters[LARGE_BYTES] += size;
+            }
+            if (duplicate) {
+                counters[DUPLICATE_FILES]++;
+                counters[DUPLICATE_BYTES] += size;
+            }
+        }
+        afterCommit(() -> apply(delta, 1));
+    }
+    
+    /**
+     * Totals of the rows matching a condition on the files table, e.g. before deleting them
+     */
+    public Map<String, long[]> measure(String condition, Object... args) {
+        long threshold = getLargeFileThreshold();
+        Object[] parameters = new Object[args.length + 2];
+        parameters[0] = threshold;
+        parameters[1] = threshold;
+        System.arraycopy(args, 0, parameters, 2, args.length);
+        
+        Map<String, long[]> measured = new HashMap<>();
+        jdbcTemplate.query(AGGREGATE + " WHERE " + condition + " GROUP BY file_type", rs -> {
+            long[] counters = new long[COUNTERS];
+            for (int i = 0; i < COUNTERS; i++) {
+                counters[i] = rs.getLong(i + 2);
+            }
+            measured.put(key(rs.getString(1)), counters);
+        }, parameters);
+        return measured;
+    }
+    
+    /**
+     * Add measured totals once the current transaction commits
+     */
+    public void add(Map<String, long[]> delta) {
+        afterCommit(() -> apply(delta, 1));
+    }
+    
+    /**
+     * Subtract measured totals once the current transaction commits
+     */
+    public void subtract(Map<String, long[]> delta) {
+        afterCommit(() -> apply(delta, -1));
+    }
+    
+    /**
+     * Replace the duplicate counters after the duplicate marks were rebuilt
+     */
+    public void duplicatesRegrouped() {
+        Map<String, long[]> measured = measure("is_duplicate = TRUE");
+        afterCommit(() -> {
+            synchronized (this) {
+                totals.values().forEach(counters -> {
+                    counters[DUPLICATE_FILES] = 0;
+                    counters[DUPLICATE_BYTES] = 0;
+                });
+                measured.forEach((type, counters) -> {
+                    long[] current = totals.computeIfAbsent(type, k -> new long[COUNTERS]);
+                    current[DUPLICATE_FILES] = counters[DUPLICATE_FILES];
+                    current[DUPLICATE_BYTES] = counters[DUPLICATE_BYTES];
+                });
+            }
+        });
+    }
+    
+    private synchronized void apply(Map<String, long[]> delta, int sign) {
+        delta.forEach((type, counters) -> {
+            long[] current = totals.computeIfAbsent(type, k -> new long[COUNTERS]);
+            for (int i = 0; i < COUNTERS; i++) {
+                current[i] += sign * counters[i];
+            }
+            if (current[FILES] <= 0) {
+                totals.remove(type);
+            }
+        });
+    }
+    
+    private static void afterCommit(Runnable update) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            update.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                update.run();
+            }
+        });
+    }
+    
+    private static String key(String fileType) {
+        return Objects.toString(fileType, "");
+    }
+}
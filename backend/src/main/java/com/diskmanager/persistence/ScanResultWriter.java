@@ -0,0 +1,330 @@
+package com.diskmanager.persistence;
+
+import com.diskmanager.jfr.PersistenceBatchEvent;
+import com.diskmanager.metrics.ScanMetrics;
+import com.diskmanager.model.DirectoryInfo;
+import com.diskmanager.model.FileInfo;
+import com.diskmanager.scanner.DirectoryTotals;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Writes scan results with JDBC batch statements, committing every chunk in its own transaction.
+ * Nothing is kept in a persistence context, so memory does not grow with the size of a scan.
+ * Ids come from the entity sequences, so callers can link rows before they are written.
+ * All changes to the files table go through here so that {@link IndexStatistics} stays current.
+ */
+@Component
+@Slf4j
+public class ScanResultWriter {
+    
+    private static final String INSERT_FILE = "INSERT INTO files (id, directory_id, file_name, file_size, " +
+            "content_hash, hash_algorithm, file_extension, file_type, last_modified, scanned_at, is_duplicate, " +
+            "duplicate_group_id) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+    private static final String UPDATE_FILE = "UPDATE files SET directory_id = ?, file_size = ?, " +
+            "content_hash = ?, hash_algorithm = ?, last_modified = ?, scanned_at = ? WHERE id = ?";
+    private static final String UPDATE_HASH = "UPDATE files SET content_hash = ?, hash_algorithm = ? WHERE id = ?";
+    private static final String INSERT_DIRECTORY = "INSERT INTO directories (id, parent_id, name, " +
+            "last_modified_micros, scanned_at, total_files, total_size, rounded_size, total_directories) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)";
+    private static final String UPDATE_DIRECTORY = "UPDATE directories SET last_modified_micros = ?, " +
+            "scanned_at = ? WHERE id = ?";
+    private static final String UPDATE_TOTALS = "UPDATE directories SET total_files = ?, total_size = ?, " +
+            "rounded_size = ?, total_directories = ? WHERE id = ?";
+    private static final String ADD_TO_TOTALS = "UPDATE directories SET total_files = total_files + ?, " +
+            "total_size = total_size + ?, rounded_size = rounded_size + ?, " +
+            "total_directories = total_directories + ? WHERE id IN ";
+    
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final SequenceIdAllocator fileIds;
+    private final SequenceIdAllocator directoryIds;
+    private final IndexStatistics indexStatistics;
+    private final ScanMetrics scanMetrics;
+    
+    @Value("${app.persistence.chunk-size:5000}")
+    private int chunkSize;
+    
+    public ScanResultWriter(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager,
+                            IndexStatistics indexStatistics, ScanMetrics scanMetrics) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.indexStatistics = indexStatistics;
+        this.scanMetrics = scanMetrics;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.fileIds = new SequenceIdAllocator(jdbcTemplate, "files_seq", FileInfo.ID_BLOCK_SIZE);
+        this.directoryIds = new SequenceIdAllocator(jdbcTemplate, "directories_seq", DirectoryInfo.ID_BLOCK_SIZE);
+    }
+    
+    public long nextFileId() {
+        return fileIds.next();
+    }
+    
+    public long nextDirectoryId() {
+        return directoryIds.next();
+    }
+    
+    /**
+     * Start a thread-safe insert batch that writes a chunk whenever enough files were added
+     */
+    public FileBatch openFileBatch() {
+        return new FileBatch();
+    }
+    
+    /**
+     * Insert files, assigning ids to those without one
+     * @return number of rows written
+     */
+    public long insertFiles(Collection<FileInfo> files) {
+        FileBatch batch = openFileBatch();
+        files.forEach(batch::add);
+        return batch.close();
+    }
+    
+    public void updateFiles(Collection<FileInfo> files) {
+        for (List<FileInfo> chunk : chunks(files)) {
+            Object[] ids = chunk.stream().map(FileInfo::getId).toArray();
+            String condition = "id IN (" + placeholders(ids.length) + ")";
+            inBatch("update files", chunk.size(), () -> {
+                indexStatistics.subtract(indexStatistics.measure(condition, ids));
+                jdbcTemplate.batchUpdate(UPDATE_FILE, chunk, chunk.size(), (ps, file) -> {
+                    setLong(ps, 1, file.getDirectoryId());
+                    ps.setLong(2, file.getFileSize());
+                    ps.setString(3, file.getContentHash());
+                    ps.setString(4, file.getHashAlgorithm());
+                    ps.setObject(5, file.getLastModified());
+                    ps.setObject(6, file.getScannedAt());
+                    ps.setLong(7, file.getId());
+                });
+                indexStatistics.add(indexStatistics.measure(condition, ids));
+                return null;
+            });
+        }
+    }
+    
+    /**
+     * Store content hashes computed for already stored files
+     */
+    public void updateHashes(Collection<FileInfo> files) {
+        for (List<FileInfo> chunk : chunks(files)) {
+            inBatch("update hashes", chunk.size(), () ->
+                    jdbcTemplate.batchUpdate(UPDATE_HASH, chunk, chunk.size(), (ps, file) -> {
+                        ps.setString(1, file.getContentHash());
+                        ps.setString(2, file.getHashAlgorithm());
+                        ps.setLong(3, file.getId());
+                    }));
+        }
+    }
+    
+    /**
+     * Delete the files stored in the given directories. Like the other deletes it runs in the caller's transaction.
+     */
+    public int deleteFilesOfDirectories(Collection<Long> directoryIds) {
+        return deleteFiles("directory_id IN (" + placeholders(directoryIds.size()) + ")", directoryIds.toArray());
+    }
+    
+    public int deleteFiles(Collection<Long> ids) {
+        return deleteFiles("id IN (" + placeholders(ids.size()) + ")", ids.toArray());
+    }
+    
+    private int deleteFiles(String condition, Object... args) {
+        indexStatistics.subtract(indexStatistics.measure(condition, args));
+        return jdbcTemplate.update("DELETE FROM files WHERE " + condition, args);
+    }
+    
+    /**
+     * Insert directories, assigning ids to those without one
+     */
+    public void insertDirectories(Collection<DirectoryInfo> directories) {
+        for (List<DirectoryInfo> chunk : chunks(directories)) {
+            chunk.stream().filter(directory -> directory.getId() == null)
+                    .forEach(directory -> directory.setId(nextDirectoryId()));
+            inBatch("insert directories", chunk.size(), () ->
+                    jdbcTemplate.batchUpdate(INSERT_DIRECTORY, chunk, chunk.size(), (ps, directory) -> {
+                        ps.setLong(1, directory.getId());
+                        setLong(ps, 2, directory.getParentId());
+                        ps.setString(3, directory.getName());
+                        ps.setLong(4, directory.getLastModifiedMicros());
+                        ps.setObject(5, directory.getScannedAt());
+                        ps.setLong(6, directory.getTotalFiles());
+                        ps.setLong(7, directory.getTotalSize());
+                        ps.setLong(8, directory.getRoundedSize());
+                        ps.setLong(9, directory.getTotalDirectories());
+                    }));
+        }
+    }
+    
+    public void updateDirectories(Collection<DirectoryInfo> directories) {
+        for (List<DirectoryInfo> chunk : chunks(directories)) {
+            inBatch("update directories", chunk.size(), () ->
+                    jdbcTemplate.batchUpdate(UPDATE_DIRECTORY, chunk, chunk.size(), (ps, directory) -> {
+                        ps.setLong(1, directory.getLastModifiedMicros());
+                        ps.setObject(2, directory.getScannedAt());
+                        ps.setLong(3, directory.getId());
+                    }));
+        }
+    }
+    
+    /**
+     * Store the rollups of directories
+     */
+    public void updateTotals(Collection<DirectoryInfo> directories) {
+        for (List<DirectoryInfo> chunk : chunks(directories)) {
+            inBatch("update totals", chunk.size(), () ->
+                    jdbcTemplate.batchUpdate(UPDATE_TOTALS, chunk, chunk.size(), (ps, directory) -> {
+                        ps.setLong(1, directory.getTotalFiles());
+                        ps.setLong(2, directory.getTotalSize());
+                        ps.setLong(3, directory.getRoundedSize());
+                        ps.setLong(4, directory.getTotalDirectories());
+                        ps.setLong(5, directory.getId());
+                    }));
+        }
+    }
+    
+    /**
+     * Add a change below them to the rollups of directories, in the caller's transaction
+     */
+    public int addToTotals(Collection<Long> directoryIds, DirectoryTotals delta) {
+        if (directoryIds.isEmpty()) {
+            return 0;
+        }
+        Object[] args = new Object[directoryIds.size() + 4];
+        args[0] = delta.getFiles();
+        args[1] = delta.getBytes();
+        args[2] = delta.getRoundedBytes();
+        args[3] = delta.getDirectories();
+        System.arraycopy(directoryIds.toArray(), 0, args, 4, directoryIds.size());
+        return jdbcTemplate.update(ADD_TO_TOTALS + "(" + placeholders(directoryIds.size()) + ")", args);
+    }
+    
+    /**
+     * Run a unit of work in its own transaction, e.g. the deletes of a scan; timed as the persist stage
+     */
+    public <T> T inTransaction(Supplier<T> work) {
+        return scanMetrics.persist(() -> transactionTemplate.execute(status -> work.get()));
+    }
+    
+    /**
+     * Run one chunk of a batch write in its own transaction, recorded as a JFR event when slow
+     */
+    private <T> T inBatch(String operation, int rows, Supplier<T> work) {
+        PersistenceBatchEvent event = new PersistenceBatchEvent();
+        event.begin();
+        try {
+            return inTransaction(work);
+        } finally {
+            event.finish(operation, rows);
+        }
+    }
+    
+    private void writeFiles(List<FileInfo> chunk) {
+        inBatch("insert files", chunk.size(), () -> {
+            indexStatistics.added(chunk);
+            return jdbcTemplate.batchUpdate(INSERT_FILE, chunk, chunk.size(), (ps, file) -> {
+                ps.setLong(1, file.getId());
+                setLong(ps, 2, file.getDirectoryId());
+                ps.setString(3, file.getFileName());
+                ps.setLong(4, file.getFileSize());
+                ps.setString(5, file.getContentHash());
+                ps.setString(6, file.getHashAlgorithm());
+                ps.setString(7, file.getFileExtension());
+                ps.setString(8, file.getFileType());
+                ps.setObject(9, file.getLastModified());
+                ps.setObject(10, file.getScannedAt());
+                ps.setBoolean(11, Boolean.TRUE.equals(file.getIsDuplicate()));
+                setLong(ps, 12, file.getDuplicateGroupId());
+            });
+        });
+    }
+    
+    private <T> List<List<T>> chunks(Collection<T> items) {
+        List<List<T>> chunks = new ArrayList<>();
+        List<T> chunk = new ArrayList<>(Math.min(chunkSize, items.size()));
+        for (T item : items) {
+            chunk.add(item);
+            if (chunk.size() == chunkSize) {
+                chunks.add(chunk);
+                chunk = new ArrayList<>(chunkSize);
+            }
+        }
+        if (!chunk.isEmpty()) {
+            chunks.add(chunk);
+        }
+        return chunks;
+    }
+    
+    private static String placeholders(int count) {
+        return String.join(", ", Collections.nCopies(count, "?"));
+    }
+    
+    private static void setLong(PreparedStatement ps, int index, Long value) throws SQLException {
+        if (value != null) {
+            ps.setLong(index, value);
+        } else {
+            ps.setNull(index, Types.BIGINT);
+        }
+    }
+    
+    /**
+     * Collects inserts from concurrent walker threads. The thread that fills a chunk writes it,
+     * which also holds the walk back while the database catches up.
+     */
+    public class FileBatch {
+        
+        private final AtomicLong written = new AtomicLong();
+        private List<FileInfo> pending = new ArrayList<>(chunkSize);
+        
+        public void add(FileInfo file) {
+            if (file.getId() == null) {
+                file.setId(nextFileId());
+            }
+            List<FileInfo> full = null;
+            synchronized (this) {
+                pending.add(file);
+                if (pending.size() >= chunkSize) {
+                    full = pending;
+                    pending = new ArrayList<>(chunkSize);
+                }
+            }
+            if (full != null) {
+                write(full);
+            }
+        }
+        
+        /**
+         * Write what is left
+         * @return number of files written by this batch
+         */
+        public long close() {
+            List<FileInfo> rest;
+            synchronized (this) {
+                rest = pending;
+                pending = new ArrayList<>();
+            }
+            if (!rest.isEmpty()) {
+                write(rest);
+            }
+            return written.get();
+        }
+        
+        private void write(List<FileInfo> chunk) {
+            writeFiles(chunk);
+            written.addAndGet(chunk.size());
+        }
+    }
+}
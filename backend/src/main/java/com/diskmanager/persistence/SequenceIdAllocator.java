@@ -0,0 +1,33 @@
+package com.diskmanager.persistence;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+
+/**
+ * Hands out ids from a database sequence in blocks, one round trip per block.
+ * Uses the pooled-lo layout Hibernate is configured with: a sequence value is the first id
+ * of a block of {@code blockSize} ids, so JPA inserts and batch inserts never collide.
+ */
+public class SequenceIdAllocator {
+    
+    private final JdbcTemplate jdbcTemplate;
+    private final String sequenceName;
+    private final int blockSize;
+    
+    private long next;
+    private long limit; // exclusive end of the current block
+    
+    public SequenceIdAllocator(JdbcTemplate jdbcTemplate, String sequenceName, int blockSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.sequenceName = sequenceName;
+        this.blockSize = blockSize;
+    }
+    
+    public synchronized long next() {
+        if (next == limit) {
+            Long low = jdbcTemplate.queryForObject("SELECT NEXT VALUE FOR " + sequenceName, Long.class);
+            next = low;
+            limit = low + blockSize;
+        }
+        return next++;
+    }
+}
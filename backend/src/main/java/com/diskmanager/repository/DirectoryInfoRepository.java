@@ -0,0 +1,48 @@
+package com.diskmanager.repository;
+
+import com.diskmanager.model.DirectoryInfo;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Repository for DirectoryInfo entity
+ */
+@Repository
+public interface DirectoryInfoRepository extends JpaRepository<DirectoryInfo, Long> {
+    
+    /**
+     * Ids of the directories at or below :rootId, including roots scanned on their own below it;
+     * :prefix is the escaped root path followed by the separator. Queries joining files to it
+     * aggregate a tree without matching path strings.
+     */
+    String SUBTREE = "WITH RECURSIVE subtree(id) AS (SELECT id FROM directories WHERE id = :rootId " +
+            "OR (parent_id IS NULL AND name LIKE :prefix ESCAPE '!') " +
+            "UNION ALL SELECT d.id FROM directories d JOIN subtree s ON d.parent_id = s.id) ";
+    
+    List<DirectoryInfo> findByParentId(Long parentId);
+    
+    List<DirectoryInfo> findByParentId(Long parentId, Pageable pageable);
+    
+    /**
+     * Roots stored without a parent whose path is one of the given paths
+     */
+    @Query("SELECT d FROM DirectoryInfo d WHERE d.parentId IS NULL AND d.name IN :paths")
+    List<DirectoryInfo> findRoots(Collection<String> paths);
+    
+    @Query("SELECT d FROM DirectoryInfo d WHERE d.parentId = :parentId AND d.name = :name")
+    Optional<DirectoryInfo> findChild(Long parentId, String name);
+    
+    @Query(value = SUBTREE + "SELECT d.* FROM directories d JOIN subtree s ON d.id = s.id", nativeQuery = true)
+    List<DirectoryInfo> findSubtree(long rootId, String prefix);
+    
+    @Modifying
+    @Query("DELETE FROM DirectoryInfo d WHERE d.id IN :ids")
+    int deleteByIds(Collection<Long> ids);
+}
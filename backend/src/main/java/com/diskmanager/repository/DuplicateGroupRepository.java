@@ -0,0 +1,33 @@
+package com.diskmanager.repository;
+
+import com.diskmanager.model.DuplicateGroup;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+/**
+ * Repository for duplicate groups
+ */
+@Repository
+public interface DuplicateGroupRepository extends JpaRepository<DuplicateGroup, Long> {
+    
+    // Keyset pages, each ordered by one column descending with the id as tie-breaker
+    
+    @Query("SELECT g FROM DuplicateGroup g WHERE g.reclaimableBytes < :value OR " +
+           "(g.reclaimableBytes = :value AND g.id > :id) ORDER BY g.reclaimableBytes DESC, g.id")
+    List<DuplicateGroup> findPageByReclaimableBytes(long value, long id, Pageable pageable);
+    
+    @Query("SELECT g FROM DuplicateGroup g WHERE g.fileSize < :value OR " +
+           "(g.fileSize = :value AND g.id > :id) ORDER BY g.fileSize DESC, g.id")
+    List<DuplicateGroup> findPageByFileSize(long value, long id, Pageable pageable);
+    
+    @Query("SELECT g FROM DuplicateGroup g WHERE g.fileCount < :value OR " +
+           "(g.fileCount = :value AND g.id > :id) ORDER BY g.fileCount DESC, g.id")
+    List<DuplicateGroup> findPageByFileCount(long value, long id, Pageable pageable);
+    
+    @Query("SELECT COALESCE(SUM(g.reclaimableBytes), 0) FROM DuplicateGroup g")
+    long sumReclaimableBytes();
+}
@@ -1,10 +1,12 @@
 package com.diskmanager.repository;
 
 import com.diskmanager.model.FileInfo;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 
 /**
@@ -13,25 +15,53 @@ import java.util.List;
 @Repository
 public interface FileInfoRepository extends JpaRepository<FileInfo, Long> {
     
-    List<FileInfo> findByIsDuplicateTrue();
-    
     List<FileInfo> findByDuplicateGroupId(Long groupId);
     
-    @Query("SELECT f FROM FileInfo f WHERE f.fileSize > :sizeThreshold ORDER BY f.fileSize DESC")
-    List<FileInfo> findLargeFiles(Long sizeThreshold);
+    List<FileInfo> findByDirectoryId(Long directoryId);
+    
+    /**
+     * Page of files above a threshold, largest first, starting after the given size and id
+     */
+    @Query("SELECT f FROM FileInfo f WHERE f.fileSize > :sizeThreshold AND " +
+           "(f.fileSize < :size OR (f.fileSize = :size AND f.id < :id)) ORDER BY f.fileSize DESC, f.id DESC")
+    List<FileInfo> findLargeFilesDescending(long sizeThreshold, long size, long id, Pageable pageable);
+    
+    /**
+     * Page of files above a threshold, smallest first, starting after the given size and id
+     */
+    @Query("SELECT f FROM FileInfo f WHERE f.fileSize > :sizeThreshold AND " +
+           "(f.fileSize > :size OR (f.fileSize = :size AND f.id > :id)) ORDER BY f.fileSize, f.id")
+    List<FileInfo> findLargeFilesAscending(long sizeThreshold, long size, long id, Pageable pageable);
     
-    @Query("SELECT f.fileType, COUNT(f) FROM FileInfo f GROUP BY f.fileType")
-    List<Object[]> countByFileType();
+    /**
+     * Files, bytes and block-rounded bytes stored directly in each of the given directories
+     */
+    @Query("SELECT f.directoryId, COUNT(f), SUM(f.fileSize), " +
+           "SUM((f.fileSize + :blockSize - 1) / :blockSize * :blockSize) FROM FileInfo f " +
+           "WHERE f.directoryId IN :directoryIds GROUP BY f.directoryId")
+    List<Object[]> sumByDirectory(Collection<Long> directoryIds, long blockSize);
     
-    @Query("SELECT f.fileType, SUM(f.fileSize) FROM FileInfo f GROUP BY f.fileType")
-    List<Object[]> sumSizeByFileType();
+    /**
+     * Files sharing their size with another file, as detached copies that are not tracked for changes
+     */
+    @Query("SELECT new com.diskmanager.model.FileInfo(f.id, f.directoryId, f.fileName, f.fileSize, f.contentHash, " +
+           "f.hashAlgorithm, f.fileExtension, f.fileType, f.lastModified, f.scannedAt, f.isDuplicate, " +
+           "f.duplicateGroupId, CAST(NULL AS String)) FROM FileInfo f WHERE f.fileSize > 0 AND f.fileSize IN " +
+           "(SELECT g.fileSize FROM FileInfo g GROUP BY g.fileSize HAVING COUNT(g) > 1) " +
+           "ORDER BY f.fileSize DESC")
+    List<FileInfo> findSizeCollisions();
     
-    @Query("SELECT COUNT(f) FROM FileInfo f WHERE f.isDuplicate = true")
-    Long countDuplicates();
+    @Query("SELECT f FROM FileInfo f WHERE f.duplicateGroupId IN :groupIds ORDER BY f.duplicateGroupId, f.id")
+    List<FileInfo> findByDuplicateGroupIds(Collection<Long> groupIds);
     
-    @Query("SELECT SUM(f.fileSize) FROM FileInfo f WHERE f.isDuplicate = true")
-    Long sumDuplicateSize();
+    /**
+     * Number of files at or below a directory, see {@link DirectoryInfoRepository#SUBTREE}
+     */
+    @Query(value = DirectoryInfoRepository.SUBTREE +
+            "SELECT COUNT(*) FROM files f JOIN subtree s ON f.directory_id = s.id", nativeQuery = true)
+    long countSubtree(long rootId, String prefix);
     
-    @Query("SELECT f.md5Hash FROM FileInfo f GROUP BY f.md5Hash HAVING COUNT(f) > 1")
-    List<String> findDuplicateHashes();
+    @Query(value = DirectoryInfoRepository.SUBTREE +
+            "SELECT f.* FROM files f JOIN subtree s ON f.directory_id = s.id ORDER BY f.id", nativeQuery = true)
+    List<FileInfo> findSubtree(long rootId, String prefix, Pageable pageable);
 }
@@ -0,0 +1,85 @@
+package com.diskmanager.scanner;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Recursive totals of a directory: the accepted files at any depth below it and the
+ * subdirectories they sit in. Rounded bytes round every file up to whole blocks of the file
+ * store. That is an estimate from the apparent size, not the allocation du reports: sparse files
+ * take less space, and a hardlinked file is counted at every link. The JDK does not expose the
+ * allocated block count of a file.
+ */
+public class DirectoryTotals {
+    
+    private static final long DEFAULT_BLOCK_SIZE = 4096;
+    
+    private long files;
+    private long bytes;
+    private long roundedBytes;
+    private long directories;
+    
+    public DirectoryTotals() {
+    }
+    
+    public DirectoryTotals(long files, long bytes, long roundedBytes, long directories) {
+        this.files = files;
+        this.bytes = bytes;
+        this.roundedBytes = roundedBytes;
+        this.directories = directories;
+    }
+    
+    public void addFile(long size, long blockSize) {
+        files++;
+        bytes += size;
+        roundedBytes += rounded(size, blockSize);
+    }
+    
+    public void add(DirectoryTotals other) {
+        files += other.files;
+        bytes += other.bytes;
+        roundedBytes += other.roundedBytes;
+        directories += other.directories;
+    }
+    
+    /**
+     * Add a subdirectory together with everything below it
+     */
+    public void addDirectory(DirectoryTotals child) {
+        add(child);
+        directories++;
+    }
+    
+    public long getFiles() {
+        return files;
+    }
+    
+    public long getBytes() {
+        return bytes;
+    }
+    
+    public long getRoundedBytes() {
+        return roundedBytes;
+    }
+    
+    public long getDirectories() {
+        return directories;
+    }
+    
+    /**
+     * Allocation unit of the file store holding a path
+     */
+    public static long blockSize(Path path) {
+        try {
+            long blockSize = Files.getFileStore(path).getBlockSize();
+            return blockSize > 0 ? blockSize : DEFAULT_BLOCK_SIZE;
+        } catch (IOException | UnsupportedOperationException e) {
+            return DEFAULT_BLOCK_SIZE;
+        }
+    }
+    
+    public static long rounded(long size, long blockSize) {
+        return (size + blockSize - 1) / blockSize * blockSize;
+    }
+}
@@ -0,0 +1,61 @@
+package com.diskmanager.scanner;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.DosFileAttributes;
+
+/**
+ * Attributes of a directory entry read with a single call, without following links
+ */
+public class EntryAttributes {
+    
+    private final BasicFileAttributes attrs;
+    private final boolean hidden;
+    
+    private EntryAttributes(BasicFileAttributes attrs, boolean hidden) {
+        this.attrs = attrs;
+        this.hidden = hidden;
+    }
+    
+    /**
+     * Whether the file system of the given path keeps the hidden flag in DOS attributes.
+     * POSIX file systems hide dot files by name instead.
+     */
+    public static boolean usesDosAttributes(Path path) {
+        return !path.getFileSystem().supportedFileAttributeViews().contains("posix");
+    }
+    
+    /**
+     * Read the attributes of an entry
+     * @param entry path of the entry
+     * @param dosAttributes result of {@link #usesDosAttributes} for the scan root
+     * @param statistics counter and timer of attribute reads
+     */
+    public static EntryAttributes read(Path entry, boolean dosAttributes,
+                                       ScanStatistics statistics) throws IOException {
+        long started = System.nanoTime();
+        try {
+            if (dosAttributes) {
+                DosFileAttributes dosAttrs = Files.readAttributes(entry, DosFileAttributes.class,
+                        LinkOption.NOFOLLOW_LINKS);
+                return new EntryAttributes(dosAttrs, dosAttrs.isHidden());
+            }
+            BasicFileAttributes attrs = Files.readAttributes(entry, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+            Path name = entry.getFileName();
+            return new EntryAttributes(attrs, name != null && name.toString().startsWith("."));
+        } finally {
+            statistics.attributesRead(System.nanoTime() - started);
+        }
+    }
+    
+    public BasicFileAttributes getAttributes() {
+        return attrs;
+    }
+    
+    public boolean isHidden() {
+        return hidden;
+    }
+}
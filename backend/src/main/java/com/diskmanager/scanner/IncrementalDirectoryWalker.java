@@ -0,0 +1,427 @@
+package com.diskmanager.scanner;
+
+import com.diskmanager.jfr.DirectoryListedEvent;
+import com.diskmanager.model.DirectoryInfo;
+import com.diskmanager.model.FileInfo;
+import com.diskmanager.util.FileTypeDetector;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Walker that compares the file system with the state of a previous scan. Directory tasks run on
+ * the threads of a {@link ThreadMode}, like those of {@link ParallelDirectoryWalker}.
+ * <p>
+ * A directory whose modification time is unchanged still has the same entries, so it is not
+ * listed again; its known files are stat'ed to catch in-place modifications and its known
+ * subdirectories are descended into, because their changes do not propagate upwards.
+ * With {@code trustDirectoryMtime} the stat of known files is skipped as well, which only
+ * detects added, removed and renamed files but costs one stat per directory instead of per file.
+ */
+@Slf4j
+public class IncrementalDirectoryWalker {
+    
+    /**
+     * Index state recorded by the previous scan
+     */
+    public interface PriorState {
+        DirectoryInfo getDirectory(String path);
+        
+        List<DirectoryInfo> getChildren(Long directoryId);
+        
+        List<FileInfo> getFiles(Long directoryId);
+    }
+    
+    private final int parallelism;
+    private final ThreadMode threadMode;
+    private final IoGate ioGate;
+    
+    /**
+     * @param parallelism pool size for platform threads, concurrent directory reads for virtual threads
+     * @param threadMode requested mode; virtual threads fall back to platform threads before Java 21
+     * @param ioGate entered for every directory that is listed or whose known entries are stat'ed
+     */
+    public IncrementalDirectoryWalker(int parallelism, ThreadMode threadMode, IoGate ioGate) {
+        this.parallelism = parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+        this.threadMode = threadMode.effective();
+        this.ioGate = ioGate;
+    }
+    
+    public int getParallelism() {
+        return parallelism;
+    }
+    
+    public ThreadMode getThreadMode() {
+        return threadMode;
+    }
+    
+    /**
+     * Walk the tree below root and collect the differences to the prior state
+     * @param root directory to start from (depth 0)
+     * @param filter depth, hidden and extension filter, expected to match the previous scan
+     * @param trustDirectoryMtime skip the stat of known files in unchanged directories
+     * @param prior state of the previous scan
+     * @param factory creates the entity of an added or modified file
+     * @param statistics counters updated during the walk
+     */
+    public ScanChanges walk(Path root, ScanFilter filter, boolean trustDirectoryMtime, PriorState prior,
+                            ParallelDirectoryWalker.FileProcessor<FileInfo> factory, ScanStatistics statistics) {
+        Path start = root.toAbsolutePath().normalize();
+        WalkScheduler scheduler = WalkScheduler.create(threadMode, parallelism, ioGate);
+        Context context = new Context(filter, trustDirectoryMtime, prior, factory, statistics,
+                EntryAttributes.usesDosAttributes(start), new ScanChanges(), scheduler);
+        
+        statistics.start();
+        try {
+            long started = System.nanoTime();
+            BasicFileAttributes rootAttrs = Files.readAttributes(start, BasicFileAttributes.class);
+            statistics.attributesRead(System.nanoTime() - started);
+            scheduler.invoke(new DirectoryTask(start, rootAttrs, 0, prior.getDirectory(start.toString()), context));
+            if (statistics.isCancelled()) {
+                throw new CancellationException("Scan of " + start + " was cancelled");
+            }
+            return context.changes;
+        } catch (IOException e) {
+            statistics.error();
+            throw new UncheckedIOException("Cannot read scan root " + start, e);
+        } finally {
+            statistics.finish();
+            scheduler.shutdown();
+        }
+    }
+    
+    /**
+     * Modification time with the precision kept by the index
+     */
+    private static long mtimeMicros(BasicFileAttributes attrs) {
+        return attrs.lastModifiedTime().to(TimeUnit.MICROSECONDS);
+    }
+    
+    private static class Context {
+        final ScanFilter filter;
+        final boolean trustDirectoryMtime;
+        final PriorState prior;
+        final ParallelDirectoryWalker.FileProcessor<FileInfo> factory;
+        final ScanStatistics statistics;
+        final boolean dosAttributes;
+        final ScanChanges changes;
+        final WalkScheduler scheduler;
+        
+        Context(ScanFilter filter, boolean trustDirectoryMtime, PriorState prior,
+                ParallelDirectoryWalker.FileProcessor<FileInfo> factory, ScanStatistics statistics,
+                boolean dosAttributes, ScanChanges changes, WalkScheduler scheduler) {
+            this.filter = filter;
+            this.trustDirectoryMtime = trustDirectoryMtime;
+            this.prior = prior;
+            this.factory = factory;
+            this.statistics = statistics;
+            this.dosAttributes = dosAttributes;
+            this.changes = changes;
+            this.scheduler = scheduler;
+        }
+    }
+    
+    private static class DirectoryTask implements Callable<Void> {
+        
+        private final Path directory;
+        private final BasicFileAttributes attrs;
+        private final int depth;
+        private final DirectoryInfo stored; // null for a directory the index does not know
+        private final Context context;
+        
+        DirectoryTask(Path directory, BasicFileAttributes attrs, int depth, DirectoryInfo stored, Context context) {
+            this.directory = directory;
+            this.attrs = attrs;
+            this.depth = depth;
+            this.stored = stored;
+            this.context = context;
+        }
+        
+        @Override
+        public Void call() {
+            if (!context.filter.allowsDepth(depth) || context.statistics.isCancelled()
+                    || context.scheduler.isAborted()) {
+                return null;
+            }
+            try {
+                compareAndDescend();
+            } catch (RuntimeException | Error e) {
+                context.scheduler.abort();
+                throw e;
+            }
+            return null;
+        }
+        
+        private void compareAndDescend() {
+            // The permit covers the reads only, files are compared and subtasks run after it is released
+            List<DirectoryTask> subtasks = new ArrayList<>();
+            List<PendingFile> files = new ArrayList<>();
+            if (stored != null && stored.getLastModifiedMicros() == mtimeMicros(attrs)) {
+                IoGate.Permit permit = context.scheduler.beginListing(directory);
+                try {
+                    reuseListing(subtasks, files);
+                } finally {
+                    permit.close();
+                }
+            } else {
+                List<ListedEntry> entries = new ArrayList<>();
+                IoGate.Permit permit = context.scheduler.beginListing(directory);
+                boolean read;
+                try {
+                    read = read(entries);
+                } finally {
+                    permit.close();
+                }
+                if (!read) {
+                    return; // keep the stored state of a directory that cannot be read
+                }
+                relist(entries, subtasks, files);
+            }
+            for (PendingFile file : files) {
+                compare(file.path, file.attrs, file.stored);
+            }
+            
+            List<Supplier<Void>> forked = new ArrayList<>(subtasks.size());
+            for (DirectoryTask subtask : subtasks) {
+                forked.add(context.scheduler.fork(subtask));
+            }
+            forked.forEach(Supplier::get);
+        }
+        
+        /**
+         * Same entries as last time: check known files and descend into known subdirectories
+         */
+        private void reuseListing(List<DirectoryTask> subtasks, List<PendingFile> files) {
+            context.changes.directoryUnchanged();
+            
+            for (DirectoryInfo child : context.prior.getChildren(stored.getId())) {
+                BasicFileAttributes childAttrs;
+                try {
+                    childAttrs = stat(Paths.get(child.getPath()));
+                } catch (IOException | InvalidPathException e) {
+                    context.statistics.error();
+                    continue;
+                }
+                if (childAttrs == null || !childAttrs.isDirectory()) {
+                    deleteSubtree(child);
+                } else {
+                    subtasks.add(new DirectoryTask(Paths.get(child.getPath()), childAttrs, depth + 1, child, context));
+                }
+            }
+            
+            if (context.trustDirectoryMtime) {
+                return;
+            }
+            for (FileInfo file : context.prior.getFiles(stored.getId())) {
+                Path path;
+                BasicFileAttributes fileAttrs;
+                try {
+                    path = Paths.get(file.getFilePath());
+                    fileAttrs = stat(path);
+                } catch (IOException | InvalidPathException e) {
+                    context.statistics.error();
+                    continue;
+                }
+                if (fileAttrs == null || !fileAttrs.isRegularFile()) {
+                    context.changes.fileDeleted(file);
+                } else {
+                    context.statistics.fileVisited();
+                    files.add(new PendingFile(path, fileAttrs, file));
+                }
+            }
+        }
+        
+        /**
+         * Read the entries of a new or changed directory with their attributes
+         * @return false if the directory cannot be listed
+         */
+        private boolean read(List<ListedEntry> entries) {
+            context.statistics.directoryListed();
+            DirectoryListedEvent event = new DirectoryListedEvent();
+            event.begin();
+            long started = System.nanoTime();
+            long attributeNanos = 0;
+            int visited = 0;
+            try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory)) {
+                context.statistics.directoryVisited();
+                for (Path entry : stream) {
+                    long attributesStarted = System.nanoTime();
+                    try {
+                        entries.add(new ListedEntry(entry,
+                                EntryAttributes.read(entry, context.dosAttributes, context.statistics)));
+                    } catch (NoSuchFileException e) {
+                        // removed since it was listed, so it is deleted from the index
+                    } catch (IOException e) {
+                        context.statistics.error();
+                        entries.add(new ListedEntry(entry, null));
+                    }
+                    attributeNanos += System.nanoTime() - attributesStarted;
+                    visited++;
+                }
+            } catch (IOException | RuntimeException e) {
+                context.statistics.error();
+                event.finish(directory, visited, System.nanoTime() - started - attributeNanos, true);
+                log.debug("Cannot list directory {}: {}", directory, e.getMessage());
+                return false;
+            }
+            long readNanos = System.nanoTime() - started - attributeNanos;
+            context.statistics.directoryRead(readNanos);
+            event.finish(directory, visited, readNanos, false);
+            return true;
+        }
+        
+        /**
+         * Diff the entries of a relisted directory against the index
+         */
+        private void relist(List<ListedEntry> entries, List<DirectoryTask> subtasks, List<PendingFile> files) {
+            Map<String, FileInfo> storedFiles = new HashMap<>();
+            Map<String, DirectoryInfo> storedChildren = new HashMap<>();
+            if (stored != null) {
+                for (FileInfo file : context.prior.getFiles(stored.getId())) {
+                    storedFiles.put(file.getFileName(), file);
+                }
+                for (DirectoryInfo child : context.prior.getChildren(stored.getId())) {
+                    storedChildren.put(child.getPath(), child);
+                }
+            }
+            
+            for (ListedEntry entry : entries) {
+                visit(entry, storedFiles, storedChildren, subtasks, files);
+            }
+            
+            // Whatever was not seen again is gone
+            storedFiles.values().forEach(file -> context.changes.fileDeleted(file));
+            storedChildren.values().forEach(this::deleteSubtree);
+            
+            DirectoryInfo listed = stored != null ? stored : new DirectoryInfo();
+            listed.setPath(directory.toString());
+            listed.setLastModifiedMicros(mtimeMicros(attrs));
+            listed.setScannedAt(LocalDateTime.now());
+            context.changes.directoryListed(listed);
+        }
+        
+        /**
+         * Diff one entry of a relisted directory against what the index knows, removing what was seen again
+         */
+        private void visit(ListedEntry listedEntry, Map<String, FileInfo> storedFiles,
+                           Map<String, DirectoryInfo> storedChildren, List<DirectoryTask> subtasks,
+                           List<PendingFile> files) {
+            Path entry = listedEntry.path;
+            EntryAttributes entryAttributes = listedEntry.attributes;
+            if (entryAttributes == null) {
+                // Unreadable is not gone: keep what the index knows instead of deleting it
+                storedFiles.remove(entry.getFileName().toString());
+                storedChildren.remove(entry.toString());
+                return;
+            }
+            if (!context.filter.acceptsHidden(entryAttributes.isHidden())) {
+                return;
+            }
+            
+            BasicFileAttributes entryAttrs = entryAttributes.getAttributes();
+            if (entryAttrs.isDirectory()) {
+                DirectoryInfo child = storedChildren.remove(entry.toString());
+                subtasks.add(new DirectoryTask(entry, entryAttrs, depth + 1, child, context));
+            } else if (entryAttrs.isRegularFile()) {
+                context.statistics.fileVisited();
+                String name = entry.getFileName().toString();
+                if (!context.filter.acceptsExtension(FileTypeDetector.getExtension(name))) {
+                    return;
+                }
+                files.add(new PendingFile(entry, entryAttrs, storedFiles.remove(name)));
+            }
+        }
+        
+        /**
+         * Record a file as added when unknown, or as modified when size or mtime differ
+         */
+        private void compare(Path path, BasicFileAttributes fileAttrs, FileInfo storedFile) {
+            FileInfo current;
+            try {
+                current = context.factory.process(path, fileAttrs);
+            } catch (Exception e) {
+                // The caller took storedFile out of the listing diff, so it stays as it is
+                context.statistics.error();
+                log.warn("Error processing file {}: {}", path, e.getMessage());
+                return;
+            }
+            context.statistics.fileMatched(fileAttrs.size());
+            
+            if (storedFile == null) {
+                context.changes.fileAdded(current);
+            } else if (!Objects.equals(storedFile.getFileSize(), current.getFileSize())
+                    || !Objects.equals(storedFile.getLastModified(), current.getLastModified())) {
+                storedFile.setFileSize(current.getFileSize());
+                storedFile.setLastModified(current.getLastModified());
+                storedFile.setScannedAt(current.getScannedAt());
+                storedFile.setContentHash(current.getContentHash());
+                storedFile.setHashAlgorithm(current.getHashAlgorithm());
+                context.changes.fileModified(storedFile);
+            }
+        }
+        
+        private void deleteSubtree(DirectoryInfo directoryInfo) {
+            context.changes.directoryDeleted(directoryInfo.getId());
+            for (DirectoryInfo child : context.prior.getChildren(directoryInfo.getId())) {
+                deleteSubtree(child);
+            }
+        }
+        
+        /**
+         * Attributes of a known entry, or null if it no longer exists
+         */
+        private BasicFileAttributes stat(Path path) throws IOException {
+            try {
+                return EntryAttributes.read(path, context.dosAttributes, context.statistics).getAttributes();
+            } catch (NoSuchFileException e) {
+                return null;
+            }
+        }
+    }
+    
+    /**
+     * An entry of a relisted directory, with null attributes if they could not be read
+     */
+    private static final class ListedEntry {
+        final Path path;
+        final EntryAttributes attributes;
+        
+        ListedEntry(Path path, EntryAttributes attributes) {
+            this.path = path;
+            this.attributes = attributes;
+        }
+    }
+    
+    /**
+     * A file to compare with the index once the directory has been read
+     */
+    private static final class PendingFile {
+        final Path path;
+        final BasicFileAttributes attrs;
+        final FileInfo stored; // null for a file the index does not know
+        
+        PendingFile(Path path, BasicFileAttributes attrs, FileInfo stored) {
+            this.path = path;
+            this.attrs = attrs;
+            this.stored = stored;
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package com.diskmanager.scanner;
+
+import java.nio.file.Path;
+
+/**
+ * Admits blocking I/O on a path. Walkers enter it for every directory they list, so reads on
+ * one device can be limited without slowing down walks of another.
+ */
+@FunctionalInterface
+public interface IoGate {
+    
+    IoGate UNLIMITED = path -> () -> { };
+    
+    /**
+     * Held while the I/O runs, closing it lets the next waiter on the same device in
+     */
+    @FunctionalInterface
+    interface Permit extends AutoCloseable {
+        @Override
+        void close();
+    }
+    
+    /**
+     * Wait until I/O on the device of a path is admitted
+     */
+    Permit enter(Path path);
+}
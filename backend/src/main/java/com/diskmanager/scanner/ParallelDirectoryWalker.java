@@ -0,0 +1,294 @@
+package com.diskmanager.scanner;
+
+import com.diskmanager.jfr.DirectoryListedEvent;
+import com.diskmanager.util.FileTypeDetector;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.DirectoryIteratorException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.function.Supplier;
+
+/**
+ * Work-stealing directory walker.
+ * Every directory becomes a fork/join task, so idle workers steal subtrees from busy ones.
+ * With {@link ThreadMode#VIRTUAL} every directory task gets a virtual thread of its own instead.
+ * Results are joined in listing order, which keeps the output independent of thread scheduling.
+ * Subtree totals are summed up the same way, so every directory's du-style rollup is known as
+ * soon as its subtasks have joined, without a second pass over the results.
+ * <p>
+ * Each entry costs exactly one attribute read (lstat on Linux); that single read supplies
+ * type, size, modification time and, on DOS file systems, the hidden flag.
+ * Symbolic links are not followed.
+ */
+@Slf4j
+public class ParallelDirectoryWalker {
+    
+    /**
+     * Maps a visited file and its attributes to a scan result, or to null to keep nothing.
+     * An I/O failure skips the file and counts as an error, any other exception aborts the walk.
+     */
+    @FunctionalInterface
+    public interface FileProcessor<T> {
+        T process(Path file, BasicFileAttributes attrs) throws IOException;
+    }
+    
+    /**
+     * Notified for every directory that was listed once everything below it was walked, invoked concurrently
+     */
+    @FunctionalInterface
+    public interface DirectoryListener {
+        void directoryListed(Path directory, BasicFileAttributes attrs, int depth, DirectoryTotals totals);
+    }
+    
+    private static final DirectoryListener NO_LISTENER = (directory, attrs, depth, totals) -> { };
+    
+    private final int parallelism;
+    private final ThreadMode threadMode;
+    private final IoGate ioGate;
+    
+    public ParallelDirectoryWalker(int parallelism) {
+        this(parallelism, ThreadMode.PLATFORM, IoGate.UNLIMITED);
+    }
+    
+    /**
+     * @param parallelism pool size for platform threads, concurrent directory listings for virtual threads
+     * @param threadMode requested mode; virtual threads fall back to platform threads before Java 21
+     * @param ioGate entered for every directory listing, e.g. to limit reads per device
+     */
+    public ParallelDirectoryWalker(int parallelism, ThreadMode threadMode, IoGate ioGate) {
+        this.parallelism = parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+        this.threadMode = threadMode.effective();
+        this.ioGate = ioGate;
+    }
+    
+    public int getParallelism() {
+        return parallelism;
+    }
+    
+    public ThreadMode getThreadMode() {
+        return threadMode;
+    }
+    
+    /**
+     * Walk the tree below root and process every accepted file
+     * @param root directory to start from (depth 0)
+     * @param filter depth, hidden and extension filter
+     * @param processor mapping from file to result, invoked concurrently
+     * @param statistics counters updated during the walk
+     * @return processed results in deterministic listing order
+     */
+    public <T> List<T> walk(Path root, ScanFilter filter, FileProcessor<T> processor,
+                            ScanStatistics statistics) {
+        return walk(root, filter, processor, NO_LISTENER, statistics);
+    }
+    
+    /**
+     * Walk the tree below root, process every accepted file and report every listed directory
+     * @param root directory to start from (depth 0)
+     * @param filter depth, hidden and extension filter
+     * @param processor mapping from file to result, invoked concurrently
+     * @param listener receives each directory with the attributes it was listed with and its subtree totals
+     * @param statistics counters updated during the walk
+     * @return processed results in deterministic listing order
+     */
+    public <T> List<T> walk(Path root, ScanFilter filter, FileProcessor<T> processor,
+                            DirectoryListener listener, ScanStatistics statistics) {
+        boolean dosAttributes = EntryAttributes.usesDosAttributes(root);
+        Path start = root.toAbsolutePath().normalize();
+        long blockSize = DirectoryTotals.blockSize(start);
+        
+        WalkScheduler scheduler = WalkScheduler.create(threadMode, parallelism, ioGate);
+        statistics.start();
+        try {
+            long started = System.nanoTime();
+            BasicFileAttributes rootAttrs = Files.readAttributes(start, BasicFileAttributes.class);
+            statistics.attributesRead(System.nanoTime() - started);
+            List<T> results = scheduler.invoke(new DirectoryTask<>(start, rootAttrs, 0, filter, processor, listener,
+                    statistics, dosAttributes, blockSize, scheduler)).results;
+            if (statistics.isCancelled()) {
+                throw new CancellationException("Scan of " + start + " was cancelled");
+            }
+            return results;
+        } catch (IOException e) {
+            statistics.error();
+            throw new UncheckedIOException("Cannot read scan root " + start, e);
+        } finally {
+            statistics.finish();
+            scheduler.shutdown();
+        }
+    }
+    
+    private static class Listing<T> {
+        final List<T> results = new ArrayList<>();
+        final DirectoryTotals totals = new DirectoryTotals();
+        boolean listed; // false if skipped by depth or unreadable, then it does not count as a directory
+    }
+    
+    /**
+     * Lists one directory, forks a subtask per subdirectory and processes its files inline
+     */
+    private static class DirectoryTask<T> implements Callable<Listing<T>> {
+        
+        private final Path directory;
+        private final BasicFileAttributes attrs;
+        private final int depth;
+        private final ScanFilter filter;
+        private final FileProcessor<T> processor;
+        private final DirectoryListener listener;
+        private final ScanStatistics statistics;
+        private final boolean dosAttributes;
+        private final long blockSize;
+        private final WalkScheduler scheduler;
+        
+        DirectoryTask(Path directory, BasicFileAttributes attrs, int depth, ScanFilter filter,
+                      FileProcessor<T> processor, DirectoryListener listener,
+                      ScanStatistics statistics, boolean dosAttributes, long blockSize, WalkScheduler scheduler) {
+            this.directory = directory;
+            this.attrs = attrs;
+            this.depth = depth;
+            this.filter = filter;
+            this.processor = processor;
+            this.listener = listener;
+            this.statistics = statistics;
+            this.dosAttributes = dosAttributes;
+            this.blockSize = blockSize;
+            this.scheduler = scheduler;
+        }
+        
+        @Override
+        public Listing<T> call() {
+            Listing<T> listing = new Listing<>();
+            if (!filter.allowsDepth(depth) || statistics.isCancelled() || scheduler.isAborted()) {
+                return listing;
+            }
+            
+            // Entries are buffered so the permit is not held while files are processed or subtasks forked
+            List<Entry> entries = new ArrayList<>();
+            List<Supplier<Listing<T>>> subtasks = new ArrayList<>();
+            statistics.directoryListed();
+            try {
+                IoGate.Permit permit = scheduler.beginListing(directory);
+                try {
+                    read(entries);
+                    listing.listed = true;
+                } finally {
+                    permit.close();
+                }
+            } catch (IOException | DirectoryIteratorException e) {
+                statistics.error();
+                log.debug("Cannot list directory {}: {}", directory, e.getMessage());
+            }
+            try {
+                for (Entry entry : entries) {
+                    visit(entry, listing, subtasks);
+                }
+            } catch (RuntimeException | Error e) {
+                scheduler.abort();
+                throw e;
+            }
+            
+            // Join in fork order so results follow the directory listing
+            for (Supplier<Listing<T>> subtask : subtasks) {
+                Listing<T> child = subtask.get();
+                listing.results.addAll(child.results);
+                if (child.listed) {
+                    listing.totals.addDirectory(child.totals);
+                }
+            }
+            if (listing.listed) {
+                try {
+                    listener.directoryListed(directory, attrs, depth, listing.totals);
+                } catch (RuntimeException e) {
+                    statistics.error();
+                    log.warn("Error processing directory {}: {}", directory, e.getMessage());
+                }
+            }
+            return listing;
+        }
+        
+        /**
+         * Read the entries and their attributes; the time spent reading the directory, not the attributes,
+         * is the listing time. Entries read before a failure are kept.
+         */
+        private void read(List<Entry> entries) throws IOException {
+            DirectoryListedEvent event = new DirectoryListedEvent();
+            event.begin();
+            long started = System.nanoTime();
+            long attributeNanos = 0;
+            int visited = 0;
+            boolean read = false;
+            try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory)) {
+                statistics.directoryVisited();
+                for (Path path : stream) {
+                    long attributesStarted = System.nanoTime();
+                    try {
+                        EntryAttributes entryAttributes = EntryAttributes.read(path, dosAttributes, statistics);
+                        if (filter.acceptsHidden(entryAttributes.isHidden())) {
+                            entries.add(new Entry(path, entryAttributes.getAttributes()));
+                        }
+                    } catch (IOException e) {
+                        statistics.error();
+                        log.debug("Cannot read attributes of {}: {}", path, e.getMessage());
+                    }
+                    attributeNanos += System.nanoTime() - attributesStarted;
+                    visited++;
+                }
+                read = true;
+            } finally {
+                long readNanos = System.nanoTime() - started - attributeNanos;
+                if (read) {
+                    statistics.directoryRead(readNanos);
+                }
+                event.finish(directory, visited, readNanos, !read);
+            }
+        }
+        
+        private void visit(Entry entry, Listing<T> listing, List<Supplier<Listing<T>>> subtasks) {
+            Path path = entry.path;
+            BasicFileAttributes entryAttrs = entry.attrs;
+            if (entryAttrs.isDirectory()) {
+                subtasks.add(scheduler.fork(new DirectoryTask<>(path, entryAttrs, depth + 1, filter, processor,
+                        listener, statistics, dosAttributes, blockSize, scheduler)));
+            } else if (entryAttrs.isRegularFile()) {
+                statistics.fileVisited();
+                if (!filter.acceptsExtension(FileTypeDetector.getExtension(path.getFileName().toString()))) {
+                    return;
+                }
+                try {
+                    T result = processor.process(path, entryAttrs);
+                    if (result != null) {
+                        listing.results.add(result);
+                    }
+                    listing.totals.addFile(entryAttrs.size(), blockSize);
+                    statistics.fileMatched(entryAttrs.size());
+                } catch (IOException | UncheckedIOException e) {
+                    // Only the file is lost; anything else, e.g. a failed write of processed results, aborts the walk
+                    statistics.error();
+                    log.warn("Error processing file {}: {}", path, e.getMessage());
+                }
+            }
+        }
+    }
+    
+    /**
+     * A listed entry that passed the hidden filter, with the attributes it was listed with
+     */
+    private static final class Entry {
+        final Path path;
+        final BasicFileAttributes attrs;
+        
+        Entry(Path path, BasicFileAttributes attrs) {
+            this.path = path;
+            this.attrs = attrs;
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package com.diskmanager.scanner;
+
+import com.diskmanager.model.DirectoryInfo;
+import com.diskmanager.model.FileInfo;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+
+/**
+ * Differences between the stored index and the file system found by an incremental walk.
+ * Filled concurrently by the walker tasks.
+ */
+public class ScanChanges {
+    
+    private final Queue<FileInfo> added = new ConcurrentLinkedQueue<>();
+    private final Queue<FileInfo> modified = new ConcurrentLinkedQueue<>();
+    private final Queue<FileInfo> deleted = new ConcurrentLinkedQueue<>();
+    private final Queue<Long> deletedDirectoryIds = new ConcurrentLinkedQueue<>();
+    private final Queue<DirectoryInfo> directories = new ConcurrentLinkedQueue<>();
+    private final LongAdder unchangedDirectories = new LongAdder();
+    
+    public void fileAdded(FileInfo file) {
+        added.add(file);
+    }
+    
+    public void fileModified(FileInfo file) {
+        modified.add(file);
+    }
+    
+    public void fileDeleted(FileInfo file) {
+        deleted.add(file);
+    }
+    
+    /**
+     * A stored directory that no longer exists; its files are deleted with it
+     */
+    public void directoryDeleted(Long id) {
+        deletedDirectoryIds.add(id);
+    }
+    
+    /**
+     * A directory that is new or whose listing changed
+     */
+    public void directoryListed(DirectoryInfo directory) {
+        directories.add(directory);
+    }
+    
+    /**
+     * A directory whose listing was reused from the previous scan
+     */
+    public void directoryUnchanged() {
+        unchangedDirectories.increment();
+    }
+    
+    public List<FileInfo> getAdded() {
+        return new ArrayList<>(added);
+    }
+    
+    public List<FileInfo> getModified() {
+        return new ArrayList<>(modified);
+    }
+    
+    public List<FileInfo> getDeleted() {
+        return new ArrayList<>(deleted);
+    }
+    
+    public List<Long> getDeletedFileIds() {
+        return deleted.stream().map(FileInfo::getId).collect(Collectors.toList());
+    }
+    
+    public List<Long> getDeletedDirectoryIds() {
+        return new ArrayList<>(deletedDirectoryIds);
+    }
+    
+    public List<DirectoryInfo> getDirectories() {
+        return new ArrayList<>(directories);
+    }
+    
+    public long getUnchangedDirectories() {
+        return unchangedDirectories.sum();
+    }
+}
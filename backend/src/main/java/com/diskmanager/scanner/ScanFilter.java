@@ -0,0 +1,65 @@
+package com.diskmanager.scanner;
+
+import com.diskmanager.dto.ScanRequestDTO;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Immutable filter applied while walking a directory tree.
+ * Mirrors the semantics of {@link ScanRequestDTO}: depth limit, hidden entries and extension whitelist.
+ */
+public class ScanFilter {
+    
+    private final int maxDepth;
+    private final boolean includeHidden;
+    private final Set<String> fileExtensions; // empty means all extensions
+    
+    public ScanFilter(int maxDepth, boolean includeHidden, Set<String> fileExtensions) {
+        this.maxDepth = maxDepth;
+        this.includeHidden = includeHidden;
+        this.fileExtensions = fileExtensions != null ?
+                Collections.unmodifiableSet(new HashSet<>(fileExtensions)) : Collections.emptySet();
+    }
+    
+    /**
+     * Build a filter from a scan request, applying the request defaults for missing values
+     */
+    public static ScanFilter from(ScanRequestDTO request) {
+        int maxDepth = request.getMaxDepth() != null ? request.getMaxDepth() : 10;
+        boolean includeHidden = Boolean.TRUE.equals(request.getIncludeHidden());
+        Set<String> extensions = request.getFileExtensions() != null ?
+                new HashSet<>(request.getFileExtensions()) : null;
+        return new ScanFilter(maxDepth, includeHidden, extensions);
+    }
+    
+    /**
+     * Check whether a directory at the given depth should be listed
+     */
+    public boolean allowsDepth(int depth) {
+        return depth <= maxDepth;
+    }
+    
+    /**
+     * Check whether an entry with the given hidden flag should be visited
+     */
+    public boolean acceptsHidden(boolean hidden) {
+        return includeHidden || !hidden;
+    }
+    
+    /**
+     * Check whether a file with the given extension should be recorded
+     */
+    public boolean acceptsExtension(String extension) {
+        return fileExtensions.isEmpty() || fileExtensions.contains(extension);
+    }
+    
+    public int getMaxDepth() {
+        return maxDepth;
+    }
+    
+    public boolean isIncludeHidden() {
+        return includeHidden;
+    }
+}
@@ -0,0 +1,158 @@
+package com.diskmanager.scanner;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Thread-safe counters collected while walking a directory tree,
+ * plus the cooperative cancellation flag the walk checks before listing a directory
+ */
+public class ScanStatistics {
+    
+    private final LongAdder directoriesVisited = new LongAdder();
+    private final LongAdder filesVisited = new LongAdder();
+    private final LongAdder filesMatched = new LongAdder();
+    private final LongAdder bytesMatched = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+    private final LongAdder directoryListings = new LongAdder();
+    private final LongAdder attributeReads = new LongAdder();
+    private final LongAdder listingNanos = new LongAdder();
+    private final LongAdder attributeReadNanos = new LongAdder();
+    
+    private volatile long startNanos;
+    private volatile long endNanos;
+    private volatile boolean cancelled;
+    
+    public void start() {
+        startNanos = System.nanoTime();
+        endNanos = 0;
+    }
+    
+    public void finish() {
+        endNanos = System.nanoTime();
+    }
+    
+    public void directoryVisited() {
+        directoriesVisited.increment();
+    }
+    
+    public void fileVisited() {
+        filesVisited.increment();
+    }
+    
+    public void fileMatched(long size) {
+        filesMatched.increment();
+        bytesMatched.add(size);
+    }
+    
+    /**
+     * Ask the walk to stop; directories not listed yet are skipped
+     */
+    public void cancel() {
+        cancelled = true;
+    }
+    
+    public boolean isCancelled() {
+        return cancelled;
+    }
+    
+    /**
+     * Whether the walk has started and finished, after which results are being stored
+     */
+    public boolean isFinished() {
+        return endNanos != 0;
+    }
+    
+    public void error() {
+        errors.increment();
+    }
+    
+    public void directoryListed() {
+        directoryListings.increment();
+    }
+    
+    /**
+     * A directory was read completely; the time covers opening and reading its entries, not visiting them
+     */
+    public void directoryRead(long nanos) {
+        listingNanos.add(nanos);
+    }
+    
+    public void attributesRead(long nanos) {
+        attributeReads.increment();
+        attributeReadNanos.add(nanos);
+    }
+    
+    public long getDirectoriesVisited() {
+        return directoriesVisited.sum();
+    }
+    
+    public long getFilesVisited() {
+        return filesVisited.sum();
+    }
+    
+    public long getFilesMatched() {
+        return filesMatched.sum();
+    }
+    
+    public long getBytesMatched() {
+        return bytesMatched.sum();
+    }
+    
+    public long getErrors() {
+        return errors.sum();
+    }
+    
+    public long getDirectoryListings() {
+        return directoryListings.sum();
+    }
+    
+    public long getAttributeReads() {
+        return attributeReads.sum();
+    }
+    
+    /**
+     * Time spent reading directories, see {@link #directoryRead}
+     */
+    public long getListingNanos() {
+        return listingNanos.sum();
+    }
+    
+    public long getAttributeReadNanos() {
+        return attributeReadNanos.sum();
+    }
+    
+    /**
+     * Metadata calls (directory opens plus attribute reads) issued by the walk
+     */
+    public long getMetadataCalls() {
+        return getDirectoryListings() + getAttributeReads();
+    }
+    
+    /**
+     * Average metadata calls per visited file
+     */
+    public double getMetadataCallsPerFile() {
+        long files = getFilesVisited();
+        return files > 0 ? (double) getMetadataCalls() / files : 0;
+    }
+    
+    /**
+     * Elapsed wall time of the walk, or time since start while it is still running
+     */
+    public long getElapsedMillis() {
+        if (startNanos == 0) {
+            return 0;
+        }
+        long end = endNanos != 0 ? endNanos : System.nanoTime();
+        return TimeUnit.NANOSECONDS.toMillis(end - startNanos);
+    }
+    
+    /**
+     * Visited files per second of wall time
+     */
+    public double getFilesPerSecond() {
+        long elapsed = getElapsedMillis();
+        return elapsed > 0 ? getFilesVisited() * 1000.0 / elapsed : getFilesVisited();
+    }
+}
@@ -0,0 +1,65 @@
+package com.diskmanager.scanner;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Threads a walk runs on. PLATFORM forks directory tasks onto a work-stealing pool of
+ * parallelism platform threads. VIRTUAL starts a virtual thread per directory task and lets
+ * at most parallelism of them list a directory at a time, so a blocked listing parks a cheap
+ * thread instead of a pool worker while the device is still limited to the same queue depth.
+ * <p>
+ * Virtual threads need Java 21. The executor is looked up reflectively so the same build runs
+ * on Java 17, where VIRTUAL falls back to PLATFORM.
+ */
+public enum ThreadMode {
+    PLATFORM,
+    VIRTUAL;
+    
+    private static final Method NEW_VIRTUAL_EXECUTOR = findVirtualExecutorFactory();
+    
+    public static ThreadMode of(String name) {
+        for (ThreadMode mode : values()) {
+            if (mode.name().equalsIgnoreCase(name)) {
+                return mode;
+            }
+        }
+        throw new IllegalArgumentException("Unknown thread mode: " + name + ", use platform or virtual");
+    }
+    
+    public static boolean virtualThreadsAvailable() {
+        return NEW_VIRTUAL_EXECUTOR != null;
+    }
+    
+    /**
+     * The mode a walk actually runs in on this runtime
+     */
+    public ThreadMode effective() {
+        return this == VIRTUAL && !virtualThreadsAvailable() ? PLATFORM : this;
+    }
+    
+    /**
+     * Executor starting a new virtual thread per task
+     * @throws UnsupportedOperationException before Java 21
+     */
+    static ExecutorService newVirtualThreadPerTaskExecutor() {
+        if (NEW_VIRTUAL_EXECUTOR == null) {
+            throw new UnsupportedOperationException("Virtual threads need Java 21, running on "
+                    + Runtime.version());
+        }
+        try {
+            return (ExecutorService) NEW_VIRTUAL_EXECUTOR.invoke(null);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Cannot create a virtual thread executor", e);
+        }
+    }
+    
+    private static Method findVirtualExecutorFactory() {
+        try {
+            return Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+        } catch (NoSuchMethodException e) {
+            return null;
+        }
+    }
+}
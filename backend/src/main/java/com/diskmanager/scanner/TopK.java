@@ -0,0 +1,83 @@
+package com.diskmanager.scanner;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * The k items with the largest keys seen so far, kept in a min-heap of at most k entries.
+ * Offers are accepted concurrently from walker threads. Once the heap is full, an offer that
+ * does not beat the smallest kept key is rejected without taking the lock, which is the
+ * case for almost every file of a large tree.
+ */
+public class TopK<T> {
+    
+    private static final Comparator<Entry<?>> BY_KEY = Comparator.comparingLong(entry -> entry.key);
+    
+    private final int k;
+    private final PriorityQueue<Entry<T>> heap;
+    private volatile long threshold = Long.MIN_VALUE; // smallest kept key once the heap is full
+    private long offered;
+    
+    public TopK(int k) {
+        if (k < 1) {
+            throw new IllegalArgumentException("k must be at least 1");
+        }
+        this.k = k;
+        this.heap = new PriorityQueue<>(k, BY_KEY);
+    }
+    
+    /**
+     * Keep an item if its key is among the k largest so far
+     * @return true if the item was kept
+     */
+    public boolean offer(long key, T item) {
+        if (key <= threshold) {
+            return false;
+        }
+        synchronized (this) {
+            offered++;
+            if (heap.size() < k) {
+                heap.add(new Entry<>(key, item));
+            } else if (key > heap.peek().key) {
+                heap.poll();
+                heap.add(new Entry<>(key, item));
+            } else {
+                return false;
+            }
+            if (heap.size() == k) {
+                threshold = heap.peek().key;
+            }
+            return true;
+        }
+    }
+    
+    /**
+     * Kept items, largest key first
+     */
+    public synchronized List<T> toList() {
+        List<Entry<T>> entries = new ArrayList<>(heap);
+        entries.sort(BY_KEY.reversed());
+        List<T> items = new ArrayList<>(entries.size());
+        entries.forEach(entry -> items.add(entry.item));
+        return items;
+    }
+    
+    /**
+     * Offers that got past the threshold check and had to take the lock
+     */
+    public synchronized long getOffered() {
+        return offered;
+    }
+    
+    private static class Entry<T> {
+        final long key;
+        final T item;
+        
+        Entry(long key, T item) {
+            this.key = key;
+            this.item = item;
+        }
+    }
+}
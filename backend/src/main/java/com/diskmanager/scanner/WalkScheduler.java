@@ -0,0 +1,169 @@
+package com.diskmanager.scanner;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.nio.file.Path;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Runs the directory tasks of a walk on the threads of a {@link ThreadMode}
+ */
+@Slf4j
+abstract class WalkScheduler {
+    
+    private volatile boolean aborted;
+    
+    /**
+     * @param threadMode effective mode of the walk
+     * @param parallelism pool size for platform threads, concurrent directory listings for virtual threads
+     * @param ioGate entered for every directory listing
+     */
+    static WalkScheduler create(ThreadMode threadMode, int parallelism, IoGate ioGate) {
+        return threadMode == ThreadMode.VIRTUAL ?
+                new VirtualThreadScheduler(parallelism, ioGate) : new PoolScheduler(parallelism, ioGate);
+    }
+    
+    abstract <R> R invoke(Callable<R> root);
+    
+    /**
+     * Start a subtask and return what waits for its result
+     */
+    abstract <R> Supplier<R> fork(Callable<R> task);
+    
+    /**
+     * Held while a directory and the attributes of its entries are read, not while the entries
+     * are processed or subtasks are waited for
+     */
+    abstract IoGate.Permit beginListing(Path directory);
+    
+    /**
+     * Stop the threads, waiting for tasks still running so that a failed walk has no side effects left
+     */
+    abstract void shutdown();
+    
+    /**
+     * A task failed, the remaining tasks return without listing
+     */
+    void abort() {
+        aborted = true;
+    }
+    
+    boolean isAborted() {
+        return aborted;
+    }
+    
+    static void awaitTermination(ExecutorService executor) {
+        try {
+            while (!executor.awaitTermination(1, TimeUnit.SECONDS)) {
+                log.debug("Waiting for directory tasks of an aborted walk to stop");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+    
+    /**
+     * Work-stealing pool of platform threads; a worker waiting for a subtask runs queued tasks meanwhile
+     */
+    private static class PoolScheduler extends WalkScheduler {
+        
+        private final ForkJoinPool pool;
+        private final IoGate ioGate;
+        
+        PoolScheduler(int parallelism, IoGate ioGate) {
+            this.pool = new ForkJoinPool(parallelism);
+            this.ioGate = ioGate;
+        }
+        
+        @Override
+        <R> R invoke(Callable<R> root) {
+            return pool.invoke(ForkJoinTask.adapt(root));
+        }
+        
+        @Override
+        <R> Supplier<R> fork(Callable<R> task) {
+            return ForkJoinTask.adapt(task).fork()::join;
+        }
+        
+        @Override
+        IoGate.Permit beginListing(Path directory) {
+            return ioGate.enter(directory);
+        }
+        
+        @Override
+        void shutdown() {
+            pool.shutdownNow(); // a completed walk has no tasks left, a failed one stops them
+            awaitTermination(pool);
+        }
+    }
+    
+    /**
+     * A virtual thread per directory task. Waiting for subtasks only parks the virtual thread,
+     * and a semaphore keeps the number of directories being listed at once to the parallelism.
+     */
+    private static class VirtualThreadScheduler extends WalkScheduler {
+        
+        private final ExecutorService executor = ThreadMode.newVirtualThreadPerTaskExecutor();
+        private final Semaphore listings;
+        private final IoGate ioGate;
+        
+        VirtualThreadScheduler(int parallelism, IoGate ioGate) {
+            this.listings = new Semaphore(parallelism);
+            this.ioGate = ioGate;
+        }
+        
+        @Override
+        <R> R invoke(Callable<R> root) {
+            return fork(root).get();
+        }
+        
+        @Override
+        <R> Supplier<R> fork(Callable<R> task) {
+            Future<R> future = executor.submit(task);
+            return () -> join(future);
+        }
+        
+        @Override
+        IoGate.Permit beginListing(Path directory) {
+            // The device first, so a thread waiting for a busy disk does not hold a listing slot
+            IoGate.Permit device = ioGate.enter(directory);
+            listings.acquireUninterruptibly();
+            return () -> {
+                listings.release();
+                device.close();
+            };
+        }
+        
+        @Override
+        void shutdown() {
+            executor.shutdownNow(); // a completed walk has no tasks left, a failed one stops them
+            awaitTermination(executor);
+        }
+        
+        private static <T> T join(Future<T> future) {
+            try {
+                return future.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new CancellationException("Walk was interrupted");
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof RuntimeException) {
+                    throw (RuntimeException) e.getCause();
+                }
+                if (e.getCause() instanceof Error) {
+                    throw (Error) e.getCause();
+                }
+                throw new IllegalStateException(e.getCause());
+            }
+        }
+    }
+}
@@ -0,0 +1,295 @@
+package com.diskmanager.service;
+
+import com.diskmanager.dedup.DuplicateDetectionPipeline;
+import com.diskmanager.dto.CompactIndexStatusDTO;
+import com.diskmanager.dto.CursorPageDTO;
+import com.diskmanager.dto.DiskStatisticsDTO;
+import com.diskmanager.dto.DuplicateGroupDTO;
+import com.diskmanager.dto.DuplicateSearchResultDTO;
+import com.diskmanager.dto.FileInfoDTO;
+import com.diskmanager.dto.ScanRequestDTO;
+import com.diskmanager.dto.ScanResultDTO;
+import com.diskmanager.hash.ContentHasher;
+import com.diskmanager.hash.ContentHasherRegistry;
+import com.diskmanager.hash.HashCache;
+import com.diskmanager.io.AdaptiveThrottle;
+import com.diskmanager.io.DeviceIoScheduler;
+import com.diskmanager.io.IoThrottling;
+import com.diskmanager.metrics.ScanMetrics;
+import com.diskmanager.index.CompactFileIndex;
+import com.diskmanager.index.IndexedFile;
+import com.diskmanager.model.FileInfo;
+import com.diskmanager.scanner.ParallelDirectoryWalker;
+import com.diskmanager.scanner.ScanFilter;
+import com.diskmanager.scanner.ScanStatistics;
+import com.diskmanager.scanner.ThreadMode;
+import com.diskmanager.util.FileSizeFormatter;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Collectors;
+
+/**
+ * Scans into the {@link CompactFileIndex} instead of the database and answers large-file,
+ * type and duplicate queries from it. Meant for trees too large to keep as entities;
+ * enabled with app.index.compact.enabled.
+ */
+@Service
+@ConditionalOnProperty(name = "app.index.compact.enabled", havingValue = "true")
+@RequiredArgsConstructor
+@Slf4j
+public class CompactIndexService {
+    
+    private final ContentHasherRegistry contentHasherRegistry;
+    private final HashCache hashCache;
+    private final DeviceIoScheduler deviceIoScheduler;
+    private final IoThrottling ioThrottling;
+    private final ScanMetrics scanMetrics;
+    private final ReentrantLock scanLock = new ReentrantLock(); // one scan at a time keeps slot marks valid
+    
+    @Value("${app.index.compact.off-heap:false}")
+    private boolean offHeap;
+    
+    @Value("${app.index.compact.initial-capacity:100000}")
+    private int initialCapacity;
+    
+    @Value("${app.scanner.parallelism:0}")
+    private int defaultParallelism;
+    
+    @Value("${app.scanner.threads:platform}")
+    private String defaultThreadMode;
+    
+    @Value("${app.duplicates.partial-chunk-size:64KB}")
+    private String partialChunkSize;
+    
+    @Value("${app.scanner.large-file-threshold:100MB}")
+    private String largeFileThreshold;
+    
+    private CompactFileIndex index;
+    
+    @PostConstruct
+    public void init() {
+        index = new CompactFileIndex(initialCapacity, offHeap);
+        log.info("Compact index enabled ({})", offHeap ? "off-heap" : "on-heap");
+    }
+    
+    /**
+     * Walk a tree into the index, replacing what was indexed below its root before
+     */
+    public ScanResultDTO scan(ScanRequestDTO request) {
+        Path root = Paths.get(request.getPath());
+        if (!Files.isDirectory(root)) {
+            throw new IllegalArgumentException("Invalid directory path: " + request.getPath());
+        }
+        Path start = root.toAbsolutePath().normalize();
+        ScanStatistics statistics = new ScanStatistics();
+        AdaptiveThrottle throttle = Boolean.TRUE.equals(request.getThrottle()) ? ioThrottling.forPath(start) : null;
+        ParallelDirectoryWalker walker = new ParallelDirectoryWalker(
+                request.getParallelism() != null ? request.getParallelism() : defaultParallelism,
+                ThreadMode.of(request.getThreadMode() != null ? request.getThreadMode() : defaultThreadMode),
+                throttle != null ? throttle.gate(deviceIoScheduler, statistics) : deviceIoScheduler);
+        
+        scanLock.lock();
+        try {
+            int directoryMark = index.getDirectorySlots();
+            int fileMark = index.getFileSlots();
+            Map<String, Integer> directories = new ConcurrentHashMap<>();
+            ScanMetrics.Tracking tracking = scanMetrics.track(statistics);
+            try {
+                walker.walk(start, ScanFilter.from(request), (file, attrs) -> {
+                    index.addFile(directory(directories, start, file.getParent()), file.getFileName().toString(),
+                            attrs.size(), attrs.lastModifiedTime().toMillis());
+                    return null;
+                }, (dir, attrs, depth, totals) -> directory(directories, start, dir), statistics);
+            } catch (RuntimeException e) {
+                index.removeFrom(directoryMark, fileMark);
+                index.compact();
+                throw e;
+            } finally {
+                tracking.close();
+            }
+            int indexed = index.getFileSlots() - fileMark;
+            int replaced = index.removeSubtree(start.toString(), directoryMark, fileMark);
+            index.compact();
+            log.info("Indexed {} files below {} in {} ms, replaced {}; index holds {} files in {}", indexed, start,
+                    statistics.getElapsedMillis(), replaced, index.getFileCount(),
+                    FileSizeFormatter.formatSize(index.getMemoryBytes()));
+            
+            ScanResultDTO result = new ScanResultDTO();
+            result.setFiles(Collections.emptyList());
+            result.setFilesStored((long) indexed);
+            result.setDirectoriesVisited(statistics.getDirectoriesVisited());
+            result.setFilesVisited(statistics.getFilesVisited());
+            result.setErrors(statistics.getErrors());
+            result.setElapsedMillis(statistics.getElapsedMillis());
+            result.setFilesPerSecond(statistics.getFilesPerSecond());
+            result.setParallelism(walker.getParallelism());
+            result.setThreadMode(walker.getThreadMode().name());
+            result.setThrottledMillis(throttle != null ? throttle.getThrottledMillis() : 0);
+            result.setIncremental(false);
+            result.setFilesAdded((long) indexed);
+            result.setFilesDeleted((long) replaced);
+            return result;
+        } finally {
+            scanLock.unlock();
+        }
+    }
+    
+    /**
+     * Slot of a directory of the current walk, adding it and its parents on first sight
+     */
+    private int directory(Map<String, Integer> directories, Path root, Path directory) {
+        Integer slot = directories.get(directory.toString());
+        if (slot != null) {
+            return slot;
+        }
+        int parent = directory.equals(root) ? CompactFileIndex.NO_PARENT : directory(directories, root, directory.getParent());
+        String name = directory.equals(root) ? root.toString() : directory.getFileName().toString();
+        return directories.computeIfAbsent(directory.toString(), path -> index.addDirectory(parent, name));
+    }
+    
+    public CompactIndexStatusDTO getStatus() {
+        long files = index.getFileCount();
+        long memory = index.getMemoryBytes();
+        return new CompactIndexStatusDTO(index.isOffHeap(), files, (long) index.getDirectoryCount(),
+                (long) index.getNameCount(), memory, FileSizeFormatter.formatSize(memory),
+                files > 0 ? (double) memory / files : null);
+    }
+    
+    public List<FileInfoDTO> getLargeFiles(long sizeThreshold, int limit) {
+        return index.findLargest(sizeThreshold, limit).stream()
+                .map(CompactIndexService::convertToDTO)
+                .collect(Collectors.toList());
+    }
+    
+    /**
+     * Totals and type distribution in one pass over the columns; duplicates are not tracked by the index
+     */
+    public DiskStatisticsDTO getStatistics() {
+        long[] sum = new long[4];
+        Map<String, Long> typeDistribution = new HashMap<>();
+        Map<String, Long> sizeByType = new HashMap<>();
+        index.totalsByType(FileSizeFormatter.parseSize(largeFileThreshold)).forEach((type, totals) -> {
+            for (int i = 0; i < sum.length; i++) {
+                sum[i] += totals[i];
+            }
+            typeDistribution.put(type, totals[0]);
+            sizeByType.put(type, totals[1]);
+        });
+        
+        DiskStatisticsDTO stats = new DiskStatisticsDTO();
+        stats.setTotalFiles(sum[0]);
+        stats.setTotalSize(sum[1]);
+        stats.setTotalSizeFormatted(FileSizeFormatter.formatSize(sum[1]));
+        stats.setFileTypeDistribution(typeDistribution);
+        stats.setSizeByFileType(sizeByType);
+        stats.setLargeFilesCount(sum[2]);
+        stats.setLargeFilesSize(sum[3]);
+        return stats;
+    }
+    
+    /**
+     * Run the duplicate pipeline over the files of the index that share their size
+     * @param limit groups returned, largest reclaimable bytes first
+     */
+    public DuplicateSearchResultDTO findDuplicates(String algorithm, int limit) {
+        ContentHasher hasher = contentHasherRegistry.get(algorithm);
+        List<FileInfo> candidates = index.findSizeCollisions().stream()
+                .map(CompactIndexService::toFileInfo)
+                .collect(Collectors.toList());
+        
+        int chunkSize = (int) FileSizeFormatter.parseSize(partialChunkSize);
+        DuplicateDetectionPipeline pipeline = new DuplicateDetectionPipeline(hasher, chunkSize, hashCache,
+                deviceIoScheduler, null, scanMetrics);
+        List<List<FileInfo>> groups = pipeline.detect(candidates);
+        groups.sort(Comparator.comparingLong(CompactIndexService::reclaimableBytes).reversed());
+        
+        long reclaimable = groups.stream().mapToLong(CompactIndexService::reclaimableBytes).sum();
+        List<DuplicateGroupDTO> items = new ArrayList<>();
+        for (List<FileInfo> group : groups.subList(0, Math.min(limit, groups.size()))) {
+            FileInfo first = group.get(0);
+            long groupReclaimable = reclaimableBytes(group);
+            group.sort(Comparator.comparing(FileInfo::getFilePath));
+            items.add(new DuplicateGroupDTO((long) items.size() + 1, first.getContentHash(), hasher.getAlgorithm(),
+                    first.getFileSize(), FileSizeFormatter.formatSize(first.getFileSize()), (long) group.size(),
+                    groupReclaimable, FileSizeFormatter.formatSize(groupReclaimable),
+                    group.stream().map(CompactIndexService::convertToDTO).collect(Collectors.toList())));
+        }
+        return new DuplicateSearchResultDTO((long) groups.size(), reclaimable,
+                new CursorPageDTO<>(items, null), pipeline.getStatistics());
+    }
+    
+    public void clear() {
+        scanLock.lock();
+        try {
+            index.clear();
+            log.info("Compact index cleared");
+        } finally {
+            scanLock.unlock();
+        }
+    }
+    
+    private static long reclaimableBytes(List<FileInfo> group) {
+        return group.get(0).getFileSize() * (group.size() - 1);
+    }
+    
+    private static FileInfo toFileInfo(IndexedFile file) {
+        FileInfo fileInfo = new FileInfo();
+        fileInfo.setFileName(file.getName());
+        fileInfo.setFilePath(file.getPath());
+        fileInfo.setFileSize(file.getSize());
+        fileInfo.setFileExtension(file.getExtension());
+        fileInfo.setFileType(file.getType());
+        fileInfo.setLastModified(modified(file.getModifiedMillis()));
+        return fileInfo;
+    }
+    
+    private static FileInfoDTO convertToDTO(IndexedFile file) {
+        FileInfoDTO dto = new FileInfoDTO();
+        dto.setFileName(file.getName());
+        dto.setFilePath(file.getPath());
+        dto.setFileSize(file.getSize());
+        dto.setFileSizeFormatted(FileSizeFormatter.formatSize(file.getSize()));
+        dto.setFileExtension(file.getExtension());
+        dto.setFileType(file.getType());
+        dto.setLastModified(modified(file.getModifiedMillis()).toString());
+        return dto;
+    }
+    
+    private static FileInfoDTO convertToDTO(FileInfo fileInfo) {
+        FileInfoDTO dto = new FileInfoDTO();
+        dto.setFileName(fileInfo.getFileName());
+        dto.setFilePath(fileInfo.getFilePath());
+        dto.setFileSize(fileInfo.getFileSize());
+        dto.setFileSizeFormatted(FileSizeFormatter.formatSize(fileInfo.getFileSize()));
+        dto.setContentHash(fileInfo.getContentHash());
+        dto.setHashAlgorithm(fileInfo.getHashAlgorithm());
+        dto.setFileExtension(fileInfo.getFileExtension());
+        dto.setFileType(fileInfo.getFileType());
+        dto.setLastModified(fileInfo.getLastModified().toString());
+        dto.setIsDuplicate(true);
+        return dto;
+    }
+    
+    private static LocalDateTime modified(long millis) {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(millis), ZoneId.systemDefault());
+    }
+}
@@ -1,27 +1,73 @@
 package com.diskmanager.service;
 
+import com.diskmanager.dedup.DuplicateDetectionPipeline;
+import com.diskmanager.dedup.DuplicateGroupingEngine;
+import com.diskmanager.dto.CursorPageDTO;
+import com.diskmanager.dto.DirectoryNodeDTO;
 import com.diskmanager.dto.DiskStatisticsDTO;
+import com.diskmanager.dto.DuplicateGroupDTO;
+import com.diskmanager.dto.DuplicateSearchResultDTO;
 import com.diskmanager.dto.FileInfoDTO;
+import com.diskmanager.dto.HashCacheStatisticsDTO;
+import com.diskmanager.dto.IoDeviceDTO;
 import com.diskmanager.dto.ScanRequestDTO;
+import com.diskmanager.dto.ScanResultDTO;
+import com.diskmanager.dto.TopUsageDTO;
+import com.diskmanager.hash.ContentHasher;
+import com.diskmanager.hash.ContentHasherRegistry;
+import com.diskmanager.hash.FileIdentity;
+import com.diskmanager.hash.HashCache;
+import com.diskmanager.io.AdaptiveThrottle;
+import com.diskmanager.io.DeviceIoScheduler;
+import com.diskmanager.io.IoThrottling;
+import com.diskmanager.metrics.ScanMetrics;
+import com.diskmanager.model.DirectoryInfo;
+import com.diskmanager.model.DuplicateGroup;
 import com.diskmanager.model.FileInfo;
+import com.diskmanager.persistence.DirectoryRollups;
+import com.diskmanager.persistence.DirectoryTree;
+import com.diskmanager.persistence.IndexStatistics;
+import com.diskmanager.persistence.ScanResultWriter;
+import com.diskmanager.repository.DirectoryInfoRepository;
+import com.diskmanager.repository.DuplicateGroupRepository;
 import com.diskmanager.repository.FileInfoRepository;
+import com.diskmanager.scanner.DirectoryTotals;
+import com.diskmanager.scanner.IncrementalDirectoryWalker;
+import com.diskmanager.scanner.IoGate;
+import com.diskmanager.scanner.ParallelDirectoryWalker;
+import com.diskmanager.scanner.ScanChanges;
+import com.diskmanager.scanner.ScanFilter;
+import com.diskmanager.scanner.ScanStatistics;
+import com.diskmanager.scanner.ThreadMode;
+import com.diskmanager.scanner.TopK;
 import com.diskmanager.util.FileSizeFormatter;
 import com.diskmanager.util.FileTypeDetector;
-import com.diskmanager.util.MD5Util;
+import com.diskmanager.util.KeysetCursor;
+import com.diskmanager.util.PathUtil;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
 
-import java.io.File;
-import java.io.IOException;
 import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.nio.file.attribute.BasicFileAttributes;
 import java.time.LocalDateTime;
 import java.time.ZoneId;
+import java.time.temporal.ChronoUnit;
 import java.util.*;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.function.ToLongFunction;
 import java.util.stream.Collectors;
 
 /**
@@ -32,232 +78,843 @@ import java.util.stream.Collectors;
 @Slf4j
 public class DiskScannerService {
     
+    private static final int DELETE_CHUNK_SIZE = 1000;
+    
+    public static final String DUPLICATE_SORT_RECLAIMABLE = "reclaimable";
+    
     private final FileInfoRepository fileInfoRepository;
+    private final DirectoryInfoRepository directoryInfoRepository;
+    private final ContentHasherRegistry contentHasherRegistry;
+    private final HashCache hashCache;
+    private final ScanResultWriter scanResultWriter;
+    private final IndexStatistics indexStatistics;
+    private final DuplicateGroupRepository duplicateGroupRepository;
+    private final DuplicateGroupingEngine duplicateGroupingEngine;
+    private final DirectoryTree directoryTree;
+    private final DirectoryRollups directoryRollups;
+    private final DeviceIoScheduler deviceIoScheduler;
+    private final IoThrottling ioThrottling;
+    private final ScanMetrics scanMetrics;
+    
+    @Value("${app.scanner.parallelism:0}")
+    private int defaultParallelism;
+    
+    @Value("${app.scanner.threads:platform}")
+    private String defaultThreadMode;
+    
+    @Value("${app.scan.result-limit:1000}")
+    private int resultLimit;
+    
+    @Value("${app.duplicates.partial-chunk-size:64KB}")
+    private String partialChunkSize;
+    
+    @Value("${app.duplicates.page-size:100}")
+    private int duplicatePageSize;
     
     /**
-     * Scan a directory and save file information
+     * Scan a directory and save file information; results are committed in chunks as they are written
      */
     @Async("taskExecutor")
-    @Transactional
-    public CompletableFuture<List<FileInfoDTO>> scanDirectory(ScanRequestDTO request) {
+    public CompletableFuture<ScanResultDTO> scanDirectory(ScanRequestDTO request) {
+        return CompletableFuture.completedFuture(scan(request, new ScanStatistics()));
+    }
+    
+    /**
+     * Scan a directory on the calling thread, used to apply watch events
+     */
+    public ScanResultDTO scanNow(ScanRequestDTO request) {
+        return scan(request, new ScanStatistics());
+    }
+    
+    /**
+     * Scan a directory on the calling thread, reporting progress through the given statistics
+     * @throws java.util.concurrent.CancellationException if the statistics were cancelled during the walk
+     */
+    public ScanResultDTO scanNow(ScanRequestDTO request, ScanStatistics statistics) {
+        return scan(request, statistics);
+    }
+    
+    /**
+     * Number of files stored below a directory by previous scans
+     */
+    public long countIndexedFiles(Path directory) {
+        return directoryTree.countFiles(directory);
+    }
+    
+    /**
+     * One page of the files stored below a directory, in the order they were written
+     */
+    public List<FileInfoDTO> getIndexedFiles(Path directory, int page, int size) {
+        return directoryTree.findFiles(directory, page, size).stream()
+                .map(DiskScannerService::convertToDTO)
+                .collect(Collectors.toList());
+    }
+    
+    /**
+     * Check whether a directory was listed by a previous scan
+     */
+    public boolean isIndexed(Path directory) {
+        return directoryTree.findId(directory) != null;
+    }
+    
+    /**
+     * Walk a directory without storing anything, handing each file over as soon as it is found
+     * @param sink called concurrently by the walker threads; blocking in it slows the walk down
+     * @return parallelism of the walk
+     */
+    public int walk(ScanRequestDTO request, ScanStatistics statistics, Consumer<FileInfoDTO> sink) {
+        log.info("Starting streaming walk of directory: {}", request.getPath());
+        
+        Path root = resolveRoot(request);
+        AdaptiveThrottle throttle = throttle(request, root);
+        ParallelDirectoryWalker walker = new ParallelDirectoryWalker(parallelism(request), threadMode(request),
+                ioGate(throttle, statistics));
+        ScanMetrics.Tracking tracking = scanMetrics.track(statistics);
+        try {
+            walker.walk(root, ScanFilter.from(request), (file, attrs) -> {
+                sink.accept(convertToDTO(createFileInfo(file, attrs)));
+                return null;
+            }, statistics);
+        } finally {
+            tracking.close();
+        }
+        logWalk(statistics, walker.getParallelism(), throttle);
+        return walker.getParallelism();
+    }
+    
+    /**
+     * Walk a directory and keep only its largest files and directories in bounded heaps; nothing is stored.
+     * Memory stays proportional to the limit, not to the number of files in the tree.
+     * @param sort size for apparent bytes, rounded for sizes rounded up to whole blocks
+     * @param limit number of files and of directories to keep
+     */
+    public TopUsageDTO findTopUsage(ScanRequestDTO request, String sort, int limit) {
+        boolean rounded;
+        switch (sort) {
+            case "size":
+                rounded = false;
+                break;
+            case "rounded":
+                rounded = true;
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown sort: " + sort + " (use size or rounded)");
+        }
+        log.info("Finding the {} largest files and directories of {}", limit, request.getPath());
+        
+        Path root = resolveRoot(request);
+        long blockSize = DirectoryTotals.blockSize(root);
+        TopK<Map.Entry<Path, BasicFileAttributes>> files = new TopK<>(limit);
+        TopK<Map.Entry<Path, DirectoryTotals>> directories = new TopK<>(limit);
+        AtomicReference<DirectoryTotals> rootTotals = new AtomicReference<>(new DirectoryTotals());
+        
+        ScanStatistics statistics = new ScanStatistics();
+        AdaptiveThrottle throttle = throttle(request, root);
+        ParallelDirectoryWalker walker = new ParallelDirectoryWalker(parallelism(request), threadMode(request),
+                ioGate(throttle, statistics));
+        ScanMetrics.Tracking tracking = scanMetrics.track(statistics);
+        try {
+            walker.walk(root, ScanFilter.from(request), (file, attrs) -> {
+                files.offer(rounded ? DirectoryTotals.rounded(attrs.size(), blockSize) : attrs.size(),
+                        Map.entry(file, attrs));
+                return null;
+            }, (directory, attrs, depth, totals) -> {
+                if (depth == 0) {
+                    rootTotals.set(totals);
+                } else {
+                    directories.offer(rounded ? totals.getRoundedBytes() : totals.getBytes(),
+                            Map.entry(directory, totals));
+                }
+            }, statistics);
+        } finally {
+            tracking.close();
+        }
+        logWalk(statistics, walker.getParallelism(), throttle);
+        
+        TopUsageDTO result = new TopUsageDTO();
+        result.setRoot(convertToNode(root, rootTotals.get()));
+        result.setFiles(files.toList().stream()
+                .map(file -> convertToDTO(createFileInfo(file.getKey(), file.getValue())))
+                .collect(Collectors.toList()));
+        result.setDirectories(directories.toList().stream()
+                .map(directory -> convertToNode(directory.getKey(), directory.getValue()))
+                .collect(Collectors.toList()));
+        result.setSort(sort);
+        result.setDirectoriesVisited(statistics.getDirectoriesVisited());
+        result.setFilesVisited(statistics.getFilesVisited());
+        result.setErrors(statistics.getErrors());
+        result.setElapsedMillis(statistics.getElapsedMillis());
+        result.setFilesPerSecond(statistics.getFilesPerSecond());
+        result.setParallelism(walker.getParallelism());
+        result.setThreadMode(walker.getThreadMode().name());
+        result.setHeapOffers(files.getOffered() + directories.getOffered());
+        result.setThrottledMillis(throttledMillis(throttle));
+        return result;
+    }
+    
+    private ScanResultDTO scan(ScanRequestDTO request, ScanStatistics statistics) {
         log.info("Starting scan of directory: {}", request.getPath());
         
-        File directory = new File(request.getPath());
-        if (!directory.exists() || !directory.isDirectory()) {
+        Path root = resolveRoot(request);
+        int parallelism = parallelism(request);
+        
+        if (Boolean.TRUE.equals(request.getIncremental()) && isIndexed(root)) {
+            return scanIncremental(root, request, parallelism, statistics);
+        }
+        return scanFull(root, request, parallelism, statistics);
+    }
+    
+    private static Path resolveRoot(ScanRequestDTO request) {
+        Path directory = Paths.get(request.getPath());
+        if (!Files.isDirectory(directory)) {
             throw new IllegalArgumentException("Invalid directory path: " + request.getPath());
         }
+        return directory.toAbsolutePath().normalize();
+    }
+    
+    private int parallelism(ScanRequestDTO request) {
+        return request.getParallelism() != null ? request.getParallelism() : defaultParallelism;
+    }
+    
+    private ThreadMode threadMode(ScanRequestDTO request) {
+        ThreadMode threadMode = ThreadMode.of(request.getThreadMode() != null ?
+                request.getThreadMode() : defaultThreadMode);
+        if (threadMode.effective() != threadMode) {
+            log.warn("Virtual threads need Java 21, walking {} on platform threads", request.getPath());
+        }
+        return threadMode;
+    }
+    
+    /**
+     * Budgets of a scan asked to run in the background, null for a scan at full speed
+     */
+    private AdaptiveThrottle throttle(ScanRequestDTO request, Path root) {
+        return Boolean.TRUE.equals(request.getThrottle()) ? ioThrottling.forPath(root) : null;
+    }
+    
+    private IoGate ioGate(AdaptiveThrottle throttle, ScanStatistics statistics) {
+        return throttle != null ? throttle.gate(deviceIoScheduler, statistics) : deviceIoScheduler;
+    }
+    
+    private static long throttledMillis(AdaptiveThrottle throttle) {
+        return throttle != null ? throttle.getThrottledMillis() : 0;
+    }
+    
+    /**
+     * Walk the whole tree and replace everything stored below the root.
+     * Files are written in chunks while the walk runs; the previous scan of the tree stays
+     * in place until the walk has completed and is removed afterwards.
+     */
+    private ScanResultDTO scanFull(Path root, ScanRequestDTO request, int parallelism, ScanStatistics statistics) {
+        AdaptiveThrottle throttle = throttle(request, root);
+        ParallelDirectoryWalker walker = new ParallelDirectoryWalker(parallelism, threadMode(request),
+                ioGate(throttle, statistics));
         
-        List<FileInfo> scannedFiles = new ArrayList<>();
-        scanDirectoryRecursive(directory, scannedFiles, request, 0);
+        // A tree scanned on its own may sit below a previously scanned directory
+        Long rootParentId = root.getParent() == null ? null : directoryTree.findId(root.getParent());
         
-        // Save all files
-        List<FileInfo> savedFiles = fileInfoRepository.saveAll(scannedFiles);
+        // Directory ids are reserved when first seen, so files can be written before their directory.
+        // They are all new, so the files of this scan are the ones referencing them.
+        Map<String, Long> directoryIds = new ConcurrentHashMap<>();
+        Queue<DirectoryInfo> directories = new ConcurrentLinkedQueue<>();
+        AtomicReference<DirectoryTotals> rootTotals = new AtomicReference<>();
         
-        log.info("Scan completed. Found {} files", savedFiles.size());
+        ScanResultWriter.FileBatch batch = scanResultWriter.openFileBatch();
+        long stored;
+        ScanMetrics.Tracking tracking = scanMetrics.track(statistics);
+        try {
+            walker.walk(root, ScanFilter.from(request), (file, attrs) -> {
+                FileInfo fileInfo = createFileInfo(file, attrs);
+                fileInfo.setDirectoryId(directoryId(directoryIds, file.getParent()));
+                batch.add(fileInfo);
+                return null;
+            }, (dir, attrs, depth, totals) -> {
+                DirectoryInfo directoryInfo = createDirectoryInfo(dir, attrs);
+                DirectoryRollups.setTotals(directoryInfo, totals);
+                directoryInfo.setId(directoryId(directoryIds, dir));
+                if (depth == 0 && rootParentId == null) {
+                    directoryInfo.setName(dir.toString());
+                }
+                directoryInfo.setParentId(depth == 0 ? rootParentId : directoryId(directoryIds, dir.getParent()));
+                directories.add(directoryInfo);
+                if (depth == 0) {
+                    rootTotals.set(totals);
+                }
+            }, statistics);
+            stored = batch.close();
+        } catch (RuntimeException e) {
+            // Keep the previous scan of an incomplete walk
+            int discarded = deleteFilesOfDirectories(new ArrayList<>(directoryIds.values()));
+            log.info("Scan of {} did not complete, discarded {} stored files", root, discarded);
+            throw e;
+        } finally {
+            tracking.close();
+        }
+        logWalk(statistics, walker.getParallelism(), throttle);
         
-        List<FileInfoDTO> dtos = savedFiles.stream()
-                .map(this::convertToDTO)
+        // Replace the previous scan of this tree; directories above it take over the difference of its rollup
+        List<DirectoryInfo> replacedDirectories = directoryTree.subtree(root);
+        List<Long> replacedIds = replacedDirectories.stream()
+                .map(DirectoryInfo::getId)
                 .collect(Collectors.toList());
+        DirectoryTotals replacedTotals = replacedDirectories.stream()
+                .filter(directory -> root.toString().equals(directory.getPath())
+                        && Objects.equals(directory.getParentId(), rootParentId))
+                .findFirst()
+                .map(DirectoryRollups::getTotals)
+                .orElse(null);
+        int replaced = scanResultWriter.inTransaction(() -> {
+            int deleted = 0;
+            for (List<Long> ids : partition(replacedIds)) {
+                directoryInfoRepository.deleteByIds(ids);
+                deleted += scanResultWriter.deleteFilesOfDirectories(ids);
+            }
+            directoryRollups.subtreeReplaced(rootParentId, replacedTotals, rootTotals.get());
+            return deleted;
+        });
+        scanResultWriter.insertDirectories(directories);
         
-        return CompletableFuture.completedFuture(dtos);
+        log.info("Scan completed. Stored {} files and {} directories, replaced {} previously stored files",
+                stored, directories.size(), replaced);
+        
+        ScanResultDTO result = createScanResult(directoryTree.findFiles(root, 0, resultLimit), stored,
+                statistics, walker.getParallelism(), walker.getThreadMode());
+        result.setThrottledMillis(throttledMillis(throttle));
+        result.setIncremental(false);
+        result.setFilesAdded(stored);
+        result.setFilesModified(0L);
+        result.setFilesDeleted((long) replaced);
+        result.setDirectoriesUnchanged(0L);
+        return result;
+    }
+    
+    private Long directoryId(Map<String, Long> directoryIds, Path directory) {
+        return directoryIds.computeIfAbsent(directory.toString(), path -> scanResultWriter.nextDirectoryId());
     }
     
     /**
-     * Recursive directory scanning
+     * Compare the tree with the previous scan and store only what changed
      */
-    private void scanDirectoryRecursive(File directory, List<FileInfo> fileList, 
-                                       ScanRequestDTO request, int depth) {
-        if (depth > request.getMaxDepth()) {
-            return;
+    private ScanResultDTO scanIncremental(Path root, ScanRequestDTO request, int parallelism,
+                                          ScanStatistics statistics) {
+        List<DirectoryInfo> storedDirectories = directoryTree.subtree(root);
+        Map<String, DirectoryInfo> storedByPath = new HashMap<>();
+        Map<Long, DirectoryInfo> storedById = new HashMap<>();
+        Map<Long, List<DirectoryInfo>> storedChildren = new HashMap<>();
+        for (DirectoryInfo stored : storedDirectories) {
+            storedByPath.put(stored.getPath(), stored);
+            storedById.put(stored.getId(), stored);
+            storedChildren.computeIfAbsent(stored.getParentId(), k -> new ArrayList<>()).add(stored);
         }
         
-        File[] files = directory.listFiles();
-        if (files == null) {
-            return;
-        }
-        
-        for (File file : files) {
-            // Skip hidden files if not included
-            if (!request.getIncludeHidden() && file.isHidden()) {
-                continue;
+        IncrementalDirectoryWalker.PriorState prior = new IncrementalDirectoryWalker.PriorState() {
+            @Override
+            public DirectoryInfo getDirectory(String path) {
+                return storedByPath.get(path);
+            }
+            
+            @Override
+            public List<DirectoryInfo> getChildren(Long directoryId) {
+                return storedChildren.getOrDefault(directoryId, Collections.emptyList());
             }
             
-            if (file.isDirectory()) {
-                scanDirectoryRecursive(file, fileList, request, depth + 1);
+            @Override
+            public List<FileInfo> getFiles(Long directoryId) {
+                String directory = storedById.get(directoryId).getPath();
+                List<FileInfo> files = fileInfoRepository.findByDirectoryId(directoryId);
+                files.forEach(file -> file.setFilePath(PathUtil.join(directory, file.getFileName())));
+                return files;
+            }
+        };
+        
+        AdaptiveThrottle throttle = throttle(request, root);
+        IncrementalDirectoryWalker walker = new IncrementalDirectoryWalker(parallelism, threadMode(request),
+                ioGate(throttle, statistics));
+        ScanChanges changes;
+        ScanMetrics.Tracking tracking = scanMetrics.track(statistics);
+        try {
+            changes = walker.walk(root, ScanFilter.from(request),
+                    Boolean.TRUE.equals(request.getTrustDirectoryMtime()), prior, this::createFileInfo, statistics);
+        } finally {
+            tracking.close();
+        }
+        logWalk(statistics, walker.getParallelism(), throttle);
+        
+        // Deletions first, then directories so that added files can reference them
+        int deletedFiles = deleteDirectories(changes.getDeletedDirectoryIds());
+        for (List<Long> ids : partition(changes.getDeletedFileIds())) {
+            deletedFiles += scanResultWriter.inTransaction(() -> scanResultWriter.deleteFiles(ids));
+        }
+        
+        Map<String, Long> directoryIds = new HashMap<>();
+        storedByPath.forEach((path, stored) -> directoryIds.put(path, stored.getId()));
+        saveDirectories(changes.getDirectories(), directoryIds);
+        
+        List<FileInfo> added = changes.getAdded();
+        added.forEach(file -> file.setDirectoryId(directoryIds.get(parentPath(file))));
+        scanResultWriter.insertFiles(added);
+        scanResultWriter.updateFiles(changes.getModified());
+        int rollups = updateRollups(root, storedDirectories, changes);
+        
+        log.info("Incremental scan completed. {} added, {} modified, {} deleted, {} directories unchanged, " +
+                        "{} rollups updated", added.size(), changes.getModified().size(), deletedFiles,
+                changes.getUnchangedDirectories(), rollups);
+        
+        List<FileInfo> changedFiles = new ArrayList<>(added);
+        changedFiles.addAll(changes.getModified());
+        ScanResultDTO result = createScanResult(changedFiles.subList(0, Math.min(resultLimit, changedFiles.size())),
+                changedFiles.size(), statistics, walker.getParallelism(), walker.getThreadMode());
+        result.setThrottledMillis(throttledMillis(throttle));
+        result.setIncremental(true);
+        result.setFilesAdded((long) added.size());
+        result.setFilesModified((long) changes.getModified().size());
+        result.setFilesDeleted((long) deletedFiles);
+        result.setDirectoriesUnchanged(changes.getUnchangedDirectories());
+        return result;
+    }
+    
+    /**
+     * Recompute the rollups of an incrementally scanned tree from the directories whose own files changed
+     * @return number of directories whose rollups changed
+     */
+    private int updateRollups(Path root, List<DirectoryInfo> storedDirectories, ScanChanges changes) {
+        Set<Long> deletedIds = new HashSet<>(changes.getDeletedDirectoryIds());
+        Map<Long, DirectoryInfo> current = new LinkedHashMap<>();
+        storedDirectories.stream()
+                .filter(directory -> !deletedIds.contains(directory.getId()))
+                .forEach(directory -> current.put(directory.getId(), directory));
+        
+        Set<Long> changedIds = new HashSet<>();
+        for (DirectoryInfo directory : changes.getDirectories()) {
+            current.put(directory.getId(), directory);
+            changedIds.add(directory.getId());
+        }
+        changes.getAdded().forEach(file -> changedIds.add(file.getDirectoryId()));
+        changes.getModified().forEach(file -> changedIds.add(file.getDirectoryId()));
+        changes.getDeleted().forEach(file -> changedIds.add(file.getDirectoryId()));
+        changedIds.removeAll(deletedIds);
+        changedIds.remove(null);
+        
+        return directoryRollups.recompute(storedDirectories, current.values(), changedIds,
+                DirectoryTotals.blockSize(root));
+    }
+    
+    /**
+     * Save directories, linking new ones to their parent; new directories get their ids parents first
+     * @param directories directories to insert or update
+     * @param directoryIds ids of already stored directories by path, extended with the new ones
+     */
+    private void saveDirectories(Collection<DirectoryInfo> directories, Map<String, Long> directoryIds) {
+        List<DirectoryInfo> ordered = new ArrayList<>(directories);
+        ordered.sort(Comparator.comparingInt(dir -> dir.getPath().length())); // parents are shorter
+        List<DirectoryInfo> inserted = new ArrayList<>();
+        List<DirectoryInfo> updated = new ArrayList<>();
+        for (DirectoryInfo directory : ordered) {
+            if (directory.getId() == null) {
+                String parent = PathUtil.parent(directory.getPath());
+                directory.setId(scanResultWriter.nextDirectoryId());
+                directory.setParentId(parent != null ? directoryIds.get(parent) : null);
+                directory.setName(directory.getParentId() != null ? PathUtil.name(directory.getPath())
+                        : directory.getPath());
+                inserted.add(directory);
             } else {
-                try {
-                    FileInfo fileInfo = createFileInfo(file);
-                    
-                    // Filter by extension if specified
-                    if (request.getFileExtensions() != null && !request.getFileExtensions().isEmpty()) {
-                        if (request.getFileExtensions().contains(fileInfo.getFileExtension())) {
-                            fileList.add(fileInfo);
-                        }
-                    } else {
-                        fileList.add(fileInfo);
-                    }
-                } catch (Exception e) {
-                    log.warn("Error processing file {}: {}", file.getAbsolutePath(), e.getMessage());
-                }
+                updated.add(directory); // stored directories keep their parent, which may lie above the scan root
             }
+            directoryIds.put(directory.getPath(), directory.getId());
+        }
+        scanResultWriter.insertDirectories(inserted);
+        scanResultWriter.updateDirectories(updated);
+    }
+    
+    private DirectoryInfo createDirectoryInfo(Path directory, BasicFileAttributes attrs) {
+        DirectoryInfo directoryInfo = new DirectoryInfo();
+        directoryInfo.setPath(directory.toString());
+        Path name = directory.getFileName();
+        directoryInfo.setName(name != null ? name.toString() : directory.toString());
+        directoryInfo.setLastModifiedMicros(attrs.lastModifiedTime().to(TimeUnit.MICROSECONDS));
+        directoryInfo.setScannedAt(LocalDateTime.now());
+        return directoryInfo;
+    }
+    
+    /**
+     * @param files the stored files returned to the caller, at most app.scan.result-limit
+     * @param stored number of files written by the scan
+     */
+    private ScanResultDTO createScanResult(List<FileInfo> files, long stored, ScanStatistics statistics,
+                                           int parallelism, ThreadMode threadMode) {
+        ScanResultDTO result = new ScanResultDTO();
+        result.setFiles(files.stream()
+                .map(DiskScannerService::convertToDTO)
+                .collect(Collectors.toList()));
+        result.setFilesStored(stored);
+        result.setDirectoriesVisited(statistics.getDirectoriesVisited());
+        result.setFilesVisited(statistics.getFilesVisited());
+        result.setErrors(statistics.getErrors());
+        result.setElapsedMillis(statistics.getElapsedMillis());
+        result.setFilesPerSecond(statistics.getFilesPerSecond());
+        result.setParallelism(parallelism);
+        result.setThreadMode(threadMode.name());
+        result.setAttributeReads(statistics.getAttributeReads());
+        result.setMetadataCalls(statistics.getMetadataCalls());
+        return result;
+    }
+    
+    private void logWalk(ScanStatistics statistics, int parallelism, AdaptiveThrottle throttle) {
+        log.info("Walked {} directories and {} files in {} ms ({} files/s, parallelism {}, {} metadata calls/file)",
+                statistics.getDirectoriesVisited(), statistics.getFilesVisited(),
+                statistics.getElapsedMillis(), String.format("%.0f", statistics.getFilesPerSecond()),
+                parallelism, String.format("%.2f", statistics.getMetadataCallsPerFile()));
+        if (throttle != null) {
+            log.info("Throttled walk waited {} ms for its metadata budget, ending at {}% of it",
+                    throttle.getThrottledMillis(), Math.round(throttle.getShare() * 100));
+        }
+    }
+    
+    /**
+     * Delete directories and their files, a chunk per transaction
+     * @return number of files deleted
+     */
+    private int deleteDirectories(List<Long> directoryIds) {
+        int deleted = 0;
+        for (List<Long> ids : partition(directoryIds)) {
+            deleted += scanResultWriter.inTransaction(() -> {
+                directoryInfoRepository.deleteByIds(ids);
+                return scanResultWriter.deleteFilesOfDirectories(ids);
+            });
+        }
+        return deleted;
+    }
+    
+    private int deleteFilesOfDirectories(List<Long> directoryIds) {
+        int deleted = 0;
+        for (List<Long> ids : partition(directoryIds)) {
+            deleted += scanResultWriter.inTransaction(() -> scanResultWriter.deleteFilesOfDirectories(ids));
         }
+        return deleted;
+    }
+    
+    private static String parentPath(FileInfo file) {
+        return PathUtil.parent(file.getFilePath());
     }
     
     /**
-     * Create FileInfo entity from File
+     * Split ids into chunks that keep IN lists at a reasonable size
      */
-    private FileInfo createFileInfo(File file) throws IOException {
+    private static List<List<Long>> partition(List<Long> ids) {
+        List<List<Long>> chunks = new ArrayList<>();
+        for (int i = 0; i < ids.size(); i += DELETE_CHUNK_SIZE) {
+            chunks.add(ids.subList(i, Math.min(ids.size(), i + DELETE_CHUNK_SIZE)));
+        }
+        return chunks;
+    }
+    
+    /**
+     * Create FileInfo entity from a path and the attributes read by the walker
+     */
+    private FileInfo createFileInfo(Path file, BasicFileAttributes attrs) {
+        String fileName = file.getFileName().toString();
+        long fileSize = attrs.size();
+        
         FileInfo fileInfo = new FileInfo();
-        fileInfo.setFileName(file.getName());
-        fileInfo.setFilePath(file.getAbsolutePath());
-        fileInfo.setFileSize(file.length());
+        fileInfo.setFileName(fileName);
+        fileInfo.setFilePath(file.toString());
+        fileInfo.setFileSize(fileSize);
         
-        String extension = FileTypeDetector.getExtension(file.getName());
+        String extension = FileTypeDetector.getExtension(fileName);
         fileInfo.setFileExtension(extension);
         fileInfo.setFileType(FileTypeDetector.detectFileType(extension));
         
-        BasicFileAttributes attrs = Files.readAttributes(file.toPath(), BasicFileAttributes.class);
+        // Microsecond precision is what the database keeps, so incremental scans compare equal values
         fileInfo.setLastModified(LocalDateTime.ofInstant(
-                attrs.lastModifiedTime().toInstant(), ZoneId.systemDefault()));
+                attrs.lastModifiedTime().toInstant(), ZoneId.systemDefault()).truncatedTo(ChronoUnit.MICROS));
         
         fileInfo.setScannedAt(LocalDateTime.now());
         
-        // Calculate MD5 hash for files smaller than 500MB
-        if (file.length() < 500 * 1024 * 1024) {
-            try {
-                fileInfo.setMd5Hash(MD5Util.calculateMD5Smart(file.getAbsolutePath(), file.length()));
-            } catch (IOException e) {
-                log.warn("Failed to calculate MD5 for {}: {}", file.getName(), e.getMessage());
-            }
+        // Content hashes are computed on demand by the duplicate pipeline,
+        // but a hash of the unchanged file may already be cached
+        ContentHasher hasher = contentHasherRegistry.getDefault();
+        String cachedHash = hashCache.peek(hasher.getAlgorithm(), FileIdentity.of(file, attrs));
+        if (cachedHash != null) {
+            fileInfo.setContentHash(cachedHash);
+            fileInfo.setHashAlgorithm(hasher.getAlgorithm());
         }
-        
         return fileInfo;
     }
     
     /**
-     * Find duplicate files based on MD5 hash
+     * Find duplicate files: the staged size / partial hash / full hash pipeline hashes what it must,
+     * then groups are rebuilt in the database from the stored hashes
+     * @param throttled read within the hashing budget, backing off while the devices are busy
      */
-    @Transactional
-    public List<List<FileInfoDTO>> findDuplicates() {
-        log.info("Searching for duplicate files");
-        
-        List<String> duplicateHashes = fileInfoRepository.findDuplicateHashes();
-        Map<Long, List<FileInfoDTO>> duplicateGroups = new HashMap<>();
-        
-        long groupId = 1;
-        for (String hash : duplicateHashes) {
-            // Skip null or empty hashes
-            if (hash == null || hash.trim().isEmpty()) {
-                continue;
-            }
-            
-            List<FileInfo> duplicates = fileInfoRepository.findAll().stream()
-                    .filter(f -> hash.equals(f.getMd5Hash()))
-                    .collect(Collectors.toList());
-            
-            if (duplicates.size() > 1) {
-                final long currentGroupId = groupId;
-                
-                // Mark as duplicates and assign group ID
-                duplicates.forEach(file -> {
-                    file.setIsDuplicate(true);
-                    file.setDuplicateGroupId(currentGroupId);
-                });
-                
-                fileInfoRepository.saveAll(duplicates);
-                
-                List<FileInfoDTO> dtos = duplicates.stream()
-                        .map(this::convertToDTO)
-                        .collect(Collectors.toList());
-                
-                duplicateGroups.put(groupId, dtos);
-                groupId++;
-            }
-        }
+    public DuplicateSearchResultDTO findDuplicates(String algorithm, boolean throttled) {
+        ContentHasher hasher = contentHasherRegistry.get(algorithm);
+        log.info("Searching for duplicate files using {}", hasher.getAlgorithm());
+        
+        List<FileInfo> candidates = fileInfoRepository.findSizeCollisions();
+        directoryTree.resolvePaths(candidates);
+        Map<FileInfo, String> storedHashes = new IdentityHashMap<>();
+        candidates.forEach(file -> storedHashes.put(file, hashKey(file)));
+        
+        int chunkSize = (int) FileSizeFormatter.parseSize(partialChunkSize);
+        DuplicateDetectionPipeline pipeline = new DuplicateDetectionPipeline(hasher, chunkSize, hashCache,
+                deviceIoScheduler, throttled ? ioThrottling.forDevicesInUse() : null, scanMetrics);
+        pipeline.detect(candidates);
+        
+        // Persist the hashes the pipeline computed or dropped, then group set-based
+        List<FileInfo> hashed = candidates.stream()
+                .filter(file -> !hashKey(file).equals(storedHashes.get(file)))
+                .collect(Collectors.toList());
+        scanResultWriter.updateHashes(hashed);
+        int groupCount = scanResultWriter.inTransaction(() -> {
+            int regrouped = duplicateGroupingEngine.regroup(hasher.getAlgorithm());
+            indexStatistics.duplicatesRegrouped();
+            return regrouped;
+        });
+        
+        long reclaimableBytes = duplicateGroupRepository.sumReclaimableBytes();
         
-        log.info("Found {} duplicate groups", duplicateGroups.size());
-        return new ArrayList<>(duplicateGroups.values());
+        log.info("Found {} duplicate groups, {} reclaimable; stored {} changed hashes", groupCount,
+                FileSizeFormatter.formatSize(reclaimableBytes), hashed.size());
+        return new DuplicateSearchResultDTO((long) groupCount, reclaimableBytes,
+                getDuplicateGroups(DUPLICATE_SORT_RECLAIMABLE, null, duplicatePageSize), pipeline.getStatistics());
+    }
+    
+    private static String hashKey(FileInfo file) {
+        return file.getHashAlgorithm() + ":" + file.getContentHash();
     }
     
     /**
-     * Get large files above threshold
+     * Page of the groups of the last duplicate search with their files
+     * @param sort reclaimable, size or count; always largest first
+     * @param cursor nextCursor of the previous page, null for the first page
+     * @param limit maximum number of groups
      */
-    public List<FileInfoDTO> getLargeFiles(Long sizeThreshold) {
-        log.info("Fetching files larger than {}", FileSizeFormatter.formatSize(sizeThreshold));
+    public CursorPageDTO<DuplicateGroupDTO> getDuplicateGroups(String sort, String cursor, int limit) {
+        KeysetCursor after = cursor != null ? KeysetCursor.decode(cursor) : new KeysetCursor(Long.MAX_VALUE, 0);
+        Pageable page = PageRequest.of(0, limit + 1); // one more tells whether there is a next page
+        List<DuplicateGroup> groups;
+        ToLongFunction<DuplicateGroup> sortValue;
+        switch (sort) {
+            case DUPLICATE_SORT_RECLAIMABLE:
+                groups = duplicateGroupRepository.findPageByReclaimableBytes(after.getValue(), after.getId(), page);
+                sortValue = DuplicateGroup::getReclaimableBytes;
+                break;
+            case "size":
+                groups = duplicateGroupRepository.findPageByFileSize(after.getValue(), after.getId(), page);
+                sortValue = DuplicateGroup::getFileSize;
+                break;
+            case "count":
+                groups = duplicateGroupRepository.findPageByFileCount(after.getValue(), after.getId(), page);
+                sortValue = DuplicateGroup::getFileCount;
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown sort: " + sort + " (use reclaimable, size or count)");
+        }
         
-        List<FileInfo> largeFiles = fileInfoRepository.findLargeFiles(sizeThreshold);
+        String nextCursor = null;
+        if (groups.size() > limit) {
+            groups = groups.subList(0, limit);
+            DuplicateGroup last = groups.get(limit - 1);
+            nextCursor = new KeysetCursor(sortValue.applyAsLong(last), last.getId()).encode();
+        }
         
-        return largeFiles.stream()
-                .map(this::convertToDTO)
+        Map<Long, List<FileInfoDTO>> filesByGroup = new HashMap<>();
+        if (!groups.isEmpty()) {
+            List<Long> groupIds = groups.stream().map(DuplicateGroup::getId).collect(Collectors.toList());
+            List<FileInfo> files = fileInfoRepository.findByDuplicateGroupIds(groupIds);
+            directoryTree.resolvePaths(files);
+            files.sort(Comparator.comparing(FileInfo::getDuplicateGroupId).thenComparing(FileInfo::getFilePath));
+            for (FileInfo file : files) {
+                filesByGroup.computeIfAbsent(file.getDuplicateGroupId(), k -> new ArrayList<>()).add(convertToDTO(file));
+            }
+        }
+        List<DuplicateGroupDTO> items = groups.stream()
+                .map(group -> new DuplicateGroupDTO(group.getId(), group.getContentHash(), group.getHashAlgorithm(),
+                        group.getFileSize(), FileSizeFormatter.formatSize(group.getFileSize()), group.getFileCount(),
+                        group.getReclaimableBytes(), FileSizeFormatter.formatSize(group.getReclaimableBytes()),
+                        filesByGroup.getOrDefault(group.getId(), Collections.emptyList())))
                 .collect(Collectors.toList());
+        return new CursorPageDTO<>(items, nextCursor);
+    }
+    
+    public long getReclaimableBytes() {
+        return duplicateGroupRepository.sumReclaimableBytes();
     }
     
     /**
-     * Get disk statistics
+     * Get hash cache size and hit/miss counters
      */
-    public DiskStatisticsDTO getDiskStatistics() {
-        DiskStatisticsDTO stats = new DiskStatisticsDTO();
-        
-        // Total files and size
-        long totalFiles = fileInfoRepository.count();
-        Long totalSize = fileInfoRepository.findAll().stream()
-                .mapToLong(FileInfo::getFileSize)
-                .sum();
+    public HashCacheStatisticsDTO getHashCacheStatistics() {
+        return new HashCacheStatisticsDTO(hashCache.isEnabled(), hashCache.getSize(), hashCache.getMaxEntries(),
+                hashCache.getHits(), hashCache.getMisses(), hashCache.getEvictions(), hashCache.getHitRatio());
+    }
+    
+    /**
+     * Block devices reads were routed to, with their budgets and current load
+     */
+    public List<IoDeviceDTO> getIoDevices() {
+        return deviceIoScheduler.getDevices();
+    }
+    
+    /**
+     * Drop all cached hashes
+     */
+    public void clearHashCache() {
+        log.info("Clearing hash cache");
+        hashCache.clear();
+    }
+    
+    /**
+     * Get a page of large files above threshold, sorted by size
+     * @param cursor nextCursor of the previous page, null for the first page
+     * @param limit maximum number of files
+     * @param direction size order, largest first for DESC
+     */
+    public CursorPageDTO<FileInfoDTO> getLargeFiles(long sizeThreshold, String cursor, int limit,
+                                                   Sort.Direction direction) {
+        log.info("Fetching up to {} files larger than {}", limit, FileSizeFormatter.formatSize(sizeThreshold));
         
-        stats.setTotalFiles(totalFiles);
-        stats.setTotalSize(totalSize);
-        stats.setTotalSizeFormatted(FileSizeFormatter.formatSize(totalSize));
+        Pageable page = PageRequest.of(0, limit + 1); // one more tells whether there is a next page
+        List<FileInfo> largeFiles;
+        if (direction.isDescending()) {
+            KeysetCursor after = cursor != null ? KeysetCursor.decode(cursor)
+                    : new KeysetCursor(Long.MAX_VALUE, Long.MAX_VALUE);
+            largeFiles = fileInfoRepository.findLargeFilesDescending(sizeThreshold, after.getValue(), after.getId(), page);
+        } else {
+            KeysetCursor after = cursor != null ? KeysetCursor.decode(cursor) : new KeysetCursor(sizeThreshold, 0);
+            largeFiles = fileInfoRepository.findLargeFilesAscending(sizeThreshold, after.getValue(), after.getId(), page);
+        }
         
-        // Duplicate statistics
-        Long duplicateCount = fileInfoRepository.countDuplicates();
-        Long duplicateSize = fileInfoRepository.sumDuplicateSize();
+        String nextCursor = null;
+        if (largeFiles.size() > limit) {
+            largeFiles = largeFiles.subList(0, limit);
+            FileInfo last = largeFiles.get(limit - 1);
+            nextCursor = new KeysetCursor(last.getFileSize(), last.getId()).encode();
+        }
+        directoryTree.resolvePaths(largeFiles);
+        return new CursorPageDTO<>(largeFiles.stream()
+                .map(DiskScannerService::convertToDTO)
+                .collect(Collectors.toList()), nextCursor);
+    }
+    
+    /**
+     * A directory of the size tree with its largest subdirectories, one level at a time
+     * @param sort size, rounded or files; always largest first
+     * @param limit maximum number of children
+     */
+    public DirectoryNodeDTO getDirectoryTree(Path directory, String sort, int limit) {
+        Long id = directoryTree.findId(directory);
+        if (id == null) {
+            throw new IllegalArgumentException("Directory has not been scanned: " + directory);
+        }
+        return getDirectoryTree(id, sort, limit);
+    }
+    
+    public DirectoryNodeDTO getDirectoryTree(Long id, String sort, int limit) {
+        DirectoryInfo directory = directoryInfoRepository.findById(id)
+                .orElseThrow(() -> new IllegalArgumentException("Unknown directory: " + id));
+        String property;
+        switch (sort) {
+            case "size":
+                property = "totalSize";
+                break;
+            case "rounded":
+                property = "roundedSize";
+                break;
+            case "files":
+                property = "totalFiles";
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown sort: " + sort + " (use size, rounded or files)");
+        }
         
-        stats.setDuplicateFiles(duplicateCount != null ? duplicateCount : 0L);
-        stats.setDuplicateSize(duplicateSize != null ? duplicateSize : 0L);
-        stats.setDuplicateSizeFormatted(FileSizeFormatter.formatSize(
-                duplicateSize != null ? duplicateSize : 0L));
+        // One more tells whether children were cut off
+        List<DirectoryInfo> children = directoryInfoRepository.findByParentId(id,
+                PageRequest.of(0, limit + 1, Sort.by(Sort.Direction.DESC, property, "id")));
         
-        // File type distribution
+        String path = directoryTree.getPath(directory);
+        DirectoryNodeDTO node = convertToNode(directory, path);
+        node.setChildren(children.stream()
+                .limit(limit)
+                .map(child -> convertToNode(child, path != null ? PathUtil.join(path, child.getName()) : null))
+                .collect(Collectors.toList()));
+        node.setMoreChildren(children.size() > limit);
+        return node;
+    }
+    
+    /**
+     * Get disk statistics from the maintained index totals, independent of the number of stored files
+     */
+    public DiskStatisticsDTO getDiskStatistics() {
+        long[] sum = new long[IndexStatistics.DUPLICATE_BYTES + 1];
         Map<String, Long> typeDistribution = new HashMap<>();
         Map<String, Long> sizeByType = new HashMap<>();
-        
-        List<Object[]> typeCounts = fileInfoRepository.countByFileType();
-        for (Object[] row : typeCounts) {
-            if (row[0] != null && row[1] != null) {
-                typeDistribution.put((String) row[0], (Long) row[1]);
+        indexStatistics.snapshot().forEach((type, counters) -> {
+            for (int i = 0; i < sum.length; i++) {
+                sum[i] += counters[i];
             }
-        }
-        
-        List<Object[]> typeSizes = fileInfoRepository.sumSizeByFileType();
-        for (Object[] row : typeSizes) {
-            if (row[0] != null && row[1] != null) {
-                sizeByType.put((String) row[0], (Long) row[1]);
+            if (!type.isEmpty()) {
+                typeDistribution.put(type, counters[IndexStatistics.FILES]);
+                sizeByType.put(type, counters[IndexStatistics.BYTES]);
             }
-        }
+        });
         
+        DiskStatisticsDTO stats = new DiskStatisticsDTO();
+        stats.setTotalFiles(sum[IndexStatistics.FILES]);
+        stats.setTotalSize(sum[IndexStatistics.BYTES]);
+        stats.setTotalSizeFormatted(FileSizeFormatter.formatSize(sum[IndexStatistics.BYTES]));
+        stats.setDuplicateFiles(sum[IndexStatistics.DUPLICATE_FILES]);
+        stats.setDuplicateSize(sum[IndexStatistics.DUPLICATE_BYTES]);
+        stats.setDuplicateSizeFormatted(FileSizeFormatter.formatSize(sum[IndexStatistics.DUPLICATE_BYTES]));
         stats.setFileTypeDistribution(typeDistribution);
         stats.setSizeByFileType(sizeByType);
-        
-        // Large files (> 100MB)
-        long largeFileThreshold = 100 * 1024 * 1024; // 100MB
-        List<FileInfo> largeFiles = fileInfoRepository.findLargeFiles(largeFileThreshold);
-        stats.setLargeFilesCount((long) largeFiles.size());
-        stats.setLargeFilesSize(largeFiles.stream().mapToLong(FileInfo::getFileSize).sum());
-        
+        stats.setLargeFilesCount(sum[IndexStatistics.LARGE_FILES]);
+        stats.setLargeFilesSize(sum[IndexStatistics.LARGE_BYTES]);
         return stats;
     }
     
+    private DirectoryNodeDTO convertToNode(DirectoryInfo directory, String path) {
+        DirectoryNodeDTO node = new DirectoryNodeDTO();
+        node.setId(directory.getId());
+        node.setName(directory.getParentId() != null ? directory.getName() : path);
+        node.setPath(path);
+        node.setTotalFiles(directory.getTotalFiles());
+        node.setTotalSize(directory.getTotalSize());
+        node.setTotalSizeFormatted(FileSizeFormatter.formatSize(directory.getTotalSize()));
+        node.setRoundedSize(directory.getRoundedSize());
+        node.setRoundedSizeFormatted(FileSizeFormatter.formatSize(directory.getRoundedSize()));
+        node.setTotalDirectories(directory.getTotalDirectories());
+        return node;
+    }
+    
+    /**
+     * Node for a directory that was walked but not stored
+     */
+    private static DirectoryNodeDTO convertToNode(Path directory, DirectoryTotals totals) {
+        DirectoryNodeDTO node = new DirectoryNodeDTO();
+        node.setName(directory.getFileName() != null ? directory.getFileName().toString() : directory.toString());
+        node.setPath(directory.toString());
+        node.setTotalFiles(totals.getFiles());
+        node.setTotalSize(totals.getBytes());
+        node.setTotalSizeFormatted(FileSizeFormatter.formatSize(totals.getBytes()));
+        node.setRoundedSize(totals.getRoundedBytes());
+        node.setRoundedSizeFormatted(FileSizeFormatter.formatSize(totals.getRoundedBytes()));
+        node.setTotalDirectories(totals.getDirectories());
+        return node;
+    }
+    
     /**
      * Convert FileInfo entity to DTO
      */
-    private FileInfoDTO convertToDTO(FileInfo fileInfo) {
+    public static FileInfoDTO convertToDTO(FileInfo fileInfo) {
         FileInfoDTO dto = new FileInfoDTO();
         dto.setId(fileInfo.getId());
         dto.setFileName(fileInfo.getFileName());
         dto.setFilePath(fileInfo.getFilePath());
         dto.setFileSize(fileInfo.getFileSize());
         dto.setFileSizeFormatted(FileSizeFormatter.formatSize(fileInfo.getFileSize()));
-        dto.setMd5Hash(fileInfo.getMd5Hash());
+        dto.setContentHash(fileInfo.getContentHash());
+        dto.setHashAlgorithm(fileInfo.getHashAlgorithm());
         dto.setFileExtension(fileInfo.getFileExtension());
         dto.setFileType(fileInfo.getFileType());
         dto.setLastModified(fileInfo.getLastModified() != null ? 
@@ -0,0 +1,429 @@
+package com.diskmanager.service;
+
+import com.diskmanager.dto.ScanRequestDTO;
+import com.diskmanager.dto.WatchStatusDTO;
+import com.diskmanager.model.DirectoryInfo;
+import com.diskmanager.persistence.DirectoryTree;
+import com.diskmanager.scanner.EntryAttributes;
+import com.diskmanager.scanner.ScanFilter;
+import com.diskmanager.scanner.ScanStatistics;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Keeps the stored index current after a scan.
+ * Scanned directories are registered with a {@link WatchService} (inotify on Linux); events only
+ * mark directories dirty, and dirty directories are re-scanned incrementally in debounced batches.
+ * When the watch limit is exhausted or events overflow, the affected tree falls back to periodic
+ * incremental scans of its root. Batches run one at a time on the task executor, never on the
+ * scheduler thread.
+ */
+@Service
+@Slf4j
+public class IndexWatchService {
+    
+    private final DiskScannerService diskScannerService;
+    private final DirectoryTree directoryTree;
+    private final Executor taskExecutor;
+    
+    @Value("${app.watch.debounce-ms:2000}")
+    private long debounceMillis;
+    
+    @Value("${app.watch.max-delay-ms:30000}")
+    private long maxDelayMillis;
+    
+    @Value("${app.watch.poll-interval-ms:300000}")
+    private long pollIntervalMillis;
+    
+    private final Map<Path, WatchedRoot> roots = new ConcurrentHashMap<>();
+    private final Map<WatchKey, Path> keys = new ConcurrentHashMap<>();
+    private final Set<Path> dirtyDirectories = ConcurrentHashMap.newKeySet();
+    private final Set<Path> createdDirectories = ConcurrentHashMap.newKeySet();
+    private final Set<Path> overflowedRoots = ConcurrentHashMap.newKeySet();
+    private final AtomicLong firstPendingNanos = new AtomicLong();
+    private final AtomicLong lastEventNanos = new AtomicLong();
+    private final AtomicBoolean applying = new AtomicBoolean();
+    
+    private WatchService watchService;
+    private Thread watchThread;
+    
+    public IndexWatchService(DiskScannerService diskScannerService, DirectoryTree directoryTree,
+                             @Qualifier("taskExecutor") Executor taskExecutor) {
+        this.diskScannerService = diskScannerService;
+        this.directoryTree = directoryTree;
+        this.taskExecutor = taskExecutor;
+    }
+    
+    /**
+     * Start keeping a scanned tree current
+     * @param request the request the tree was scanned with, its filters apply to all updates
+     */
+    public synchronized WatchStatusDTO watch(ScanRequestDTO request) {
+        Path root = Paths.get(request.getPath()).toAbsolutePath().normalize();
+        if (!diskScannerService.isIndexed(root)) {
+            throw new IllegalArgumentException("Directory has not been scanned: " + root);
+        }
+        unwatch(root);
+        
+        WatchedRoot watched = new WatchedRoot(root, request);
+        roots.put(root, watched);
+        
+        List<DirectoryInfo> directories = directoryTree.subtree(root);
+        try {
+            for (DirectoryInfo directory : directories) {
+                register(watched, directory.getPath());
+            }
+            log.info("Watching {} directories below {}", watched.registered.get(), root);
+        } catch (IOException e) {
+            fallBackToPolling(watched, e);
+        }
+        return toStatus(watched);
+    }
+    
+    /**
+     * Stop keeping a tree current
+     */
+    public synchronized void unwatch(Path root) {
+        Path normalized = root.toAbsolutePath().normalize();
+        WatchedRoot watched = roots.remove(normalized);
+        if (watched != null) {
+            cancelKeys(watched);
+            log.info("Stopped watching {}", normalized);
+        }
+    }
+    
+    public List<WatchStatusDTO> getStatus() {
+        List<WatchStatusDTO> status = new ArrayList<>();
+        for (WatchedRoot watched : roots.values()) {
+            status.add(toStatus(watched));
+        }
+        return status;
+    }
+    
+    /**
+     * Dispatch pending events once they have been quiet for the debounce interval, or at the
+     * latest after the maximum delay, together with due polls. While a batch is still running,
+     * events keep accumulating and are dispatched after it.
+     */
+    @Scheduled(fixedDelayString = "${app.watch.flush-interval-ms:500}")
+    public void flush() {
+        if (roots.isEmpty() || applying.get()) {
+            return;
+        }
+        long now = System.nanoTime();
+        long first = firstPendingNanos.get();
+        boolean pending = first != 0;
+        boolean quiet = now - lastEventNanos.get() >= TimeUnit.MILLISECONDS.toNanos(debounceMillis);
+        boolean overdue = now - first >= TimeUnit.MILLISECONDS.toNanos(maxDelayMillis);
+        boolean due = pending && (quiet || overdue);
+        
+        List<WatchedRoot> polls = new ArrayList<>();
+        for (WatchedRoot watched : roots.values()) {
+            if (watched.polling && now - watched.lastPollNanos >= TimeUnit.MILLISECONDS.toNanos(pollIntervalMillis)) {
+                polls.add(watched);
+            }
+        }
+        if ((!due && polls.isEmpty()) || !applying.compareAndSet(false, true)) {
+            return;
+        }
+        
+        if (due) {
+            firstPendingNanos.set(0);
+        }
+        polls.forEach(watched -> watched.lastPollNanos = now);
+        try {
+            taskExecutor.execute(() -> applyBatch(due, polls));
+        } catch (RejectedExecutionException e) {
+            // Retried on the next tick
+            applying.set(false);
+            if (due) {
+                firstPendingNanos.compareAndSet(0, first);
+            }
+            polls.forEach(watched -> watched.lastPollNanos = 0);
+            log.debug("Index update deferred, executor is busy");
+        }
+    }
+    
+    @PreDestroy
+    public synchronized void shutdown() {
+        if (watchService != null) {
+            try {
+                watchService.close();
+            } catch (IOException e) {
+                log.debug("Error closing watch service: {}", e.getMessage());
+            }
+            watchService = null;
+        }
+    }
+    
+    private void applyBatch(boolean pending, List<WatchedRoot> polls) {
+        try {
+            if (pending) {
+                applyPending();
+            }
+            for (WatchedRoot watched : polls) {
+                if (roots.get(watched.root) == watched) {
+                    rescanRoot(watched);
+                }
+            }
+        } finally {
+            applying.set(false);
+        }
+    }
+    
+    private void applyPending() {
+        List<Path> overflowed = drain(overflowedRoots);
+        List<Path> dirty = drain(dirtyDirectories);
+        List<Path> created = drain(createdDirectories);
+        
+        for (Path root : overflowed) {
+            WatchedRoot watched = roots.get(root);
+            if (watched != null) {
+                rescanRoot(watched);
+            }
+        }
+        
+        // Known directories: re-list them only, their subdirectories have their own watches
+        for (Path directory : dirty) {
+            WatchedRoot watched = findRoot(directory);
+            if (watched == null || overflowed.contains(watched.root) || !diskScannerService.isIndexed(directory)) {
+                continue;
+            }
+            ScanRequestDTO request = derive(watched, directory, 0);
+            request.setTrustDirectoryMtime(false);
+            apply(watched, request);
+        }
+        
+        // New directories: scan their whole tree, then watch it, parents first
+        created.sort(Comparator.comparingInt(Path::getNameCount));
+        for (Path directory : created) {
+            WatchedRoot watched = findRoot(directory);
+            if (watched == null || diskScannerService.isIndexed(directory) || !accepts(watched, directory)) {
+                continue;
+            }
+            int depth = watched.root.relativize(directory).getNameCount();
+            if (depth > watched.filter.getMaxDepth()) {
+                continue;
+            }
+            apply(watched, derive(watched, directory, watched.filter.getMaxDepth() - depth));
+            registerSubtree(watched, directory);
+        }
+    }
+    
+    private void apply(WatchedRoot watched, ScanRequestDTO request) {
+        try {
+            diskScannerService.scanNow(request);
+            watched.batchesApplied.incrementAndGet();
+        } catch (RuntimeException e) {
+            log.warn("Failed to update index for {}: {}", request.getPath(), e.getMessage());
+        }
+    }
+    
+    private void rescanRoot(WatchedRoot watched) {
+        log.debug("Incremental check of {}", watched.root);
+        apply(watched, derive(watched, watched.root, watched.filter.getMaxDepth()));
+    }
+    
+    /**
+     * Incremental request for a directory inside a watched tree, keeping the tree's filters
+     */
+    private static ScanRequestDTO derive(WatchedRoot watched, Path directory, int maxDepth) {
+        ScanRequestDTO original = watched.request;
+        ScanRequestDTO request = new ScanRequestDTO();
+        request.setPath(directory.toString());
+        request.setIncludeHidden(original.getIncludeHidden());
+        request.setMaxDepth(maxDepth);
+        request.setFileExtensions(original.getFileExtensions());
+        request.setParallelism(original.getParallelism());
+        request.setIncremental(true);
+        request.setTrustDirectoryMtime(original.getTrustDirectoryMtime());
+        return request;
+    }
+    
+    private boolean accepts(WatchedRoot watched, Path directory) {
+        try {
+            EntryAttributes attrs = EntryAttributes.read(directory,
+                    EntryAttributes.usesDosAttributes(directory), new ScanStatistics());
+            return attrs.getAttributes().isDirectory() && watched.filter.acceptsHidden(attrs.isHidden());
+        } catch (IOException e) {
+            return false; // gone again before the batch was applied
+        }
+    }
+    
+    private WatchedRoot findRoot(Path directory) {
+        WatchedRoot best = null;
+        for (WatchedRoot watched : roots.values()) {
+            if (directory.startsWith(watched.root)
+                    && (best == null || watched.root.getNameCount() > best.root.getNameCount())) {
+                best = watched;
+            }
+        }
+        return best;
+    }
+    
+    private synchronized void registerSubtree(WatchedRoot watched, Path directory) {
+        if (watched.polling) {
+            return;
+        }
+        try {
+            for (DirectoryInfo info : directoryTree.subtree(directory)) {
+                register(watched, info.getPath());
+            }
+        } catch (IOException e) {
+            fallBackToPolling(watched, e);
+        }
+    }
+    
+    private void register(WatchedRoot watched, String storedPath) throws IOException {
+        Path directory;
+        try {
+            directory = Paths.get(storedPath);
+        } catch (InvalidPathException e) {
+            log.debug("Cannot watch {}: {}", storedPath, e.getMessage());
+            return;
+        }
+        WatchKey key = directory.register(watchService(), StandardWatchEventKinds.ENTRY_CREATE,
+                StandardWatchEventKinds.ENTRY_DELETE, StandardWatchEventKinds.ENTRY_MODIFY);
+        if (keys.put(key, directory) == null) {
+            watched.keys.add(key);
+            watched.registered.incrementAndGet();
+        }
+    }
+    
+    /**
+     * Typically the inotify watch limit (fs.inotify.max_user_watches) was reached
+     */
+    private void fallBackToPolling(WatchedRoot watched, IOException cause) {
+        log.warn("Cannot watch {} ({}), falling back to incremental checks every {} ms",
+                watched.root, cause.getMessage(), pollIntervalMillis);
+        cancelKeys(watched);
+        watched.polling = true;
+        watched.lastPollNanos = System.nanoTime();
+    }
+    
+    private void cancelKeys(WatchedRoot watched) {
+        for (WatchKey key : watched.keys) {
+            key.cancel();
+            keys.remove(key);
+        }
+        watched.keys.clear();
+        watched.registered.set(0);
+    }
+    
+    private synchronized WatchService watchService() throws IOException {
+        if (watchService == null) {
+            watchService = FileSystems.getDefault().newWatchService();
+            watchThread = new Thread(this::processEvents, "IndexWatcher");
+            watchThread.setDaemon(true);
+            watchThread.start();
+        }
+        return watchService;
+    }
+    
+    /**
+     * Event loop: only records which directories changed, the scheduler applies them
+     */
+    private void processEvents() {
+        WatchService service = watchService;
+        while (true) {
+            WatchKey key;
+            try {
+                key = service.take();
+            } catch (InterruptedException | ClosedWatchServiceException e) {
+                return;
+            }
+            Path directory = keys.get(key);
+            if (directory != null) {
+                for (WatchEvent<?> event : key.pollEvents()) {
+                    record(directory, event);
+                }
+            }
+            if (!key.reset()) {
+                keys.remove(key); // directory deleted or key cancelled
+            }
+        }
+    }
+    
+    private void record(Path directory, WatchEvent<?> event) {
+        WatchedRoot watched = findRoot(directory);
+        if (watched == null) {
+            return;
+        }
+        if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+            overflowedRoots.add(watched.root);
+        } else {
+            dirtyDirectories.add(directory);
+            Path child = directory.resolve((Path) event.context());
+            if (event.kind() == StandardWatchEventKinds.ENTRY_CREATE
+                    && Files.isDirectory(child, LinkOption.NOFOLLOW_LINKS)) {
+                createdDirectories.add(child);
+            }
+        }
+        watched.eventsReceived.incrementAndGet();
+        long now = System.nanoTime();
+        lastEventNanos.set(now);
+        firstPendingNanos.compareAndSet(0, now);
+    }
+    
+    private static List<Path> drain(Set<Path> set) {
+        List<Path> drained = new ArrayList<>();
+        for (Path path : set) {
+            if (set.remove(path)) {
+                drained.add(path);
+            }
+        }
+        return drained;
+    }
+    
+    private static WatchStatusDTO toStatus(WatchedRoot watched) {
+        return new WatchStatusDTO(watched.root.toString(), watched.polling ? "POLLING" : "WATCHING",
+                (long) watched.registered.get(), watched.eventsReceived.get(), watched.batchesApplied.get());
+    }
+    
+    private static class WatchedRoot {
+        final Path root;
+        final ScanRequestDTO request;
+        final ScanFilter filter;
+        final Set<WatchKey> keys = ConcurrentHashMap.newKeySet();
+        final AtomicInteger registered = new AtomicInteger();
+        final AtomicLong eventsReceived = new AtomicLong();
+        final AtomicLong batchesApplied = new AtomicLong();
+        volatile boolean polling;
+        volatile long lastPollNanos;
+        
+        WatchedRoot(Path root, ScanRequestDTO request) {
+            this.root = root;
+            this.request = request;
+            this.filter = ScanFilter.from(request);
+        }
+    }
+}
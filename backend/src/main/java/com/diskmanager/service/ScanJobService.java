@@ -0,0 +1,247 @@
+package com.diskmanager.service;
+
+import com.diskmanager.dto.FileInfoDTO;
+import com.diskmanager.dto.RecordingDTO;
+import com.diskmanager.dto.ScanJobDTO;
+import com.diskmanager.dto.ScanRequestDTO;
+import com.diskmanager.dto.ScanResultDTO;
+import com.diskmanager.jfr.ScanRecordings;
+import com.diskmanager.job.ScanJob;
+import com.diskmanager.scanner.ScanStatistics;
+import com.diskmanager.util.FileSizeFormatter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDateTime;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.stream.Collectors;
+
+/**
+ * Runs scans as background jobs that can be polled, cancelled and fetched when done
+ */
+@Service
+@Slf4j
+public class ScanJobService {
+    
+    private final DiskScannerService diskScannerService;
+    private final IndexWatchService indexWatchService;
+    private final Executor taskExecutor;
+    private final ScanRecordings scanRecordings;
+    private final Map<String, ScanJob> jobs = new ConcurrentHashMap<>();
+    
+    @Value("${app.jobs.retention-ms:3600000}")
+    private long retentionMillis;
+    
+    public ScanJobService(DiskScannerService diskScannerService, IndexWatchService indexWatchService,
+                          @Qualifier("taskExecutor") Executor taskExecutor, ScanRecordings scanRecordings) {
+        this.diskScannerService = diskScannerService;
+        this.indexWatchService = indexWatchService;
+        this.taskExecutor = taskExecutor;
+        this.scanRecordings = scanRecordings;
+    }
+    
+    /**
+     * Validate the request and queue the scan
+     */
+    public ScanJobDTO submit(ScanRequestDTO request) {
+        Path directory = Paths.get(request.getPath());
+        if (!Files.isDirectory(directory)) {
+            throw new IllegalArgumentException("Invalid directory path: " + request.getPath());
+        }
+        long indexed = diskScannerService.countIndexedFiles(directory);
+        ScanJob job = new ScanJob(request, indexed > 0 ? indexed : null);
+        jobs.put(job.getId(), job);
+        
+        try {
+            taskExecutor.execute(() -> run(job));
+        } catch (RejectedExecutionException e) {
+            jobs.remove(job.getId());
+            throw new IllegalStateException("Too many scans queued, try again later");
+        }
+        log.info("Queued scan job {} for {}", job.getId(), request.getPath());
+        return toDTO(job);
+    }
+    
+    public Optional<ScanJobDTO> getJob(String id) {
+        return Optional.ofNullable(jobs.get(id)).map(this::toDTO);
+    }
+    
+    public List<ScanJobDTO> getJobs() {
+        return jobs.values().stream()
+                .sorted(Comparator.comparing(ScanJob::getSubmittedAt).reversed())
+                .map(this::toDTO)
+                .collect(Collectors.toList());
+    }
+    
+    /**
+     * Request cancellation of a job
+     * @return the job after the request, empty if unknown
+     */
+    public Optional<ScanJobDTO> cancel(String id) {
+        ScanJob job = jobs.get(id);
+        if (job == null) {
+            return Optional.empty();
+        }
+        if (job.cancel()) {
+            log.info("Cancellation requested for scan job {}", id);
+        }
+        return Optional.of(toDTO(job));
+    }
+    
+    /**
+     * Start a flight recording of the scanner events that stops by itself when the job finishes
+     * @param durationMillis stop earlier, null for the configured maximum
+     * @return the recording, empty if the job is unknown
+     * @throws IllegalStateException if the job has finished or is already being recorded
+     */
+    public Optional<RecordingDTO> startRecording(String id, Long durationMillis) {
+        ScanJob job = jobs.get(id);
+        if (job == null) {
+            return Optional.empty();
+        }
+        synchronized (job) {
+            if (job.isFinished()) {
+                throw new IllegalStateException("Scan job " + id + " has finished, status " + job.getStatus());
+            }
+            return Optional.of(scanRecordings.start(id, durationMillis));
+        }
+    }
+    
+    public Optional<RecordingDTO> getRecording(String id) {
+        return scanRecordings.get(id);
+    }
+    
+    /**
+     * Stop the recording of a job and write it to its file
+     */
+    public Optional<RecordingDTO> stopRecording(String id) {
+        return scanRecordings.stop(id);
+    }
+    
+    /**
+     * One page of the files stored below the path of a completed job
+     * @throws IllegalStateException if the job has not completed
+     */
+    public Optional<List<FileInfoDTO>> getResults(String id, int page, int size) {
+        ScanJob job = jobs.get(id);
+        if (job == null) {
+            return Optional.empty();
+        }
+        if (job.getResult() == null) {
+            throw new IllegalStateException("Scan job " + id + " has no results, status " + job.getStatus());
+        }
+        return Optional.of(diskScannerService.getIndexedFiles(Paths.get(job.getRequest().getPath()), page, size));
+    }
+    
+    /**
+     * Number of files stored below the path of a job
+     */
+    public long countResults(String id) {
+        ScanJob job = jobs.get(id);
+        return job != null ? diskScannerService.countIndexedFiles(Paths.get(job.getRequest().getPath())) : 0;
+    }
+    
+    public Optional<ScanResultDTO> getResult(String id) {
+        return Optional.ofNullable(jobs.get(id)).map(ScanJob::getResult);
+    }
+    
+    /**
+     * Forget finished jobs and their results after the retention period
+     */
+    @Scheduled(fixedDelayString = "${app.jobs.cleanup-interval:60000}")
+    public void evictFinishedJobs() {
+        LocalDateTime cutoff = LocalDateTime.now().minusNanos(retentionMillis * 1_000_000);
+        jobs.values().removeIf(job -> {
+            if (job.isFinished() && job.getFinishedAt().isBefore(cutoff)) {
+                scanRecordings.remove(job.getId());
+                return true;
+            }
+            return false;
+        });
+    }
+    
+    private void run(ScanJob job) {
+        if (!job.start()) {
+            stopRecording(job.getId()); // cancelled while queued
+            return;
+        }
+        try {
+            ScanResultDTO result = diskScannerService.scanNow(job.getRequest(), job.getStatistics());
+            job.complete(result);
+            log.info("Scan job {} completed, {} files stored", job.getId(), result.getFilesStored());
+            
+            if (Boolean.TRUE.equals(job.getRequest().getWatch())) {
+                indexWatchService.watch(job.getRequest());
+            }
+        } catch (CancellationException e) {
+            job.cancelled();
+            log.info("Scan job {} cancelled", job.getId());
+        } catch (Exception e) {
+            job.fail(e.getMessage());
+            log.error("Scan job {} failed", job.getId(), e);
+        } finally {
+            stopRecording(job.getId());
+        }
+    }
+    
+    private ScanJobDTO toDTO(ScanJob job) {
+        ScanStatistics statistics = job.getStatistics();
+        ScanJobDTO dto = new ScanJobDTO();
+        dto.setId(job.getId());
+        dto.setPath(job.getRequest().getPath());
+        dto.setStatus(job.getStatus().name());
+        dto.setPhase(job.getPhase());
+        dto.setMessage(job.getMessage());
+        dto.setSubmittedAt(job.getSubmittedAt());
+        dto.setStartedAt(job.getStartedAt());
+        dto.setFinishedAt(job.getFinishedAt());
+        dto.setDirectoriesVisited(statistics.getDirectoriesVisited());
+        dto.setFilesVisited(statistics.getFilesVisited());
+        dto.setFilesMatched(statistics.getFilesMatched());
+        dto.setBytesMatched(statistics.getBytesMatched());
+        dto.setBytesMatchedFormatted(FileSizeFormatter.formatSize(statistics.getBytesMatched()));
+        dto.setErrors(statistics.getErrors());
+        dto.setElapsedMillis(statistics.getElapsedMillis());
+        dto.setFilesPerSecond(statistics.getFilesPerSecond());
+        dto.setExpectedFiles(job.getExpectedFiles());
+        estimate(job, dto);
+        return dto;
+    }
+    
+    /**
+     * Progress and remaining time of the walk, extrapolated from the file count of the previous scan
+     */
+    private static void estimate(ScanJob job, ScanJobDTO dto) {
+        Long expected = job.getExpectedFiles();
+        if (job.getStatus() == ScanJob.Status.COMPLETED) {
+            dto.setPercentComplete(100.0);
+            dto.setEtaMillis(0L);
+            return;
+        }
+        if (expected == null || job.getStatus() != ScanJob.Status.RUNNING) {
+            return;
+        }
+        long matched = job.getStatistics().getFilesMatched();
+        if (job.getStatistics().isFinished() || matched >= expected) {
+            dto.setPercentComplete(job.getStatistics().isFinished() ? 100.0 : 99.0);
+            return; // storing results, or the tree grew since the previous scan
+        }
+        dto.setPercentComplete(matched * 100.0 / expected);
+        if (matched > 0) {
+            dto.setEtaMillis(job.getStatistics().getElapsedMillis() * (expected - matched) / matched);
+        }
+    }
+}
@@ -0,0 +1,199 @@
+package com.diskmanager.service;
+
+import com.diskmanager.dto.FileInfoDTO;
+import com.diskmanager.dto.ScanRequestDTO;
+import com.diskmanager.scanner.ScanStatistics;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Streams files to the client while the walk runs, as NDJSON lines or Server-Sent Events.
+ * Walker threads hand files over through a bounded buffer and block when it is full, so a
+ * slow client slows the walk down instead of growing the heap.
+ */
+@Service
+@Slf4j
+public class ScanStreamService {
+    
+    public enum Format {
+        NDJSON(MediaType.parseMediaType("application/x-ndjson")),
+        SSE(MediaType.TEXT_EVENT_STREAM);
+        
+        private final MediaType mediaType;
+        
+        Format(MediaType mediaType) {
+            this.mediaType = mediaType;
+        }
+        
+        public MediaType getMediaType() {
+            return mediaType;
+        }
+        
+        public static Format of(String name) {
+            for (Format format : values()) {
+                if (format.name().equalsIgnoreCase(name)) {
+                    return format;
+                }
+            }
+            throw new IllegalArgumentException("Unsupported stream format: " + name + ", use ndjson or sse");
+        }
+    }
+    
+    private static final int FLUSH_EVERY = 256;
+    private static final long OFFER_TIMEOUT_MILLIS = 100;
+    private static final long POLL_TIMEOUT_NANOS = TimeUnit.MILLISECONDS.toNanos(50); // notices the end of the walk
+    
+    private final DiskScannerService diskScannerService;
+    private final Executor taskExecutor;
+    private final ObjectMapper objectMapper;
+    
+    @Value("${app.stream.buffer-size:1024}")
+    private int bufferSize;
+    
+    @Value("${app.stream.progress-interval-ms:500}")
+    private long progressIntervalMillis;
+    
+    public ScanStreamService(DiskScannerService diskScannerService,
+                             @Qualifier("taskExecutor") Executor taskExecutor, ObjectMapper objectMapper) {
+        this.diskScannerService = diskScannerService;
+        this.taskExecutor = taskExecutor;
+        this.objectMapper = objectMapper;
+    }
+    
+    /**
+     * Validate the request and create the response body that runs the walk when written
+     */
+    public StreamingResponseBody stream(ScanRequestDTO request, Format format) {
+        if (request.getPath() == null || !Files.isDirectory(Paths.get(request.getPath()))) {
+            throw new IllegalArgumentException("Invalid directory path: " + request.getPath());
+        }
+        return out -> write(request, new FrameWriter(out, format));
+    }
+    
+    private void write(ScanRequestDTO request, FrameWriter writer) throws IOException {
+        ScanStatistics statistics = new ScanStatistics();
+        BlockingQueue<FileInfoDTO> buffer = new ArrayBlockingQueue<>(bufferSize);
+        CompletableFuture<Integer> walk = CompletableFuture.supplyAsync(
+                () -> diskScannerService.walk(request, statistics, file -> enqueue(buffer, file, statistics)),
+                taskExecutor);
+        
+        try {
+            long nextProgress = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(progressIntervalMillis);
+            int unflushed = 0;
+            while (!walk.isDone() || !buffer.isEmpty()) {
+                long wait = Math.min(POLL_TIMEOUT_NANOS, Math.max(0, nextProgress - System.nanoTime()));
+                FileInfoDTO file = buffer.poll(wait, TimeUnit.NANOSECONDS);
+                if (file != null) {
+                    writer.write("file", file);
+                    if (++unflushed >= FLUSH_EVERY) {
+                        writer.flush();
+                        unflushed = 0;
+                    }
+                } else if (unflushed > 0) {
+                    writer.flush();
+                    unflushed = 0;
+                }
+                
+                if (System.nanoTime() >= nextProgress) {
+                    writer.write("progress", summary(statistics, null));
+                    writer.flush();
+                    unflushed = 0;
+                    nextProgress = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(progressIntervalMillis);
+                }
+            }
+            
+            try {
+                writer.write("done", summary(statistics, walk.join()));
+            } catch (CompletionException e) {
+                Throwable cause = e.getCause() != null ? e.getCause() : e;
+                log.warn("Streaming walk of {} failed: {}", request.getPath(), cause.getMessage());
+                writer.write("error", Map.of("message", String.valueOf(cause.getMessage())));
+            }
+            writer.flush();
+        } catch (IOException e) {
+            log.info("Client stopped reading the scan stream of {}: {}", request.getPath(), e.getMessage());
+            throw e;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            // Stops the walk when the client went away; a finished walk ignores it
+            statistics.cancel();
+            buffer.clear();
+        }
+    }
+    
+    /**
+     * Hand a file to the writer, waiting while the buffer is full unless the stream was abandoned
+     */
+    private static void enqueue(BlockingQueue<FileInfoDTO> buffer, FileInfoDTO file, ScanStatistics statistics) {
+        try {
+            while (!buffer.offer(file, OFFER_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS)) {
+                if (statistics.isCancelled()) {
+                    return;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+    
+    private static Map<String, Object> summary(ScanStatistics statistics, Integer parallelism) {
+        Map<String, Object> summary = new LinkedHashMap<>();
+        summary.put("directoriesVisited", statistics.getDirectoriesVisited());
+        summary.put("filesVisited", statistics.getFilesVisited());
+        summary.put("filesMatched", statistics.getFilesMatched());
+        summary.put("bytesMatched", statistics.getBytesMatched());
+        summary.put("errors", statistics.getErrors());
+        summary.put("elapsedMillis", statistics.getElapsedMillis());
+        summary.put("filesPerSecond", statistics.getFilesPerSecond());
+        if (parallelism != null) {
+            summary.put("parallelism", parallelism);
+        }
+        return summary;
+    }
+    
+    /**
+     * Writes typed frames: {"type":...,"data":...} lines for NDJSON, named events for SSE
+     */
+    private class FrameWriter {
+        
+        private final OutputStream out;
+        private final Format format;
+        
+        FrameWriter(OutputStream out, Format format) {
+            this.out = out;
+            this.format = format;
+        }
+        
+        void write(String type, Object data) throws IOException {
+            String json = objectMapper.writeValueAsString(data);
+            String frame = format == Format.SSE ?
+                    "event: " + type + "\ndata: " + json + "\n\n" :
+                    "{\"type\":\"" + type + "\",\"data\":" + json + "}\n";
+            out.write(frame.getBytes(StandardCharsets.UTF_8));
+        }
+        
+        void flush() throws IOException {
+            out.flush();
+        }
+    }
+}
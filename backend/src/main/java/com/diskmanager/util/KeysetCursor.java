@@ -0,0 +1,47 @@
+package com.diskmanager.util;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Opaque cursor for keyset pagination: the sort value and id of the last row of a page.
+ * The next page starts right after that row, so its cost does not grow with the page number.
+ */
+public class KeysetCursor {
+    
+    private final long value;
+    private final long id;
+    
+    public KeysetCursor(long value, long id) {
+        this.value = value;
+        this.id = id;
+    }
+    
+    public long getValue() {
+        return value;
+    }
+    
+    public long getId() {
+        return id;
+    }
+    
+    public String encode() {
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString((value + ":" + id).getBytes(StandardCharsets.US_ASCII));
+    }
+    
+    /**
+     * Parse a cursor returned with a previous page
+     * @throws IllegalArgumentException if the cursor was not produced by {@link #encode}
+     */
+    public static KeysetCursor decode(String cursor) {
+        try {
+            String decoded = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.US_ASCII);
+            int separator = decoded.indexOf(':');
+            return new KeysetCursor(Long.parseLong(decoded.substring(0, separator)),
+                    Long.parseLong(decoded.substring(separator + 1)));
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Invalid cursor: " + cursor);
+        }
+    }
+}
@@ -1,17 +1,20 @@
 package com.diskmanager.util;
 
-import org.apache.commons.codec.digest.DigestUtils;
+import com.diskmanager.hash.ContentHasher;
+import com.diskmanager.hash.FileDigester;
+import com.diskmanager.hash.Md5ContentHasher;
 
-import java.io.FileInputStream;
 import java.io.IOException;
-import java.io.RandomAccessFile;
-import java.util.Arrays;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 
 /**
  * Utility class for MD5 hash calculation
  */
 public class MD5Util {
     
+    private static final ContentHasher MD5 = new Md5ContentHasher();
+    
     /**
      * Calculate MD5 hash of a file
      * @param filePath path to the file
@@ -19,9 +22,7 @@ public class MD5Util {
      * @throws IOException if file cannot be read
      */
     public static String calculateMD5(String filePath) throws IOException {
-        try (FileInputStream fis = new FileInputStream(filePath)) {
-            return DigestUtils.md5Hex(fis);
-        }
+        return FileDigester.digest(Paths.get(filePath), MD5);
     }
     
     /**
@@ -42,22 +43,11 @@ public class MD5Util {
     /**
      * Quick hash for large files - hash first 1MB + size + last 1MB
      */
-    private static String calculateQuickHash(String filePath, long fileSize) throws IOException {
+    public static String calculateQuickHash(String filePath, long fileSize) throws IOException {
         final int CHUNK = 1024 * 1024; // 1MB
-        try (RandomAccessFile raf = new RandomAccessFile(filePath, "r")) {
-            byte[] buffer = new byte[CHUNK];
-
-            // read first chunk
-            int readFirst = raf.read(buffer);
-            String firstHash = DigestUtils.md5Hex(Arrays.copyOf(buffer, Math.max(0, readFirst)));
-
-            // read last chunk
-            long lastPos = Math.max(0, fileSize - CHUNK);
-            raf.seek(lastPos);
-            int readLast = raf.read(buffer);
-            String lastHash = DigestUtils.md5Hex(Arrays.copyOf(buffer, Math.max(0, readLast)));
-
-            return firstHash + "_" + lastHash + "_" + fileSize;
-        }
+        Path path = Paths.get(filePath);
+        String firstHash = FileDigester.digestRange(path, 0, CHUNK, MD5);
+        String lastHash = FileDigester.digestRange(path, Math.max(0, fileSize - CHUNK), CHUNK, MD5);
+        return firstHash + "_" + lastHash + "_" + fileSize;
     }
 }
@@ -0,0 +1,56 @@
+package com.diskmanager.util;
+
+import java.io.File;
+import java.nio.file.Path;
+
+/**
+ * Utility class for path handling in queries and on stored path strings
+ */
+public class PathUtil {
+    
+    /**
+     * LIKE pattern matching everything below a directory, escaped with '!'
+     * @param root directory
+     * @return pattern for queries using ESCAPE '!'
+     */
+    public static String likePrefix(Path root) {
+        String path = root.toString();
+        String separator = root.getFileSystem().getSeparator();
+        if (!path.endsWith(separator)) {
+            path += separator;
+        }
+        return path.replace("!", "!!").replace("%", "!%").replace("_", "!_") + "%";
+    }
+    
+    /**
+     * Parent of a stored path string without parsing it again; stored names that the
+     * platform charset cannot encode would fail {@link java.nio.file.Paths#get}
+     * @param path absolute path as stored
+     * @return parent path, null for a root
+     */
+    public static String parent(String path) {
+        int index = path.lastIndexOf(File.separatorChar);
+        if (index < 0 || index == path.length() - 1) {
+            return null;
+        }
+        String parent = path.substring(0, index);
+        return parent.isEmpty() || parent.endsWith(":") ? parent + File.separatorChar : parent;
+    }
+    
+    /**
+     * Path of an entry of a directory, without parsing either again
+     * @param directory absolute path as stored
+     * @param name file name of the entry
+     */
+    public static String join(String directory, String name) {
+        return directory.endsWith(File.separator) ? directory + name : directory + File.separatorChar + name;
+    }
+    
+    /**
+     * File name of a stored path string, the path itself for a root
+     */
+    public static String name(String path) {
+        int index = path.lastIndexOf(File.separatorChar);
+        return index < 0 || index == path.length() - 1 ? path : path.substring(index + 1);
+    }
+}
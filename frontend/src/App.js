@@ -8,6 +8,7 @@ import DiskScanner from './pages/DiskScanner';
 import PartitionManager from './pages/PartitionManager';
 import DuplicateFinder from './pages/DuplicateFinder';
 import LargeFiles from './pages/LargeFiles';
+import DiskUsage from './pages/DiskUsage';
 
 const theme = createTheme({
   palette: {
@@ -48,6 +49,7 @@ function App() {
             <Route path="/partitions" element={<PartitionManager />} />
             <Route path="/duplicates" element={<DuplicateFinder />} />
             <Route path="/large-files" element={<LargeFiles />} />
+            <Route path="/disk-usage" element={<DiskUsage />} />
           </Routes>
         </Layout>
       </Router>
@@ -19,6 +19,7 @@ import StorageIcon from '@mui/icons-material/Storage';
 import FolderIcon from '@mui/icons-material/Folder';
 import FileCopyIcon from '@mui/icons-material/FileCopy';
 import InsertDriveFileIcon from '@mui/icons-material/InsertDriveFile';
+import AccountTreeIcon from '@mui/icons-material/AccountTree';
 
 const drawerWidth = 240;
 
@@ -28,6 +29,7 @@ const menuItems = [
   { text: 'Partition Manager', icon: <StorageIcon />, path: '/partitions' },
   { text: 'Duplicate Finder', icon: <FileCopyIcon />, path: '/duplicates' },
   { text: 'Large Files', icon: <InsertDriveFileIcon />, path: '/large-files' },
+  { text: 'Disk Usage', icon: <AccountTreeIcon />, path: '/disk-usage' },
 ];
 
 function Layout({ children }) {
@@ -1,4 +1,4 @@
-import React, { useState } from 'react';
+import React, { useState, useEffect, useRef } from 'react';
 import {
   Box,
   Card,
@@ -17,10 +17,13 @@ import {
   Paper,
   FormControlLabel,
   Checkbox,
+  LinearProgress,
 } from '@mui/material';
 import FolderIcon from '@mui/icons-material/Folder';
 import SearchIcon from '@mui/icons-material/Search';
-import { scanDirectory } from '../services/api';
+import { submitScanJob, getScanJob, cancelScanJob, getScanJobResults } from '../services/api';
+
+const POLL_INTERVAL_MS = 500;
 
 function DiskScanner() {
   const [path, setPath] = useState('');
@@ -30,6 +33,33 @@ function DiskScanner() {
   const [error, setError] = useState(null);
   const [success, setSuccess] = useState(null);
   const [files, setFiles] = useState([]);
+  const [job, setJob] = useState(null);
+  const pollTimer = useRef(null);
+
+  useEffect(() => () => clearTimeout(pollTimer.current), []);
+
+  const pollJob = async (jobId) => {
+    try {
+      const response = await getScanJob(jobId);
+      const current = response.data.job;
+      setJob(current);
+
+      if (current.status === 'COMPLETED') {
+        const results = await getScanJobResults(jobId, 0, 100); // Show first 100
+        setSuccess(`Successfully scanned ${results.data.totalFiles} files`);
+        setFiles(results.data.files);
+        setLoading(false);
+      } else if (current.status === 'FAILED' || current.status === 'CANCELLED') {
+        setError(current.message || `Scan ${current.status.toLowerCase()}`);
+        setLoading(false);
+      } else {
+        pollTimer.current = setTimeout(() => pollJob(jobId), POLL_INTERVAL_MS);
+      }
+    } catch (err) {
+      setError(err.response?.data?.message || err.message || 'Failed to get scan progress');
+      setLoading(false);
+    }
+  };
 
   const handleScan = async () => {
     if (!path.trim()) {
@@ -41,9 +71,10 @@ function DiskScanner() {
     setError(null);
     setSuccess(null);
     setFiles([]);
+    setJob(null);
 
     try {
-      const response = await scanDirectory({
+      const response = await submitScanJob({
         path,
         includeHidden,
         maxDepth: parseInt(maxDepth),
@@ -51,16 +82,31 @@ function DiskScanner() {
       });
 
       if (response.data.success) {
-        setSuccess(`Successfully scanned ${response.data.filesScanned} files`);
-        setFiles(response.data.files.slice(0, 100)); // Show first 100
+        setJob(response.data.job);
+        pollJob(response.data.job.id);
       }
     } catch (err) {
       setError(err.response?.data?.message || err.message || 'Failed to scan directory');
-    } finally {
       setLoading(false);
     }
   };
 
+  const handleCancel = async () => {
+    if (!job) {
+      return;
+    }
+    try {
+      await cancelScanJob(job.id);
+    } catch (err) {
+      setError(err.response?.data?.message || err.message || 'Failed to cancel scan');
+    }
+  };
+
+  const formatEta = (millis) => {
+    const seconds = Math.ceil(millis / 1000);
+    return seconds < 60 ? `${seconds}s` : `${Math.floor(seconds / 60)}m ${seconds % 60}s`;
+  };
+
   return (
     <Box>
       <Typography variant="h4" gutterBottom>
@@ -114,6 +160,25 @@ function DiskScanner() {
             >
               {loading ? 'Scanning...' : 'Start Scan'}
             </Button>
+
+            {loading && job && (
+              <Box>
+                <LinearProgress
+                  variant={job.percentComplete != null ? 'determinate' : 'indeterminate'}
+                  value={job.percentComplete || 0}
+                />
+                <Box sx={{ display: 'flex', gap: 2, alignItems: 'center', mt: 1 }}>
+                  <Typography variant="body2" color="text.secondary">
+                    {job.phase}: {job.directoriesVisited} directories, {job.filesMatched} files,{' '}
+                    {job.bytesMatchedFormatted}
+                    {job.etaMillis != null && ` - about ${formatEta(job.etaMillis)} left`}
+                  </Typography>
+                  <Button size="small" color="error" onClick={handleCancel}>
+                    Cancel
+                  </Button>
+                </Box>
+              </Box>
+            )}
           </Box>
 
           {error && (
@@ -0,0 +1,197 @@
+import React, { useState } from 'react';
+import {
+  Box,
+  Card,
+  CardContent,
+  Typography,
+  TextField,
+  Button,
+  CircularProgress,
+  Alert,
+  Table,
+  TableBody,
+  TableCell,
+  TableContainer,
+  TableHead,
+  TableRow,
+  Paper,
+  MenuItem,
+  IconButton,
+  LinearProgress,
+} from '@mui/material';
+import AccountTreeIcon from '@mui/icons-material/AccountTree';
+import SearchIcon from '@mui/icons-material/Search';
+import ChevronRightIcon from '@mui/icons-material/ChevronRight';
+import ExpandMoreIcon from '@mui/icons-material/ExpandMore';
+import { getDirectoryTree, expandDirectory } from '../services/api';
+
+const SORT_FIELDS = {
+  size: 'totalSize',
+  rounded: 'roundedSize',
+  files: 'totalFiles',
+};
+
+function DiskUsage() {
+  const [path, setPath] = useState('');
+  const [sort, setSort] = useState('size');
+  const [loading, setLoading] = useState(false);
+  const [error, setError] = useState(null);
+  const [root, setRoot] = useState(null);
+  const [children, setChildren] = useState({});
+  const [expanded, setExpanded] = useState({});
+
+  const handleLoad = async () => {
+    setLoading(true);
+    setError(null);
+    setRoot(null);
+    setChildren({});
+    setExpanded({});
+
+    try {
+      const response = await getDirectoryTree(path, sort);
+
+      if (response.data.success) {
+        const directory = response.data.directory;
+        setRoot(directory);
+        setChildren({ [directory.id]: directory.children });
+        setExpanded({ [directory.id]: true });
+      }
+    } catch (err) {
+      setError(err.response?.data?.message || err.message || 'Failed to load directory sizes');
+    } finally {
+      setLoading(false);
+    }
+  };
+
+  const handleToggle = async (node) => {
+    if (expanded[node.id]) {
+      setExpanded((previous) => ({ ...previous, [node.id]: false }));
+      return;
+    }
+    if (!children[node.id]) {
+      try {
+        const response = await expandDirectory(node.id, sort);
+        if (response.data.success) {
+          setChildren((previous) => ({ ...previous, [node.id]: response.data.directory.children }));
+        }
+      } catch (err) {
+        setError(err.response?.data?.message || err.message || 'Failed to expand directory');
+        return;
+      }
+    }
+    setExpanded((previous) => ({ ...previous, [node.id]: true }));
+  };
+
+  const renderRows = (node, depth, parentTotal) => {
+    const share = parentTotal > 0 ? (node[SORT_FIELDS[sort]] * 100) / parentTotal : 100;
+    const rows = [
+      <TableRow key={node.id} hover>
+        <TableCell sx={{ pl: 2 + depth * 3 }}>
+          {node.totalDirectories > 0 ? (
+            <IconButton size="small" onClick={() => handleToggle(node)}>
+              {expanded[node.id] ? <ExpandMoreIcon /> : <ChevronRightIcon />}
+            </IconButton>
+          ) : (
+            <Box component="span" sx={{ display: 'inline-block', width: 34 }} />
+          )}
+          {depth === 0 ? node.path : node.name}
+        </TableCell>
+        <TableCell sx={{ width: 200 }}>
+          <LinearProgress variant="determinate" value={share} />
+        </TableCell>
+        <TableCell>
+          <Typography fontWeight="bold">{node.totalSizeFormatted}</Typography>
+        </TableCell>
+        <TableCell>{node.roundedSizeFormatted}</TableCell>
+        <TableCell>{node.totalFiles}</TableCell>
+        <TableCell>{node.totalDirectories}</TableCell>
+      </TableRow>,
+    ];
+
+    if (expanded[node.id]) {
+      (children[node.id] || []).forEach((child) => {
+        rows.push(...renderRows(child, depth + 1, node[SORT_FIELDS[sort]]));
+      });
+    }
+    return rows;
+  };
+
+  return (
+    <Box>
+      <Typography variant="h4" gutterBottom>
+        <AccountTreeIcon sx={{ mr: 1, verticalAlign: 'middle' }} />
+        Disk Usage
+      </Typography>
+
+      <Card sx={{ mb: 3 }}>
+        <CardContent>
+          <Typography variant="body1" paragraph>
+            See how much space each directory of a scanned tree takes up, including everything below it. Expand a directory to drill down into its largest children.
+          </Typography>
+
+          <Box sx={{ display: 'flex', gap: 2, alignItems: 'center' }}>
+            <TextField
+              label="Directory Path"
+              value={path}
+              onChange={(e) => setPath(e.target.value)}
+              sx={{ flexGrow: 1 }}
+              helperText="A directory that has been scanned"
+            />
+
+            <TextField
+              select
+              label="Sort"
+              value={sort}
+              onChange={(e) => setSort(e.target.value)}
+              sx={{ width: 200 }}
+              helperText="Order children by"
+            >
+              <MenuItem value="size">Size</MenuItem>
+              <MenuItem value="rounded">Size in whole blocks</MenuItem>
+              <MenuItem value="files">File count</MenuItem>
+            </TextField>
+
+            <Button
+              variant="contained"
+              startIcon={loading ? <CircularProgress size={20} /> : <SearchIcon />}
+              onClick={handleLoad}
+              disabled={loading || !path}
+            >
+              {loading ? 'Loading...' : 'Show Usage'}
+            </Button>
+          </Box>
+
+          {error && (
+            <Alert severity="error" sx={{ mt: 2 }}>
+              {error}
+            </Alert>
+          )}
+        </CardContent>
+      </Card>
+
+      {root && (
+        <Card>
+          <CardContent>
+            <TableContainer component={Paper} sx={{ maxHeight: 600 }}>
+              <Table stickyHeader size="small">
+                <TableHead>
+                  <TableRow>
+                    <TableCell>Directory</TableCell>
+                    <TableCell>Share</TableCell>
+                    <TableCell>Size</TableCell>
+                    <TableCell>Size in Blocks</TableCell>
+                    <TableCell>Files</TableCell>
+                    <TableCell>Subdirectories</TableCell>
+                  </TableRow>
+                </TableHead>
+                <TableBody>{renderRows(root, 0, 0)}</TableBody>
+              </Table>
+            </TableContainer>
+          </CardContent>
+        </Card>
+      )}
+    </Box>
+  );
+}
+
+export default DiskUsage;
@@ -18,38 +18,40 @@ import {
   TableRow,
   Paper,
   Chip,
+  TextField,
+  MenuItem,
 } from '@mui/material';
 import FileCopyIcon from '@mui/icons-material/FileCopy';
 import SearchIcon from '@mui/icons-material/Search';
 import ExpandMoreIcon from '@mui/icons-material/ExpandMore';
-import { findDuplicates } from '../services/api';
+import { findDuplicates, getDuplicateGroups } from '../services/api';
+
+const PAGE_SIZE = 100;
 
 function DuplicateFinder() {
   const [loading, setLoading] = useState(false);
   const [error, setError] = useState(null);
   const [duplicateGroups, setDuplicateGroups] = useState([]);
+  const [groupCount, setGroupCount] = useState(0);
   const [totalWastedSpace, setTotalWastedSpace] = useState(0);
+  const [sort, setSort] = useState('reclaimable');
+  const [nextCursor, setNextCursor] = useState(null);
 
   const handleFindDuplicates = async () => {
     setLoading(true);
     setError(null);
     setDuplicateGroups([]);
+    setNextCursor(null);
+    setSort('reclaimable'); // the search returns its first page by reclaimable space
 
     try {
       const response = await findDuplicates();
 
       if (response.data.success) {
-        setDuplicateGroups(response.data.duplicates);
-        
-        // Calculate total wasted space
-        let wastedSpace = 0;
-        response.data.duplicates.forEach(group => {
-          if (group.length > 1) {
-            const fileSize = group[0].fileSize;
-            wastedSpace += fileSize * (group.length - 1);
-          }
-        });
-        setTotalWastedSpace(wastedSpace);
+        setDuplicateGroups(response.data.groups);
+        setNextCursor(response.data.nextCursor);
+        setGroupCount(response.data.duplicateGroups);
+        setTotalWastedSpace(response.data.reclaimableBytes);
       }
     } catch (err) {
       setError(err.response?.data?.message || err.message || 'Failed to find duplicates');
@@ -58,6 +60,29 @@ function DuplicateFinder() {
     }
   };
 
+  const fetchGroups = async (sortBy, cursor) => {
+    setLoading(true);
+    setError(null);
+
+    try {
+      const response = await getDuplicateGroups(sortBy, cursor, PAGE_SIZE);
+
+      if (response.data.success) {
+        setDuplicateGroups((previous) => (cursor ? [...previous, ...response.data.groups] : response.data.groups));
+        setNextCursor(response.data.nextCursor);
+      }
+    } catch (err) {
+      setError(err.response?.data?.message || err.message || 'Failed to load duplicate groups');
+    } finally {
+      setLoading(false);
+    }
+  };
+
+  const handleSortChange = (sortBy) => {
+    setSort(sortBy);
+    fetchGroups(sortBy, null);
+  };
+
   const formatBytes = (bytes) => {
     if (bytes === 0) return '0 B';
     const k = 1024;
@@ -96,7 +121,7 @@ function DuplicateFinder() {
 
           {duplicateGroups.length > 0 && (
             <Alert severity="info" sx={{ mt: 2 }}>
-              Found {duplicateGroups.length} duplicate groups. 
+              Found {groupCount} duplicate groups. 
               Potential space savings: {formatBytes(totalWastedSpace)}
             </Alert>
           )}
@@ -106,17 +131,32 @@ function DuplicateFinder() {
       {duplicateGroups.length > 0 && (
         <Card>
           <CardContent>
-            <Typography variant="h6" gutterBottom>
-              Duplicate Groups
-            </Typography>
+            <Box sx={{ display: 'flex', alignItems: 'center', justifyContent: 'space-between', mb: 2 }}>
+              <Typography variant="h6">
+                Duplicate Groups
+              </Typography>
 
-            {duplicateGroups.map((group, groupIndex) => (
-              <Accordion key={groupIndex} sx={{ mb: 1 }}>
+              <TextField
+                select
+                size="small"
+                label="Sort"
+                value={sort}
+                onChange={(e) => handleSortChange(e.target.value)}
+                sx={{ width: 220 }}
+              >
+                <MenuItem value="reclaimable">Most reclaimable space</MenuItem>
+                <MenuItem value="size">Largest files</MenuItem>
+                <MenuItem value="count">Most copies</MenuItem>
+              </TextField>
+            </Box>
+
+            {duplicateGroups.map((group) => (
+              <Accordion key={group.id} sx={{ mb: 1 }}>
                 <AccordionSummary expandIcon={<ExpandMoreIcon />}>
                   <Box sx={{ display: 'flex', alignItems: 'center', gap: 2, width: '100%' }}>
-                    <Chip label={`${group.length} copies`} color="warning" size="small" />
+                    <Chip label={`${group.fileCount} copies`} color="warning" size="small" />
                     <Typography>
-                      {group[0]?.fileName} ({group[0]?.fileSizeFormatted})
+                      {group.files[0]?.fileName} ({group.fileSizeFormatted})
                     </Typography>
                   </Box>
                 </AccordionSummary>
@@ -132,7 +172,7 @@ function DuplicateFinder() {
                         </TableRow>
                       </TableHead>
                       <TableBody>
-                        {group.map((file) => (
+                        {group.files.map((file) => (
                           <TableRow key={file.id} hover>
                             <TableCell>{file.fileName}</TableCell>
                             <TableCell>{file.fileSizeFormatted}</TableCell>
@@ -147,11 +187,17 @@ function DuplicateFinder() {
                   </TableContainer>
                   
                   <Alert severity="warning" sx={{ mt: 2 }}>
-                    Review carefully before deleting. Keep one copy and remove the rest to save {formatBytes(group[0]?.fileSize * (group.length - 1))}.
+                    Review carefully before deleting. Keep one copy and remove the rest to save {group.reclaimableBytesFormatted}.
                   </Alert>
                 </AccordionDetails>
               </Accordion>
             ))}
+
+            {nextCursor && (
+              <Button sx={{ mt: 1 }} onClick={() => fetchGroups(sort, nextCursor)} disabled={loading}>
+                Load more
+              </Button>
+            )}
           </CardContent>
         </Card>
       )}
@@ -16,29 +16,38 @@ import {
   TableRow,
   Paper,
   Chip,
+  MenuItem,
 } from '@mui/material';
 import InsertDriveFileIcon from '@mui/icons-material/InsertDriveFile';
 import SearchIcon from '@mui/icons-material/Search';
 import { getLargeFiles } from '../services/api';
 
+const PAGE_SIZE = 100;
+
 function LargeFiles() {
   const [sizeThreshold, setSizeThreshold] = useState('100');
   const [loading, setLoading] = useState(false);
   const [error, setError] = useState(null);
+  const [direction, setDirection] = useState('desc');
   const [files, setFiles] = useState([]);
+  const [nextCursor, setNextCursor] = useState(null);
 
-  const handleSearch = async () => {
+  const fetchPage = async (cursor) => {
     setLoading(true);
     setError(null);
-    setFiles([]);
+    if (!cursor) {
+      setFiles([]);
+      setNextCursor(null);
+    }
 
     const thresholdBytes = parseInt(sizeThreshold) * 1024 * 1024; // Convert MB to bytes
 
     try {
-      const response = await getLargeFiles(thresholdBytes);
+      const response = await getLargeFiles(thresholdBytes, direction, cursor, PAGE_SIZE);
 
       if (response.data.success) {
-        setFiles(response.data.files);
+        setFiles((previous) => (cursor ? [...previous, ...response.data.files] : response.data.files));
+        setNextCursor(response.data.nextCursor);
       }
     } catch (err) {
       setError(err.response?.data?.message || err.message || 'Failed to fetch large files');
@@ -47,6 +56,14 @@ function LargeFiles() {
     }
   };
 
+  const handleSearch = () => fetchPage(null);
+
+  // A cursor only continues the order and threshold it was issued for
+  const resetResults = () => {
+    setFiles([]);
+    setNextCursor(null);
+  };
+
   return (
     <Box>
       <Typography variant="h4" gutterBottom>
@@ -65,11 +82,31 @@ function LargeFiles() {
               label="Size Threshold (MB)"
               type="number"
               value={sizeThreshold}
-              onChange={(e) => setSizeThreshold(e.target.value)}
+              onChange={(e) => {
+                setSizeThreshold(e.target.value);
+                resetResults();
+              }}
+              disabled={loading}
               sx={{ width: 200 }}
               helperText="Minimum file size in MB"
             />
 
+            <TextField
+              select
+              label="Sort"
+              value={direction}
+              onChange={(e) => {
+                setDirection(e.target.value);
+                resetResults();
+              }}
+              disabled={loading}
+              sx={{ width: 200 }}
+              helperText="Order by file size"
+            >
+              <MenuItem value="desc">Largest first</MenuItem>
+              <MenuItem value="asc">Smallest first</MenuItem>
+            </TextField>
+
             <Button
               variant="contained"
               startIcon={loading ? <CircularProgress size={20} /> : <SearchIcon />}
@@ -88,7 +125,7 @@ function LargeFiles() {
 
           {files.length > 0 && (
             <Alert severity="info" sx={{ mt: 2 }}>
-              Found {files.length} files larger than {sizeThreshold} MB
+              Showing {files.length}{nextCursor ? '+' : ''} files larger than {sizeThreshold} MB
             </Alert>
           )}
         </CardContent>
@@ -131,6 +168,12 @@ function LargeFiles() {
                 </TableBody>
               </Table>
             </TableContainer>
+
+            {nextCursor && (
+              <Button sx={{ mt: 2 }} onClick={() => fetchPage(nextCursor)} disabled={loading}>
+                Load more
+              </Button>
+            )}
           </CardContent>
         </Card>
       )}
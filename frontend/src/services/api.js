@@ -33,12 +33,40 @@ export const scanDirectory = (scanRequest) => {
   return api.post('/disk/scan', scanRequest);
 };
 
+export const submitScanJob = (scanRequest) => {
+  return api.post('/disk/jobs', scanRequest);
+};
+
+export const getScanJob = (jobId) => {
+  return api.get(`/disk/jobs/${jobId}`);
+};
+
+export const cancelScanJob = (jobId) => {
+  return api.delete(`/disk/jobs/${jobId}`);
+};
+
+export const getScanJobResults = (jobId, page = 0, size = 100) => {
+  return api.get(`/disk/jobs/${jobId}/results?page=${page}&size=${size}`);
+};
+
 export const findDuplicates = () => {
   return api.get('/disk/duplicates');
 };
 
-export const getLargeFiles = (sizeThreshold = 104857600) => {
-  return api.get(`/disk/large-files?sizeThreshold=${sizeThreshold}`);
+export const getDuplicateGroups = (sort = 'reclaimable', cursor = null, limit = 100) => {
+  return api.get('/disk/duplicates/groups', { params: { sort, cursor, limit } });
+};
+
+export const getLargeFiles = (sizeThreshold = 104857600, direction = 'desc', cursor = null, limit = 100) => {
+  return api.get('/disk/large-files', { params: { sizeThreshold, direction, cursor, limit } });
+};
+
+export const getDirectoryTree = (path, sort = 'size', limit = 100) => {
+  return api.get('/disk/tree', { params: { path, sort, limit } });
+};
+
+export const expandDirectory = (id, sort = 'size', limit = 100) => {
+  return api.get(`/disk/tree/${id}`, { params: { sort, limit } });
 };
 
 export const getDiskStatistics = () => {